@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml.benchmarks;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
+
+import java.net.URI;
+
+/**
+ * Resolves every user and accepts every HTTP(S) and mailto URI without any I/O, so that the benchmarks measure the
+ * parser alone.
+ */
+class BenchmarkDataProvider implements IDataProvider {
+
+  @Override
+  public IUserPresentation getUserPresentation(String emailAddress) {
+    return new User(emailAddress.hashCode() & 0xffff, emailAddress);
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(Long uid) {
+    return new User(uid, "user" + uid + "@example.com");
+  }
+
+  @Override
+  public void validateURI(URI uri) throws InvalidInputException {
+    String scheme = uri.getScheme();
+
+    if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme) && !"mailto".equalsIgnoreCase(scheme)) {
+      throw new InvalidInputException("URI scheme \"" + scheme + "\" is not supported by the pod.");
+    }
+  }
+
+  private static class User implements IUserPresentation {
+    private final long id;
+    private final String email;
+
+    User(long id, String email) {
+      this.id = id;
+      this.email = email;
+    }
+
+    @Override
+    public long getId() {
+      return id;
+    }
+
+    @Override
+    public String getScreenName() {
+      return "user" + id;
+    }
+
+    @Override
+    public String getPrettyName() {
+      return "User " + id;
+    }
+
+    @Override
+    public String getEmail() {
+      return email;
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The messages the benchmarks are run with, read from the <i>corpus</i> directory of the classpath. A MessageML
+ * message <i>name</i> is stored in <i>name.messageml</i>, with its EntityJSON, if any, in <i>name.json</i>. A
+ * Markdown message is stored in <i>name.md</i>, with its entities, if any, in <i>name.entities</i>.
+ */
+final class Corpus {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final String DIRECTORY = "/corpus/";
+
+  private Corpus() {
+  }
+
+  static String messageML(String name) {
+    return read(name + ".messageml", true);
+  }
+
+  static String entityJson(String name) {
+    return read(name + ".json", false);
+  }
+
+  static String markdown(String name) {
+    return read(name + ".md", true);
+  }
+
+  static JsonNode entities(String name) {
+    String entities = read(name + ".entities", false);
+
+    try {
+      return (entities != null) ? MAPPER.readTree(entities) : null;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Invalid entities of \"" + name + "\"", e);
+    }
+  }
+
+  private static String read(String resource, boolean required) {
+    try (InputStream in = Corpus.class.getResourceAsStream(DIRECTORY + resource)) {
+      if (in == null) {
+        if (required) {
+          throw new IllegalArgumentException("Missing corpus file \"" + resource + "\"");
+        }
+        return null;
+      }
+
+      return IOUtils.toString(in, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read corpus file \"" + resource + "\"", e);
+    }
+  }
+}
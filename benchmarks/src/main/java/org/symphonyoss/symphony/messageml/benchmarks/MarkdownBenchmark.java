@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.symphonyoss.symphony.messageml.MessageMLEngine;
+import org.symphonyoss.symphony.messageml.MessageMLResult;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing Markdown messages of the corpus, with their legacy JSON entities, into document trees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownBenchmark {
+
+  @Param({"plain-text", "mentions"})
+  private String message;
+
+  private MessageMLEngine engine;
+  private String markdown;
+  private JsonNode entities;
+
+  @Setup
+  public void setUp() {
+    engine = new MessageMLEngine(new BenchmarkDataProvider());
+    markdown = Corpus.markdown(message);
+    entities = Corpus.entities(message);
+  }
+
+  @Benchmark
+  public MessageMLResult parseMarkdown() throws Exception {
+    return engine.parseMarkdown(markdown, entities, null);
+  }
+
+}
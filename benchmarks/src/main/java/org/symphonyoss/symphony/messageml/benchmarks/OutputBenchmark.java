@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.symphonyoss.symphony.messageml.MessageMLEngine;
+import org.symphonyoss.symphony.messageml.MessageMLResult;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating the output formats of parsed MessageML messages of the corpus. A result keeps every format it
+ * has generated, so each invocation is given a freshly parsed message; parsing is not included in the measurements.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputBenchmark {
+
+  @Param({"plain-text", "mentions", "emoji", "table", "cards", "forms", "template", "entities"})
+  private String message;
+
+  private MessageMLEngine engine;
+  private String messageML;
+  private String entityJson;
+  private MessageMLResult result;
+
+  @Setup
+  public void setUp() {
+    engine = new MessageMLEngine(new BenchmarkDataProvider());
+    messageML = Corpus.messageML(message);
+    entityJson = Corpus.entityJson(message);
+  }
+
+  @Setup(Level.Invocation)
+  public void parse() throws Exception {
+    result = engine.parseMessageML(messageML, entityJson, null);
+  }
+
+  @Benchmark
+  public String getPresentationML() {
+    return result.getPresentationML();
+  }
+
+  @Benchmark
+  public String getMarkdown() {
+    return result.getMarkdown();
+  }
+
+  @Benchmark
+  public JsonNode getEntities() {
+    return result.getEntities();
+  }
+
+  @Benchmark
+  public String getText() throws Exception {
+    return result.getText();
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.symphonyoss.symphony.messageml.MessageMLEngine;
+import org.symphonyoss.symphony.messageml.MessageMLResult;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing MessageML messages of the corpus into document trees, including the expansion of Freemarker
+ * templates and the validation of EntityJSON references.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+  @Param({"plain-text", "mentions", "emoji", "table", "cards", "forms", "template", "entities"})
+  private String message;
+
+  private MessageMLEngine engine;
+  private String messageML;
+  private String entityJson;
+
+  @Setup
+  public void setUp() {
+    engine = new MessageMLEngine(new BenchmarkDataProvider());
+    messageML = Corpus.messageML(message);
+    entityJson = Corpus.entityJson(message);
+  }
+
+  @Benchmark
+  public MessageMLResult parseMessageML() throws Exception {
+    return engine.parseMessageML(messageML, entityJson, null);
+  }
+
+}
@@ -23,22 +23,48 @@
 
 package org.symphonyoss.symphony.entityjson;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
 import com.github.fge.jsonschema.core.load.configuration.LoadingConfigurationBuilder;
+import com.github.fge.jsonschema.core.load.download.URIDownloader;
 import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.main.JsonSchema;
 import com.github.fge.jsonschema.main.JsonSchemaFactory;
 import com.github.fge.jsonschema.main.JsonSchemaFactoryBuilder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.Reader;
 import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
 
 /**
  * A parser for EntityJSON and StructuredObject.
@@ -69,30 +95,401 @@ public class EntityJsonParser
     }
   }
 
-  private final JsonSchemaFactory factory_;
+  /** The maximum number of schemas loaded concurrently by preload(Collection), across all parsers. */
+  public static final int PRELOAD_THREADS = 8;
+  
+  /* Immutable and thread safe, shared by all parsers so that Jackson's internal caches are reused. */
+  private static final ObjectReader JSON_READER = new ObjectMapper().readerFor(JsonNode.class);
+  
+  /* Shared by all preload(Collection) calls, its daemon threads exit when idle. */
+  private static final ExecutorService PRELOAD_EXECUTOR = newPreloadExecutor();
+  
+  private final JsonSchemaFactory        factory_;
+  private final EntityJsonSchemaCache    schemaCache_;
+  private final EntityJsonSchemaResolver schemaResolver_;
+  private final EntityJsonURIDownloader  downloader_;
+  private final ConcurrentMap<String, CompletableFuture<byte[]>> loads_ = new ConcurrentHashMap<>();
   
   /* package */ EntityJsonParser(boolean unrestrictedSchemaLoad)
   {
-    if(unrestrictedSchemaLoad) {
-      factory_ = JsonSchemaFactory.byDefault();
-    }
-    else
+    this(unrestrictedSchemaLoad, EntityJsonSchemaCache.DEFAULT_MAX_SIZE, EntityJsonSchemaResolver.getDefault());
+  }
+  
+  /* package */ EntityJsonParser(boolean unrestrictedSchemaLoad, int schemaCacheSize, EntityJsonSchemaResolver schemaResolver)
+  {
+    schemaCache_ = schemaCacheSize > 0 ? new EntityJsonSchemaCache(schemaCacheSize) : null;
+    schemaResolver_ = schemaResolver;
+    
+    JsonSchemaFactoryBuilder builder = JsonSchemaFactory.newBuilder();
+    
+    LoadingConfigurationBuilder loadingCfgBuilder = LoadingConfiguration.newBuilder();
+    
+    // Referenced schemas are resolved in the same way as top level schemas, if schema load is
+    // restricted then only from known hosts.
+    downloader_ = new EntityJsonURIDownloader(schemaResolver, !unrestrictedSchemaLoad);
+    
+    // Documents being read by preload() are handed over to the schema loader rather than fetched again.
+    URIDownloader downloader = (source) ->
     {
-      JsonSchemaFactoryBuilder builder = JsonSchemaFactory.newBuilder();
+      CompletableFuture<byte[]> load = loads_.get(getLocator(source));
       
-      LoadingConfigurationBuilder loadingCfgBuilder = LoadingConfiguration.newBuilder();
+      if(load != null)
+      {
+        try
+        {
+          return new ByteArrayInputStream(load.join());
+        }
+        catch(CompletionException e)
+        {
+          // The preload failed, fetch the document as usual
+        }
+      }
+      
+      return downloader_.fetch(source);
+    };
 
-      loadingCfgBuilder.addScheme("http", EntityJsonURIDownloader.getInstance());
-      loadingCfgBuilder.addScheme("https", EntityJsonURIDownloader.getInstance());
+    loadingCfgBuilder.addScheme("http", downloader);
+    loadingCfgBuilder.addScheme("https", downloader);
+    
+    LoadingConfiguration loadingCfg = loadingCfgBuilder.freeze();
+    
+    builder.setLoadingConfiguration(loadingCfg);
+    
+    factory_ = builder.freeze();
+  }
+  
+  /**
+   * @return The resolver from which this parser loads schemas.
+   */
+  public EntityJsonSchemaResolver getSchemaResolver()
+  {
+    return schemaResolver_;
+  }
+  
+  /**
+   * Return the cache of compiled schemas shared by all parse and validate calls on this parser,
+   * through which cached schemas may be invalidated and cache statistics obtained.
+   * 
+   * @return The schema cache, or null if schema caching was disabled in the EntityJsonParserBuilder.
+   */
+  public @Nullable EntityJsonSchemaCache getSchemaCache()
+  {
+    return schemaCache_;
+  }
+  
+  /**
+   * Load and compile the given schemas and every schema they reference, directly or indirectly,
+   * so that the first validation against them is as fast as subsequent ones. Schemas at the same
+   * depth of the reference graph are loaded concurrently, on a pool of PRELOAD_THREADS threads
+   * shared by all parsers.
+   * 
+   * The given schemas are added to the schema cache, without a version, referenced schemas to the
+   * schema loader. References to the JSON Schema meta-schemas, which are built in, are not followed.
+   * 
+   * @param schemaUrls  The schemas to load.
+   * 
+   * @return  A report of the schemas which were loaded and those which failed.
+   */
+  public SchemaPreloadReport preload(Collection<URL> schemaUrls)
+  {
+    return preload(schemaUrls, PRELOAD_EXECUTOR);
+  }
+  
+  private static ExecutorService newPreloadExecutor()
+  {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(PRELOAD_THREADS, PRELOAD_THREADS, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), (runnable) ->
+        {
+          Thread thread = new Thread(runnable, "EntityJsonParser-preload");
+          
+          thread.setDaemon(true);
+          
+          return thread;
+        });
+    
+    executor.allowCoreThreadTimeOut(true);
+    
+    return executor;
+  }
+  
+  /**
+   * Load and compile the given schemas and every schema they reference, as preload(Collection),
+   * on the given executor.
+   * 
+   * @param schemaUrls  The schemas to load.
+   * @param executor    The executor on which schemas are loaded.
+   * 
+   * @return  A report of the schemas which were loaded and those which failed.
+   */
+  public SchemaPreloadReport preload(Collection<URL> schemaUrls, Executor executor)
+  {
+    Set<URL>                      loaded = new LinkedHashSet<>();
+    Map<URL, EntityJsonException> failed = new LinkedHashMap<>();
+    Set<String>                   seen = new HashSet<>();
+    List<URL>                     level = new ArrayList<>();
+    boolean                       topLevel = true;
+    
+    for(URL url : schemaUrls)
+    {
+      if(seen.add(getLocator(url)))
+        level.add(url);
+    }
+    
+    while(!level.isEmpty())
+    {
+      List<CompletableFuture<List<URL>>> futures = new ArrayList<>(level.size());
+      
+      for(URL url : level)
+      {
+        boolean requested = topLevel;
+        
+        futures.add(CompletableFuture.supplyAsync(() ->
+        {
+          try
+          {
+            return preload(url, requested);
+          }
+          catch(EntityJsonException e)
+          {
+            throw new CompletionException(e);
+          }
+        }, executor));
+      }
+      
+      List<URL> next = new ArrayList<>();
       
-      LoadingConfiguration loadingCfg = loadingCfgBuilder.freeze();
+      for(int i=0 ; i<level.size() ; i++)
+      {
+        try
+        {
+          for(URL ref : futures.get(i).join())
+          {
+            if(seen.add(getLocator(ref)))
+              next.add(ref);
+          }
+          
+          loaded.add(level.get(i));
+        }
+        catch(CompletionException e)
+        {
+          failed.put(level.get(i), e.getCause() instanceof EntityJsonException
+              ? (EntityJsonException)e.getCause() : new InvalidSchemaException(null, e.getCause()));
+        }
+      }
       
-      builder.setLoadingConfiguration(loadingCfg);
+      level = next;
+      topLevel = false;
+    }
+    
+    return new SchemaPreloadReport(loaded, failed);
+  }
+  
+  /**
+   * Load and compile a single schema.
+   * 
+   * @param url       The schema.
+   * @param requested true if the schema was passed to preload(), false if it is referenced.
+   * 
+   * @return  The schemas referenced by the given schema.
+   * 
+   * @throws NoSchemaException      If the schema does not exist.
+   * @throws InvalidSchemaException If the schema cannot be read or is invalid.
+   */
+  private List<URL> preload(URL url, boolean requested) throws NoSchemaException, InvalidSchemaException
+  {
+    IEntityJsonContext context = EntityJsonContext.newInstance();
+    String             locator = getLocator(url);
+    URI                uri;
+    
+    try
+    {
+      uri = url.toURI();
+    }
+    catch (URISyntaxException e)
+    {
+      throw new NoSchemaException(context, e);
+    }
+    
+    // Concurrent preloads of the same document share a single read
+    CompletableFuture<byte[]> load = new CompletableFuture<>();
+    CompletableFuture<byte[]> existing = loads_.putIfAbsent(locator, load);
+    
+    if(existing != null)
+      return compile(url, uri, locator, awaitLoad(context, existing), requested);
+    
+    try
+    {
+      return compile(url, uri, locator, load(context, url, uri, requested, load), requested);
+    }
+    finally
+    {
+      if(!load.isDone())
+        load.completeExceptionally(new IOException("Failed to read " + url));
       
-      factory_ = builder.freeze();
+      loads_.remove(locator, load);
     }
   }
   
+  /**
+   * Read a schema document, completing the given future with its content or failure so that
+   * the schema loader and concurrent preloads of the same document can use it.
+   */
+  private byte[] load(IEntityJsonContext context, URL url, URI uri, boolean requested, CompletableFuture<byte[]> load) throws NoSchemaException, InvalidSchemaException
+  {
+    // Requested schemas are read as for validation, referenced schemas as by the schema loader
+    try(InputStream in = requested ? schemaResolver_.open(uri) : isHttp(uri) ? downloader_.fetch(uri) : url.openStream())
+    {
+      byte[] content = readFully(in);
+      
+      load.complete(content);
+      
+      return content;
+    }
+    catch (FileNotFoundException e)
+    {
+      load.completeExceptionally(e);
+      throw new NoSchemaException(context, e);
+    }
+    catch (IOException e)
+    {
+      load.completeExceptionally(e);
+      throw new InvalidSchemaException(context, e);
+    }
+  }
+  
+  /**
+   * Wait for the content of a schema document being read by a concurrent preload.
+   */
+  private static byte[] awaitLoad(IEntityJsonContext context, CompletableFuture<byte[]> load) throws NoSchemaException, InvalidSchemaException
+  {
+    try
+    {
+      return load.join();
+    }
+    catch (CompletionException e)
+    {
+      if(e.getCause() instanceof FileNotFoundException)
+        throw new NoSchemaException(context, e.getCause());
+      
+      throw new InvalidSchemaException(context, e.getCause());
+    }
+  }
+  
+  private List<URL> compile(URL url, URI uri, String locator, byte[] content, boolean requested) throws InvalidSchemaException
+  {
+    IEntityJsonContext context = EntityJsonContext.newInstance();
+    
+    try
+    {
+      JsonNode schema = JSON_READER.readValue(content);
+      
+      if(requested)
+      {
+        EntityJsonSchemaCache.CachedSchema cachedSchema = new EntityJsonSchemaCache.CachedSchema((ObjectNode)schema, factory_.getJsonSchema(schema));
+        
+        if(schemaCache_ != null)
+          schemaCache_.put(url, null, cachedSchema);
+      }
+      
+      // References within a schema which has an id are resolved through the schema loader, so
+      // requested schemas are loaded there too, unless the loader would not be allowed to fetch them.
+      if(!requested || !isHttp(uri) || downloader_.isAllowed(uri))
+        factory_.getJsonSchema(locator);
+      
+      return getReferences(url, schema);
+    }
+    catch (IOException | ProcessingException | ClassCastException e)
+    {
+      throw new InvalidSchemaException(context, e);
+    }
+  }
+  
+  /**
+   * Return the documents referenced by $ref in the given schema, other than the schema itself
+   * and the built in meta-schemas.
+   */
+  private static List<URL> getReferences(URL url, JsonNode schema)
+  {
+    List<URL> refs = new ArrayList<>();
+    
+    try
+    {
+      URI      base = url.toURI();
+      JsonNode id = schema.get("id");
+      
+      if(id != null && id.isTextual())
+        base = base.resolve(id.asText());
+      
+      addReferences(base, schema, refs);
+    }
+    catch (URISyntaxException | IllegalArgumentException e)
+    {
+      // The schema cannot be resolved against, it will fail validation when used
+    }
+    
+    return refs;
+  }
+  
+  private static void addReferences(URI base, JsonNode node, List<URL> refs)
+  {
+    if(node.isObject())
+    {
+      JsonNode ref = node.get("$ref");
+      
+      if(ref != null && ref.isTextual())
+      {
+        try
+        {
+          URI uri = base.resolve(ref.asText());
+          
+          if(!getLocator(uri).equals(getLocator(base)) && !"json-schema.org".equalsIgnoreCase(uri.getHost()))
+            refs.add(new URL(getLocator(uri)));
+        }
+        catch (IllegalArgumentException | MalformedURLException e)
+        {
+          // Not a loadable reference, it will fail validation when used
+        }
+      }
+    }
+    
+    for(JsonNode child : node)
+      addReferences(base, child, refs);
+  }
+  
+  private static String getLocator(URL url)
+  {
+    return getLocator(url.toExternalForm());
+  }
+  
+  private static String getLocator(URI uri)
+  {
+    return getLocator(uri.toString());
+  }
+  
+  private static String getLocator(String uri)
+  {
+    int i = uri.indexOf('#');
+    
+    return i == -1 ? uri : uri.substring(0, i);
+  }
+  
+  private static boolean isHttp(URI uri)
+  {
+    return "http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme());
+  }
+  
+  private static byte[] readFully(InputStream in) throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[]                buf = new byte[8192];
+    int                   n;
+    
+    while((n = in.read(buf)) != -1)
+      out.write(buf, 0, n);
+    
+    return out.toByteArray();
+  }
+  
   /**
    * Parse an EntityJSON instance from the given URL.
    * 
@@ -172,6 +569,88 @@ public class EntityJsonParser
     }
   }
   
+  /**
+   * Parse an EntityJSON instance from the given bytes.
+   * 
+   * Callers may prefer to catch EntityJSONException and treat all failures in the same way.
+   * 
+   * @param instanceSource  An object describing the source of the instance, typically an instance
+   * of java.net.URL or java.io.File.
+   * @param instance        A byte array containing the JSON representation of an EntityJSON instance, in UTF-8, UTF-16 or UTF-32.
+   * 
+   * @return  An EntityJSON instance.
+   * 
+   * @throws SchemaValidationException  If the given instance does not meet the general EntityJSON schema.
+   * @throws InvalidInstanceException   If the given instance is structurally invalid.
+   */
+  public EntityJson parseEntityJson(Object instanceSource, byte[] instance) throws SchemaValidationException, InvalidInstanceException
+  {
+    try
+    {
+      return new EntityJson(validate(ENTITY_JSON_SCHEMA_URL, instanceSource, instance));
+    }
+    catch (NoSchemaException | InvalidSchemaException e)
+    {
+      // In theory this cannot happen
+      throw new RuntimeException(e);
+    }
+  }
+  
+  /**
+   * Parse an EntityJSON instance from the given stream.
+   * 
+   * Callers may prefer to catch EntityJSONException and treat all failures in the same way.
+   * 
+   * @param instanceSource  An object describing the source of the instance, typically an instance
+   * of java.net.URL or java.io.File.
+   * @param instanceStream  A stream containing the JSON representation of an EntityJSON instance, in UTF-8, UTF-16 or UTF-32.
+   * The stream is read to the end of the instance and closed.
+   * 
+   * @return  An EntityJSON instance.
+   * 
+   * @throws SchemaValidationException  If the given instance does not meet the general EntityJSON schema.
+   * @throws InvalidInstanceException   If the given instance is structurally invalid.
+   */
+  public EntityJson parseEntityJson(Object instanceSource, InputStream instanceStream) throws SchemaValidationException, InvalidInstanceException
+  {
+    try
+    {
+      return new EntityJson(validate(ENTITY_JSON_SCHEMA_URL, instanceSource, instanceStream));
+    }
+    catch (NoSchemaException | InvalidSchemaException e)
+    {
+      // In theory this cannot happen
+      throw new RuntimeException(e);
+    }
+  }
+  
+  /**
+   * Parse an EntityJSON instance from the given JSON node.
+   * 
+   * Callers may prefer to catch EntityJSONException and treat all failures in the same way.
+   * 
+   * @param instanceSource  An object describing the source of the instance, typically an instance
+   * of java.net.URL or java.io.File.
+   * @param instance        A parsed JSON representation of an EntityJSON instance, which must be an object.
+   * 
+   * @return  An EntityJSON instance.
+   * 
+   * @throws SchemaValidationException  If the given instance does not meet the general EntityJSON schema.
+   * @throws InvalidInstanceException   If the given instance is structurally invalid.
+   */
+  public EntityJson parseEntityJson(Object instanceSource, JsonNode instance) throws SchemaValidationException, InvalidInstanceException
+  {
+    try
+    {
+      return new EntityJson(validate(ENTITY_JSON_SCHEMA_URL, instanceSource, instance));
+    }
+    catch (NoSchemaException | InvalidSchemaException e)
+    {
+      // In theory this cannot happen
+      throw new RuntimeException(e);
+    }
+  }
+  
   /**
    * Parse a single StructuredObject instance from the given URL.
    * 
@@ -251,6 +730,88 @@ public class EntityJsonParser
     }
   }
   
+  /**
+   * Parse a single StructuredObject instance from the given bytes.
+   * 
+   * Callers may prefer to catch EntityJSONException and treat all failures in the same way.
+   * 
+   * @param instanceSource  An object describing the source of the instance, typically an instance
+   * of java.net.URL or java.io.File.
+   * @param instance        A byte array containing the JSON representation of a single StructuredObject instance, in UTF-8, UTF-16 or UTF-32.
+   * 
+   * @return  A StructuredObject instance.
+   * 
+   * @throws SchemaValidationException  If the given instance does not meet the general EntityJSON schema.
+   * @throws InvalidInstanceException   If the given instance is structurally invalid.
+   */
+  public StructuredObject parseStructuredObject(Object instanceSource, byte[] instance) throws SchemaValidationException, InvalidInstanceException
+  {
+    try
+    {
+      return new StructuredObject(validate(STRUCTURED_OBJECT_SCHEMA_URL, instanceSource, instance));
+    }
+    catch (NoSchemaException | InvalidSchemaException e)
+    {
+      // In theory this cannot happen
+      throw new RuntimeException(e);
+    }
+  }
+  
+  /**
+   * Parse a single StructuredObject instance from the given stream.
+   * 
+   * Callers may prefer to catch EntityJSONException and treat all failures in the same way.
+   * 
+   * @param instanceSource  An object describing the source of the instance, typically an instance
+   * of java.net.URL or java.io.File.
+   * @param instanceStream  A stream containing the JSON representation of a single StructuredObject instance, in UTF-8, UTF-16 or UTF-32.
+   * The stream is read to the end of the instance and closed.
+   * 
+   * @return  A StructuredObject instance.
+   * 
+   * @throws SchemaValidationException  If the given instance does not meet the general EntityJSON schema.
+   * @throws InvalidInstanceException   If the given instance is structurally invalid.
+   */
+  public StructuredObject parseStructuredObject(Object instanceSource, InputStream instanceStream) throws SchemaValidationException, InvalidInstanceException
+  {
+    try
+    {
+      return new StructuredObject(validate(STRUCTURED_OBJECT_SCHEMA_URL, instanceSource, instanceStream));
+    }
+    catch (NoSchemaException | InvalidSchemaException e)
+    {
+      // In theory this cannot happen
+      throw new RuntimeException(e);
+    }
+  }
+  
+  /**
+   * Parse a single StructuredObject instance from the given JSON node.
+   * 
+   * Callers may prefer to catch EntityJSONException and treat all failures in the same way.
+   * 
+   * @param instanceSource  An object describing the source of the instance, typically an instance
+   * of java.net.URL or java.io.File.
+   * @param instance        A parsed JSON representation of a single StructuredObject instance, which must be an object.
+   * 
+   * @return  A StructuredObject instance.
+   * 
+   * @throws SchemaValidationException  If the given instance does not meet the general EntityJSON schema.
+   * @throws InvalidInstanceException   If the given instance is structurally invalid.
+   */
+  public StructuredObject parseStructuredObject(Object instanceSource, JsonNode instance) throws SchemaValidationException, InvalidInstanceException
+  {
+    try
+    {
+      return new StructuredObject(validate(STRUCTURED_OBJECT_SCHEMA_URL, instanceSource, instance));
+    }
+    catch (NoSchemaException | InvalidSchemaException e)
+    {
+      // In theory this cannot happen
+      throw new RuntimeException(e);
+    }
+  }
+  
   /* package */ IEntityJsonSchemaContext validate(Object schemaSource, ObjectNode schema, Object instanceSource, ObjectNode instance) throws SchemaValidationException
   {
     return validate(EntityJsonContext.newInstance()
@@ -261,10 +822,13 @@ public class EntityJsonParser
   
   /* package */ IEntityJsonSchemaContext validate(URL schemaUrl, Object instanceSource, ObjectNode instance) throws SchemaValidationException, NoSchemaException, InvalidSchemaException
   {
-    IEntityJsonInstanceContext context = EntityJsonContext.newInstance()
-        .withInstance(instanceSource, instance);
-    
-    return validate(context.withSchema(schemaUrl, getSchemaJsonNode(context, schemaUrl)));
+    return validate(schemaUrl, (String)null, instanceSource, instance);
+  }
+  
+  /* package */ IEntityJsonSchemaContext validate(URL schemaUrl, @Nullable String schemaVersion, Object instanceSource, ObjectNode instance) throws SchemaValidationException, NoSchemaException, InvalidSchemaException
+  {
+    return validate(EntityJsonContext.newInstance()
+        .withInstance(instanceSource, instance), schemaUrl, schemaVersion);
   }
   
   /* package */ IEntityJsonSchemaContext validate(URL schemaUrl, URL instanceUrl) throws SchemaValidationException, InvalidInstanceException, NoSchemaException, InvalidSchemaException
@@ -272,8 +836,7 @@ public class EntityJsonParser
     IEntityJsonContext context = EntityJsonContext.newInstance();
     
     return validate(context
-        .withInstance(instanceUrl, getInstanceJsonNode(context, instanceUrl))
-        .withSchema(schemaUrl, getSchemaJsonNode(context, schemaUrl)));
+        .withInstance(instanceUrl, getInstanceJsonNode(context, instanceUrl)), schemaUrl, null);
   }
   
   /* package */ IEntityJsonSchemaContext validate(URL schemaUrl, Object instanceSource, Reader in) throws SchemaValidationException, InvalidInstanceException, NoSchemaException, InvalidSchemaException
@@ -281,16 +844,74 @@ public class EntityJsonParser
     IEntityJsonContext context = EntityJsonContext.newInstance();
     
     return validate(context
-        .withInstance(instanceSource, getInstanceJsonNode(context, in))
-        .withSchema(schemaUrl, getSchemaJsonNode(context, schemaUrl)));
+        .withInstance(instanceSource, getInstanceJsonNode(context, in)), schemaUrl, null);
+  }
+  
+  /* package */ IEntityJsonSchemaContext validate(URL schemaUrl, Object instanceSource, InputStream in) throws SchemaValidationException, InvalidInstanceException, NoSchemaException, InvalidSchemaException
+  {
+    IEntityJsonContext context = EntityJsonContext.newInstance();
+    
+    return validate(context
+        .withInstance(instanceSource, getInstanceJsonNode(context, in)), schemaUrl, null);
+  }
+  
+  /* package */ IEntityJsonSchemaContext validate(URL schemaUrl, Object instanceSource, byte[] in) throws SchemaValidationException, InvalidInstanceException, NoSchemaException, InvalidSchemaException
+  {
+    IEntityJsonContext context = EntityJsonContext.newInstance();
+    
+    return validate(context
+        .withInstance(instanceSource, getInstanceJsonNode(context, in)), schemaUrl, null);
+  }
+  
+  /* package */ IEntityJsonSchemaContext validate(URL schemaUrl, Object instanceSource, JsonNode instance) throws SchemaValidationException, InvalidInstanceException, NoSchemaException, InvalidSchemaException
+  {
+    IEntityJsonContext context = EntityJsonContext.newInstance();
+    
+    return validate(context
+        .withInstance(instanceSource, getInstanceJsonNode(context, instance)), schemaUrl, null);
   }
   
   private IEntityJsonSchemaContext validate(IEntityJsonSchemaContext context) throws SchemaValidationException
   {  
     try
     {
-      ProcessingReport validationResult = factory_.getJsonSchema(context.getSchemaJsonNode())
-          .validate(context.getInstanceJsonNode(), true);
+      return validate(context, factory_.getJsonSchema(context.getSchemaJsonNode()));
+    }
+    catch(ProcessingException e)
+    {
+      throw new SchemaValidationException(context, e);
+    }
+  }
+  
+  private IEntityJsonSchemaContext validate(IEntityJsonInstanceContext context, URL schemaUrl, @Nullable String schemaVersion) throws SchemaValidationException, NoSchemaException, InvalidSchemaException
+  {
+    EntityJsonSchemaCache.CachedSchema cachedSchema = schemaCache_ == null ? null : schemaCache_.get(schemaUrl, schemaVersion);
+    
+    if(cachedSchema == null)
+    {
+      IEntityJsonSchemaContext schemaContext = context.withSchema(schemaUrl, getSchemaJsonNode(context, schemaUrl));
+      
+      try
+      {
+        cachedSchema = new EntityJsonSchemaCache.CachedSchema(schemaContext.getSchemaJsonNode(), factory_.getJsonSchema(schemaContext.getSchemaJsonNode()));
+      }
+      catch(ProcessingException e)
+      {
+        throw new SchemaValidationException(schemaContext, e);
+      }
+      
+      if(schemaCache_ != null)
+        schemaCache_.put(schemaUrl, schemaVersion, cachedSchema);
+    }
+    
+    return validate(context.withSchema(schemaUrl, cachedSchema.getSchemaJsonNode()), cachedSchema.getSchema());
+  }
+  
+  private IEntityJsonSchemaContext validate(IEntityJsonSchemaContext context, JsonSchema schema) throws SchemaValidationException
+  {  
+    try
+    {
+      ProcessingReport validationResult = schema.validate(context.getInstanceJsonNode(), true);
       
       context.withValidationResult(validationResult);
       
@@ -309,10 +930,9 @@ public class EntityJsonParser
   
   private ObjectNode getSchemaJsonNode(IEntityJsonContext context, URL url) throws NoSchemaException, InvalidSchemaException
   {
-    try(Reader in = getSchemaReader(context, url))
+    try(InputStream in = getSchemaStream(context, url))
     {
-      ObjectMapper mapper = new ObjectMapper();
-      return (ObjectNode)mapper.readTree(in);
+      return (ObjectNode)JSON_READER.readValue(in);
     }
     catch (IOException | ClassCastException e)
     {
@@ -320,11 +940,15 @@ public class EntityJsonParser
     }
   }
   
-  private Reader getSchemaReader(IEntityJsonContext context, URL url) throws NoSchemaException, InvalidSchemaException
+  private InputStream getSchemaStream(IEntityJsonContext context, URL url) throws NoSchemaException, InvalidSchemaException
   {
     try
     {
-      return new InputStreamReader(url.openStream(), StandardCharsets.UTF_8);
+      return schemaResolver_.open(url.toURI());
+    }
+    catch (URISyntaxException e)
+    {
+      throw new NoSchemaException(context, e);
     }
     catch (FileNotFoundException e)
     {
@@ -338,7 +962,7 @@ public class EntityJsonParser
   
   private ObjectNode getInstanceJsonNode(IEntityJsonContext context, URL url) throws InvalidInstanceException
   {
-    try(Reader in = getInstanceReader(context, url))
+    try(InputStream in = getInstanceStream(context, url))
     {
       return getInstanceJsonNode(context, in);
     }
@@ -352,8 +976,7 @@ public class EntityJsonParser
   {
     try
     {
-      ObjectMapper mapper = new ObjectMapper();
-      return (ObjectNode)mapper.readTree(in);
+      return (ObjectNode)JSON_READER.readValue(in);
     }
     catch (IOException | ClassCastException e)
     {
@@ -361,13 +984,45 @@ public class EntityJsonParser
     }
   }
   
-  private Reader getInstanceReader(IEntityJsonContext context, URL url) throws InvalidInstanceException
+  private ObjectNode getInstanceJsonNode(IEntityJsonContext context, InputStream in) throws InvalidInstanceException
   {
     try
     {
-      return new InputStreamReader(url.openStream(), StandardCharsets.UTF_8);
+      return (ObjectNode)JSON_READER.readValue(in);
     }
-    catch (IOException e)
+    catch (IOException | ClassCastException e)
+    {
+      throw new InvalidInstanceException(context, e);
+    }
+  }
+  
+  private ObjectNode getInstanceJsonNode(IEntityJsonContext context, byte[] in) throws InvalidInstanceException
+  {
+    try
+    {
+      return (ObjectNode)JSON_READER.readValue(in);
+    }
+    catch (IOException | ClassCastException e)
+    {
+      throw new InvalidInstanceException(context, e);
+    }
+  }
+  
+  private ObjectNode getInstanceJsonNode(IEntityJsonContext context, JsonNode instance) throws InvalidInstanceException
+  {
+    if(instance instanceof ObjectNode)
+      return (ObjectNode)instance;
+    
+    throw new InvalidInstanceException(context, "Instance is not a JSON object.");
+  }
+  
+  private InputStream getInstanceStream(IEntityJsonContext context, URL url) throws InvalidInstanceException
+  {
+    try
+    {
+      return schemaResolver_.open(url.toURI());
+    }
+    catch (IOException | URISyntaxException e)
     {
       throw new InvalidInstanceException(context, e);
     }
@@ -23,6 +23,14 @@
 
 package org.symphonyoss.symphony.entityjson;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.symphony.entityjson.EntityJsonSchemaResolver.Source;
+
 /**
  * Builder for EntityJsonParser.
  * 
@@ -33,7 +41,11 @@ package org.symphonyoss.symphony.entityjson;
  */
 public class EntityJsonParserBuilder
 {
-  private boolean unrestrictedSchemaLoad_;
+  private boolean                   unrestrictedSchemaLoad_;
+  private int                       schemaCacheSize_ = EntityJsonSchemaCache.DEFAULT_MAX_SIZE;
+  private List<Source>              schemaSources_ = EntityJsonSchemaResolver.DEFAULT_SOURCES;
+  private File                      schemaDirectory_;
+  private EntityJsonSchemaDiskCache schemaDiskCache_;
   
   /**
    * @return The current value of the UnrestrictedSchemaLoad parameter.
@@ -56,6 +68,106 @@ public class EntityJsonParserBuilder
     return this;
   }
   
+  /**
+   * @return The current value of the SchemaCacheSize parameter.
+   */
+  public int getSchemaCacheSize()
+  {
+    return schemaCacheSize_;
+  }
+  
+  /**
+   * Set the maximum number of compiled schemas held by the parser. Schemas are loaded from their
+   * URL and compiled on first use and reused for all subsequent validations until evicted or
+   * invalidated through EntityJsonParser.getSchemaCache(). Defaults to
+   * EntityJsonSchemaCache.DEFAULT_MAX_SIZE, a value of zero disables caching.
+   * 
+   * @param schemaCacheSize The maximum number of cached schemas, or zero to disable caching.
+   * @return this (fluent interface)
+   * 
+   * @throws IllegalArgumentException if schemaCacheSize is negative.
+   */
+  public EntityJsonParserBuilder withSchemaCacheSize(int schemaCacheSize)
+  {
+    if(schemaCacheSize < 0)
+      throw new IllegalArgumentException("schemaCacheSize may not be negative.");
+    
+    schemaCacheSize_ = schemaCacheSize;
+    return this;
+  }
+  
+  /**
+   * @return The current value of the SchemaSources parameter.
+   */
+  public List<Source> getSchemaSources()
+  {
+    return schemaSources_;
+  }
+  
+  /**
+   * Set the sources from which schemas are loaded and the order in which they are consulted.
+   * Defaults to EntityJsonSchemaResolver.DEFAULT_SOURCES, schemas on the classpath, then the
+   * schema directory if any, then the network. Omitting Source.NETWORK allows validation without
+   * network access, provided that the application supplies every schema it needs, since this
+   * library bundles none.
+   * 
+   * @param sources The sources to consult, in order.
+   * @return this (fluent interface)
+   * 
+   * @throws IllegalArgumentException if no sources are given.
+   */
+  public EntityJsonParserBuilder withSchemaSources(Source ...sources)
+  {
+    if(sources.length == 0)
+      throw new IllegalArgumentException("At least one schema source is required.");
+    
+    schemaSources_ = Arrays.asList(sources.clone());
+    return this;
+  }
+  
+  /**
+   * @return The current value of the SchemaDirectory parameter.
+   */
+  public @Nullable File getSchemaDirectory()
+  {
+    return schemaDirectory_;
+  }
+  
+  /**
+   * Set a local directory holding copies of schemas, consulted as Source.DIRECTORY. A schema with
+   * the URI https://host/path is read from the file host/path under this directory.
+   * 
+   * @param schemaDirectory The schema directory, or null for none.
+   * @return this (fluent interface)
+   */
+  public EntityJsonParserBuilder withSchemaDirectory(@Nullable File schemaDirectory)
+  {
+    schemaDirectory_ = schemaDirectory;
+    return this;
+  }
+  
+  /**
+   * @return The current value of the SchemaDiskCache parameter.
+   */
+  public @Nullable EntityJsonSchemaDiskCache getSchemaDiskCache()
+  {
+    return schemaDiskCache_;
+  }
+  
+  /**
+   * Set a persistent cache for schemas loaded from the network, so that they are downloaded once
+   * and served from disk thereafter, including after a restart, while being revalidated in the
+   * background once they reach the maximum age of the cache.
+   * 
+   * @param schemaDiskCache The disk cache, or null for none.
+   * @return this (fluent interface)
+   */
+  public EntityJsonParserBuilder withSchemaDiskCache(@Nullable EntityJsonSchemaDiskCache schemaDiskCache)
+  {
+    schemaDiskCache_ = schemaDiskCache;
+    return this;
+  }
+  
   /**
    * Create a parser from the current state of this builder.
    * 
@@ -63,6 +175,7 @@ public class EntityJsonParserBuilder
    */
   EntityJsonParser  build()
   {
-    return new EntityJsonParser(unrestrictedSchemaLoad_);
+    return new EntityJsonParser(unrestrictedSchemaLoad_, schemaCacheSize_,
+        new EntityJsonSchemaResolver(schemaSources_, schemaDirectory_, schemaDiskCache_));
   }
 }
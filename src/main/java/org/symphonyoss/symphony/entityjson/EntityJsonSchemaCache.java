@@ -0,0 +1,274 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.entityjson;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jsonschema.main.JsonSchema;
+
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+/**
+ * A bounded, thread safe cache of compiled schemas, keyed by schema URL and version.
+ * 
+ * Each EntityJsonParser holds one of these so that the schema for a given URL is read, parsed and
+ * compiled once rather than for every instance validated against it. When the cache is full the
+ * least recently used schema is evicted.
+ * 
+ * Schemas cached without a version, such as those loaded by EntityJsonParser.preload(), are used
+ * for any version of their URL which has no entry of its own.
+ * 
+ * URLs are compared by their external form, since java.net.URL.equals() may resolve host names.
+ */
+public class EntityJsonSchemaCache
+{
+  /** The default maximum number of schemas held by a parser. */
+  public static final int DEFAULT_MAX_SIZE = 100;
+  
+  private final int                       maxSize_;
+  private final Map<Key, CachedSchema>    map_;
+  
+  private long                            hitCount_;
+  private long                            missCount_;
+  private long                            evictionCount_;
+  
+  /**
+   * Constructor.
+   * 
+   * @param maxSize The maximum number of schemas to hold.
+   * 
+   * @throws IllegalArgumentException if maxSize is not positive.
+   */
+  public EntityJsonSchemaCache(int maxSize)
+  {
+    if(maxSize < 1)
+      throw new IllegalArgumentException("maxSize must be positive.");
+    
+    maxSize_ = maxSize;
+    map_ = new LinkedHashMap<Key, CachedSchema>(16, 0.75f, true)
+    {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, CachedSchema> eldest)
+      {
+        if(size() > maxSize_)
+        {
+          evictionCount_++;
+          return true;
+        }
+        
+        return false;
+      }
+    };
+  }
+  
+  /**
+   * Return the cached schema for the given URL and version.
+   * 
+   * @param schemaUrl The URL from which the schema was loaded.
+   * @param version   The version of the schema, may be null.
+   * 
+   * @return The cached schema for the given version, or failing that for no version, or null if there is none.
+   */
+  /* package */ synchronized @Nullable CachedSchema get(URL schemaUrl, @Nullable String version)
+  {
+    CachedSchema schema = map_.get(new Key(schemaUrl, version));
+    
+    if(schema == null && version != null)
+      schema = map_.get(new Key(schemaUrl, null));
+    
+    if(schema == null)
+      missCount_++;
+    else
+      hitCount_++;
+    
+    return schema;
+  }
+  
+  /**
+   * Add a compiled schema to the cache, evicting the least recently used schema if the cache is full.
+   * 
+   * @param schemaUrl The URL from which the schema was loaded.
+   * @param version   The version of the schema, may be null.
+   * @param schema    The compiled schema.
+   */
+  /* package */ synchronized void put(URL schemaUrl, @Nullable String version, CachedSchema schema)
+  {
+    map_.put(new Key(schemaUrl, version), schema);
+  }
+  
+  /**
+   * Remove every version of the schema loaded from the given URL, so that the next validation
+   * against it reloads the schema.
+   * 
+   * @param schemaUrl The URL from which the schema was loaded.
+   * 
+   * @return The number of schemas removed.
+   */
+  public synchronized int invalidate(URL schemaUrl)
+  {
+    String url = schemaUrl.toExternalForm();
+    int    count = 0;
+    
+    for(Iterator<Key> it = map_.keySet().iterator() ; it.hasNext() ; )
+    {
+      if(it.next().url_.equals(url))
+      {
+        it.remove();
+        count++;
+      }
+    }
+    
+    return count;
+  }
+  
+  /**
+   * Remove the given version of the schema loaded from the given URL.
+   * 
+   * @param schemaUrl The URL from which the schema was loaded.
+   * @param version   The version of the schema, may be null.
+   * 
+   * @return true if a schema was removed.
+   */
+  public synchronized boolean invalidate(URL schemaUrl, @Nullable String version)
+  {
+    return map_.remove(new Key(schemaUrl, version)) != null;
+  }
+  
+  /**
+   * Remove all schemas from the cache.
+   */
+  public synchronized void invalidateAll()
+  {
+    map_.clear();
+  }
+  
+  /**
+   * @return The maximum number of schemas held by this cache.
+   */
+  public int getMaxSize()
+  {
+    return maxSize_;
+  }
+  
+  /**
+   * @return The number of schemas currently held by this cache.
+   */
+  public synchronized int getSize()
+  {
+    return map_.size();
+  }
+
+  /**
+   * @return The number of lookups which found a cached schema.
+   */
+  public synchronized long getHitCount()
+  {
+    return hitCount_;
+  }
+
+  /**
+   * @return The number of lookups which did not find a cached schema.
+   */
+  public synchronized long getMissCount()
+  {
+    return missCount_;
+  }
+
+  /**
+   * @return The number of schemas evicted to make room for others.
+   */
+  public synchronized long getEvictionCount()
+  {
+    return evictionCount_;
+  }
+  
+  @Override
+  public synchronized String toString()
+  {
+    return "EntityJsonSchemaCache size=" + map_.size() + " maxSize=" + maxSize_ + " hits=" + hitCount_
+        + " misses=" + missCount_ + " evictions=" + evictionCount_;
+  }
+  
+  /**
+   * A schema as read from its URL together with its compiled form.
+   */
+  /* package */ static class CachedSchema
+  {
+    private final ObjectNode schemaJsonNode_;
+    private final JsonSchema schema_;
+    
+    /* package */ CachedSchema(ObjectNode schemaJsonNode, JsonSchema schema)
+    {
+      schemaJsonNode_ = schemaJsonNode;
+      schema_ = schema;
+    }
+
+    /* package */ ObjectNode getSchemaJsonNode()
+    {
+      return schemaJsonNode_;
+    }
+
+    /* package */ JsonSchema getSchema()
+    {
+      return schema_;
+    }
+  }
+  
+  private static class Key
+  {
+    private final String url_;
+    private final String version_;
+    
+    private Key(URL url, @Nullable String version)
+    {
+      url_ = url.toExternalForm();
+      version_ = version;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(url_, version_);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if(!(obj instanceof Key))
+        return false;
+      
+      Key other = (Key)obj;
+      
+      return url_.equals(other.url_) && Objects.equals(version_, other.version_);
+    }
+  }
+}
@@ -0,0 +1,381 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.entityjson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.annotation.Nullable;
+
+/**
+ * A persistent cache of schemas downloaded from the network.
+ * 
+ * Each schema is stored in the cache directory under the same host/path layout used by
+ * EntityJsonSchemaResolver for a local schema directory, together with a metadata file recording
+ * when it was fetched and its ETag and Last-Modified headers. Cached schemas are served from disk,
+ * including after a restart. Once a cached schema is older than the maximum age it is still
+ * served but is revalidated in the background with a conditional request, and replaced if it has
+ * changed. If revalidation fails the cached copy is kept and revalidation is retried once the
+ * maximum age has elapsed again.
+ * 
+ * Thread safe. Several instances may share a directory, files are replaced atomically.
+ */
+public class EntityJsonSchemaDiskCache
+{
+  /** The default age after which a cached schema is revalidated. */
+  public static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(24);
+  
+  /* package */ static final String METADATA_SUFFIX = ".metadata";
+  /* package */ static final String URL = "url";
+  /* package */ static final String FETCH_TIME = "fetchTime";
+  /* package */ static final String CHECK_TIME = "checkTime";
+  /* package */ static final String ETAG = "etag";
+  /* package */ static final String LAST_MODIFIED = "lastModified";
+  
+  private static final int             TIMEOUT_MILLIS = 30000;
+  private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool((r) ->
+  {
+    Thread thread = new Thread(r, "EntityJsonSchemaDiskCache");
+    thread.setDaemon(true);
+    return thread;
+  });
+  
+  private final File         directory_;
+  private final long         maxAgeMillis_;
+  private final Executor     executor_;
+  private final LongSupplier clock_;
+  private final Set<String>  revalidating_ = ConcurrentHashMap.newKeySet();
+  
+  /**
+   * Constructor, cached schemas are revalidated after DEFAULT_MAX_AGE_MILLIS.
+   * 
+   * @param directory The cache directory, created if it does not exist.
+   */
+  public EntityJsonSchemaDiskCache(File directory)
+  {
+    this(directory, DEFAULT_MAX_AGE_MILLIS, TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param directory The cache directory, created if it does not exist.
+   * @param maxAge    The age after which a cached schema is revalidated.
+   * @param unit      The unit of maxAge.
+   */
+  public EntityJsonSchemaDiskCache(File directory, long maxAge, TimeUnit unit)
+  {
+    this(directory, maxAge, unit, DEFAULT_EXECUTOR);
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param directory The cache directory, created if it does not exist.
+   * @param maxAge    The age after which a cached schema is revalidated.
+   * @param unit      The unit of maxAge.
+   * @param executor  The executor on which revalidation is performed.
+   */
+  public EntityJsonSchemaDiskCache(File directory, long maxAge, TimeUnit unit, Executor executor)
+  {
+    this(directory, maxAge, unit, executor, System::currentTimeMillis);
+  }
+  
+  /* package */ EntityJsonSchemaDiskCache(File directory, long maxAge, TimeUnit unit, Executor executor, LongSupplier clock)
+  {
+    if(maxAge < 0)
+      throw new IllegalArgumentException("maxAge may not be negative.");
+    
+    directory_ = directory;
+    maxAgeMillis_ = unit.toMillis(maxAge);
+    executor_ = executor;
+    clock_ = clock;
+  }
+
+  /**
+   * @return The cache directory.
+   */
+  public File getDirectory()
+  {
+    return directory_;
+  }
+
+  /**
+   * @return The age in milliseconds after which a cached schema is revalidated.
+   */
+  public long getMaxAgeMillis()
+  {
+    return maxAgeMillis_;
+  }
+  
+  /**
+   * Open the schema with the given URI from the cache, downloading it if it is not cached.
+   * 
+   * @param source  The URI of the schema.
+   * 
+   * @return  A stream of the schema content.
+   * 
+   * @throws FileNotFoundException  If the schema is not cached and does not exist.
+   * @throws IOException            If the schema is not cached and cannot be downloaded.
+   */
+  public InputStream open(URI source) throws IOException
+  {
+    String path = EntityJsonSchemaResolver.getPath(source);
+    
+    if(path == null)
+      return source.toURL().openStream();
+    
+    File        file = new File(directory_, path);
+    Properties  metadata = readMetadata(file);
+    
+    if(metadata != null && file.isFile())
+    {
+      byte[] content = Files.readAllBytes(file.toPath());
+      
+      if(isStale(metadata))
+        revalidateLater(source, path, file, metadata);
+      
+      return new ByteArrayInputStream(content);
+    }
+    
+    return new ByteArrayInputStream(fetch(source, file, null));
+  }
+  
+  private boolean isStale(Properties metadata)
+  {
+    try
+    {
+      return Long.parseLong(metadata.getProperty(CHECK_TIME, "0")) + maxAgeMillis_ <= clock_.getAsLong();
+    }
+    catch(NumberFormatException e)
+    {
+      return true;
+    }
+  }
+  
+  private void revalidateLater(URI source, String path, File file, Properties metadata)
+  {
+    if(!revalidating_.add(path))
+      return;
+    
+    try
+    {
+      executor_.execute(() ->
+      {
+        try
+        {
+          fetch(source, file, metadata);
+        }
+        catch(IOException e)
+        {
+          // Keep serving the cached copy, try again when it is next found to be stale
+          metadata.setProperty(CHECK_TIME, Long.toString(clock_.getAsLong()));
+          
+          try
+          {
+            writeMetadata(file, metadata);
+          }
+          catch(IOException e2)
+          {
+            // The cached copy remains usable
+          }
+        }
+        finally
+        {
+          revalidating_.remove(path);
+        }
+      });
+    }
+    catch(RejectedExecutionException e)
+    {
+      revalidating_.remove(path);
+    }
+  }
+  
+  /**
+   * Download the given schema and store it in the cache.
+   * 
+   * @param source    The URI of the schema.
+   * @param file      The cache file for the schema.
+   * @param previous  The metadata of the cached copy to revalidate, or null if there is none.
+   * 
+   * @return  The downloaded schema, or null if the cached copy was still current.
+   * 
+   * @throws FileNotFoundException  If the schema does not exist.
+   * @throws IOException            If the schema cannot be downloaded or stored.
+   */
+  private @Nullable byte[] fetch(URI source, File file, @Nullable Properties previous) throws IOException
+  {
+    long              now = clock_.getAsLong();
+    HttpURLConnection connection = (HttpURLConnection)source.toURL().openConnection();
+    
+    connection.setConnectTimeout(TIMEOUT_MILLIS);
+    connection.setReadTimeout(TIMEOUT_MILLIS);
+    
+    if(previous != null)
+    {
+      if(previous.getProperty(ETAG) != null)
+        connection.setRequestProperty("If-None-Match", previous.getProperty(ETAG));
+      
+      if(previous.getProperty(LAST_MODIFIED) != null)
+        connection.setRequestProperty("If-Modified-Since", previous.getProperty(LAST_MODIFIED));
+    }
+    
+    int status = connection.getResponseCode();
+    
+    if(status == HttpURLConnection.HTTP_NOT_MODIFIED && previous != null)
+    {
+      previous.setProperty(CHECK_TIME, Long.toString(now));
+      writeMetadata(file, previous);
+      return null;
+    }
+    
+    if(status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE)
+      throw new FileNotFoundException("Schema " + source + " not found.");
+    
+    if(status != HttpURLConnection.HTTP_OK)
+      throw new IOException("HTTP status " + status + " fetching schema " + source);
+    
+    byte[] content;
+    
+    try(InputStream in = connection.getInputStream())
+    {
+      content = readFully(in);
+    }
+    
+    Properties metadata = new Properties();
+    
+    metadata.setProperty(URL, source.toString());
+    metadata.setProperty(FETCH_TIME, Long.toString(now));
+    metadata.setProperty(CHECK_TIME, Long.toString(now));
+    
+    if(connection.getHeaderField("ETag") != null)
+      metadata.setProperty(ETAG, connection.getHeaderField("ETag"));
+    
+    if(connection.getHeaderField("Last-Modified") != null)
+      metadata.setProperty(LAST_MODIFIED, connection.getHeaderField("Last-Modified"));
+    
+    write(file, content);
+    writeMetadata(file, metadata);
+    
+    return content;
+  }
+  
+  private static byte[] readFully(InputStream in) throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[]                buf = new byte[8192];
+    int                   n;
+    
+    while((n = in.read(buf)) != -1)
+      out.write(buf, 0, n);
+    
+    return out.toByteArray();
+  }
+  
+  /* package */ static @Nullable Properties readMetadata(File file)
+  {
+    File metadataFile = new File(file.getPath() + METADATA_SUFFIX);
+    
+    if(!metadataFile.isFile())
+      return null;
+    
+    Properties metadata = new Properties();
+    
+    try(InputStream in = Files.newInputStream(metadataFile.toPath()))
+    {
+      metadata.load(in);
+      return metadata;
+    }
+    catch(IOException | IllegalArgumentException e)
+    {
+      return null;
+    }
+  }
+  
+  private static void writeMetadata(File file, Properties metadata) throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    
+    metadata.store(out, null);
+    write(new File(file.getPath() + METADATA_SUFFIX), out.toByteArray());
+  }
+  
+  private static void write(File file, byte[] content) throws IOException
+  {
+    Path dir = file.getParentFile().toPath();
+    
+    Files.createDirectories(dir);
+    
+    Path tmp = Files.createTempFile(dir, file.getName(), ".tmp");
+    
+    try
+    {
+      try(OutputStream out = Files.newOutputStream(tmp))
+      {
+        out.write(content);
+      }
+      
+      try
+      {
+        Files.move(tmp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      }
+      catch(AtomicMoveNotSupportedException e)
+      {
+        Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    finally
+    {
+      Files.deleteIfExists(tmp);
+    }
+  }
+  
+  @Override
+  public String toString()
+  {
+    return "EntityJsonSchemaDiskCache directory=" + directory_ + " maxAgeMillis=" + maxAgeMillis_;
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.entityjson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+/**
+ * Resolves schema URIs to their content from an ordered list of sources: resources on the
+ * classpath, a local directory and the network.
+ * 
+ * A schema with the URI <code>https://host/path</code> is looked up as the classpath resource
+ * <code>RESOURCE_ROOT + host/path</code> and as the file <code>host/path</code> under the local
+ * directory, so that a directory can be populated by mirroring the schema hosts. A non default
+ * port is appended to the host name, as in <code>host_8080/path</code>. URIs with schemes other
+ * than http and https are always opened directly.
+ * 
+ * This library bundles no schemas, not even the EntityJSON, StructuredObject and JSON Schema
+ * meta-schemas it uses itself: a copy served in place of a published URL must match the published
+ * document exactly. Offline validation therefore requires the application to supply every schema
+ * it validates against, as resources under RESOURCE_ROOT or files in the schema directory. With
+ * the default sources, schemas which are not supplied are downloaded.
+ * 
+ * Schemas resolved from the network may be kept in an EntityJsonSchemaDiskCache, which is then
+ * consulted in place of the network.
+ * 
+ * Immutable and thread safe.
+ */
+public class EntityJsonSchemaResolver
+{
+  /**
+   * A source from which schemas can be resolved.
+   */
+  public enum Source
+  {
+    /** Schemas supplied by the application as classpath resources under RESOURCE_ROOT. */
+    CLASSPATH,
+    
+    /** Schemas stored in a local directory. */
+    DIRECTORY,
+    
+    /** Schemas downloaded from their URI, through the disk cache if there is one. */
+    NETWORK
+  }
+  
+  /** The classpath location of schemas supplied by the application. */
+  public static final String       RESOURCE_ROOT = "/org/symphonyoss/symphony/entityjson/schemas/";
+  
+  /** The default lookup order, schemas supplied by the application first and the network last. */
+  public static final List<Source> DEFAULT_SOURCES = Collections.unmodifiableList(
+      Arrays.asList(Source.CLASSPATH, Source.DIRECTORY, Source.NETWORK));
+  
+  private static final EntityJsonSchemaResolver DEFAULT = new EntityJsonSchemaResolver(DEFAULT_SOURCES, null);
+  
+  private final List<Source>              sources_;
+  private final File                      directory_;
+  private final EntityJsonSchemaDiskCache diskCache_;
+  
+  /**
+   * Constructor.
+   * 
+   * @param sources   The sources to consult, in order.
+   * @param directory The local schema directory, may be null in which case Source.DIRECTORY is skipped.
+   * 
+   * @throws IllegalArgumentException if sources is empty.
+   */
+  public EntityJsonSchemaResolver(List<Source> sources, @Nullable File directory)
+  {
+    this(sources, directory, null);
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param sources   The sources to consult, in order.
+   * @param directory The local schema directory, may be null in which case Source.DIRECTORY is skipped.
+   * @param diskCache The cache of schemas resolved from Source.NETWORK, may be null.
+   * 
+   * @throws IllegalArgumentException if sources is empty.
+   */
+  public EntityJsonSchemaResolver(List<Source> sources, @Nullable File directory, @Nullable EntityJsonSchemaDiskCache diskCache)
+  {
+    if(sources.isEmpty())
+      throw new IllegalArgumentException("At least one schema source is required.");
+    
+    sources_ = Collections.unmodifiableList(new ArrayList<>(sources));
+    directory_ = directory;
+    diskCache_ = diskCache;
+  }
+  
+  /**
+   * @return A resolver using the default sources and no local directory.
+   */
+  public static EntityJsonSchemaResolver getDefault()
+  {
+    return DEFAULT;
+  }
+  
+  /**
+   * @return The sources consulted by this resolver, in order.
+   */
+  public List<Source> getSources()
+  {
+    return sources_;
+  }
+
+  /**
+   * @return The local schema directory, or null if there is none.
+   */
+  public @Nullable File getDirectory()
+  {
+    return directory_;
+  }
+
+  /**
+   * @return The cache of schemas resolved from the network, or null if there is none.
+   */
+  public @Nullable EntityJsonSchemaDiskCache getDiskCache()
+  {
+    return diskCache_;
+  }
+
+  /**
+   * Open the schema with the given URI from the first source which has it.
+   * 
+   * @param source  The URI of the schema.
+   * 
+   * @return  A stream of the schema content, which the caller must close.
+   * 
+   * @throws FileNotFoundException  If no source has the schema.
+   * @throws IOException            If a source has the schema but it cannot be read.
+   */
+  public InputStream open(URI source) throws IOException
+  {
+    Objects.requireNonNull(source, "source may not be null.");
+    
+    String path = getPath(source);
+    
+    if(path == null)
+      return source.toURL().openStream();
+    
+    for(Source s : sources_)
+    {
+      InputStream in = open(s, source, path);
+      
+      if(in != null)
+        return in;
+    }
+    
+    throw new FileNotFoundException("Schema " + source + " not found in " + sources_);
+  }
+  
+  /**
+   * Open the schema with the given URI from the given source.
+   * 
+   * @param s       The source to consult.
+   * @param source  The URI of the schema.
+   * @param path    The relative path of the schema.
+   * 
+   * @return  A stream of the schema content or null if the source does not have it.
+   * 
+   * @throws IOException  If the source has the schema but it cannot be read.
+   */
+  /* package */ @Nullable InputStream open(Source s, URI source, String path) throws IOException
+  {
+    switch(s)
+    {
+      case CLASSPATH:
+        return EntityJsonSchemaResolver.class.getResourceAsStream(RESOURCE_ROOT + path);
+        
+      case DIRECTORY:
+        if(directory_ != null)
+        {
+          File file = new File(directory_, path);
+          
+          if(file.isFile())
+            return new FileInputStream(file);
+        }
+        return null;
+        
+      case NETWORK:
+        try
+        {
+          return diskCache_ != null ? diskCache_.open(source) : source.toURL().openStream();
+        }
+        catch(FileNotFoundException e)
+        {
+          return null;
+        }
+    }
+    
+    throw new IllegalStateException("Unknown schema source " + s);
+  }
+  
+  /**
+   * Return the path of the given schema relative to a schema repository, host name and port if
+   * any followed by the path of the URI.
+   * 
+   * @param source  The URI of the schema.
+   * 
+   * @return  The relative path, or null if the URI is not an http or https URI.
+   * 
+   * @throws FileNotFoundException  If the URI cannot be mapped to a path within a repository.
+   */
+  /* package */ static @Nullable String getPath(URI source) throws FileNotFoundException
+  {
+    String scheme = source.getScheme();
+    
+    if(!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme))
+      return null;
+    
+    String host = source.getHost();
+    String path = source.normalize().getPath();
+    
+    if(host == null || path == null || path.isEmpty() || path.endsWith("/"))
+      throw new FileNotFoundException("Schema URI " + source + " does not name a document.");
+    
+    for(String segment : path.split("/"))
+    {
+      if(segment.equals(".."))
+        throw new FileNotFoundException("Schema URI " + source + " is outside the schema repository.");
+    }
+    
+    if(source.getPort() != -1)
+      host = host + "_" + source.getPort();
+    
+    return host.toLowerCase() + path;
+  }
+  
+  @Override
+  public String toString()
+  {
+    return "EntityJsonSchemaResolver sources=" + sources_ + " directory=" + directory_ + " diskCache=" + diskCache_;
+  }
+}
@@ -32,15 +32,29 @@ import java.net.URI;
 /**
  * URIDownloader which restricts schema downloads to known hosts.
  * 
+ * Schemas are resolved by an EntityJsonSchemaResolver, so that schemas bundled on the classpath
+ * or held in a local directory are served without network access.
+ * 
  * @author Bruce Skingle
  *
  */
 public class EntityJsonURIDownloader implements URIDownloader
 {
-  private static final URIDownloader INSTANCE = new EntityJsonURIDownloader();
+  private static final URIDownloader INSTANCE = new EntityJsonURIDownloader(EntityJsonSchemaResolver.getDefault(), true);
 
-  private EntityJsonURIDownloader()
+  private final EntityJsonSchemaResolver resolver_;
+  private final boolean                  restrictHosts_;
+  
+  /**
+   * Constructor.
+   * 
+   * @param resolver      The resolver from which schemas are fetched.
+   * @param restrictHosts If true then only schemas from known hosts are fetched.
+   */
+  /* package */ EntityJsonURIDownloader(EntityJsonSchemaResolver resolver, boolean restrictHosts)
   {
+    resolver_ = resolver;
+    restrictHosts_ = restrictHosts;
   }
 
   /**
@@ -49,7 +63,7 @@ public class EntityJsonURIDownloader implements URIDownloader
    * This is merely a performance optimisation, this class does not rely on there being only
    * a single instance.
    * 
-   * @return The single instance.
+   * @return The single instance, which uses the default EntityJsonSchemaResolver.
    */
   public static URIDownloader getInstance()
   {
@@ -59,14 +73,35 @@ public class EntityJsonURIDownloader implements URIDownloader
   @Override
   public InputStream fetch(final URI source) throws IOException
   {
-    switch(source.getHost())
+    if(isAllowed(source))
+      return resolver_.open(source);
+    
+    throw new IOException("URI is from unrecognized host - aborted.");
+  }
+  
+  /**
+   * @param source  A schema URI.
+   * 
+   * @return true if this downloader will fetch the given URI.
+   */
+  /* package */ boolean isAllowed(URI source)
+  {
+    return !restrictHosts_ || isKnownHost(source.getHost());
+  }
+  
+  private static boolean isKnownHost(String host)
+  {
+    if(host == null)
+      return false;
+    
+    switch(host)
     {
       case "symphonyosf.github.io":
       case "object.symphonyoss.org":
       case "object.symphony.com":
-        return source.toURL().openStream();
+        return true;
     }
     
-    throw new IOException("URI is from unrecognized host - aborted.");
+    return false;
   }
-}
\ No newline at end of file
+}
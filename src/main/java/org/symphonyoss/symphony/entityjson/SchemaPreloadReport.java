@@ -0,0 +1,94 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.entityjson;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * The outcome of EntityJsonParser.preload(), the schemas which were loaded and compiled and those
+ * which could not be.
+ */
+public class SchemaPreloadReport
+{
+  private final Set<URL>                      loaded_;
+  private final Map<URL, EntityJsonException> failed_;
+  
+  /* package */ SchemaPreloadReport(Set<URL> loaded, Map<URL, EntityJsonException> failed)
+  {
+    loaded_ = Collections.unmodifiableSet(new LinkedHashSet<>(loaded));
+    failed_ = Collections.unmodifiableMap(new LinkedHashMap<>(failed));
+  }
+
+  /**
+   * @return The schemas which were loaded, the requested schemas followed by those they reference
+   * directly or indirectly, in the order in which they were discovered.
+   */
+  public Set<URL> getLoaded()
+  {
+    return loaded_;
+  }
+
+  /**
+   * @return The schemas which could not be loaded, with the reason for each. A NoSchemaException
+   * indicates that the schema does not exist.
+   */
+  public Map<URL, EntityJsonException> getFailed()
+  {
+    return failed_;
+  }
+  
+  /**
+   * @return true if every schema was loaded.
+   */
+  public boolean isSuccess()
+  {
+    return failed_.isEmpty();
+  }
+
+  @Override
+  public String toString()
+  {
+    StringBuffer s = new StringBuffer("SchemaPreloadReport loaded=");
+    
+    s.append(loaded_);
+    
+    for(Entry<URL, EntityJsonException> entry : failed_.entrySet())
+    {
+      s.append(" failed=\"");
+      s.append(entry.getKey());
+      s.append(": ");
+      s.append(entry.getValue());
+      s.append('"');
+    }
+    
+    return s.toString();
+  }
+}
@@ -158,7 +158,7 @@ public class StructuredObject
     
     try
     {
-      return parser.validate(new URL(ubuf.toString()), instanceSource_, jsonNode_);
+      return parser.validate(new URL(ubuf.toString()), version_, instanceSource_, jsonNode_);
     }
     catch (MalformedURLException e)
     {
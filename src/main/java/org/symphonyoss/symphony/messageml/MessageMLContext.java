@@ -18,20 +18,14 @@ package org.symphonyoss.symphony.messageml;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.apache.commons.lang3.StringUtils;
 import org.symphonyoss.symphony.messageml.elements.MessageML;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
-import org.symphonyoss.symphony.messageml.markdown.MarkdownParser;
-import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * The main entry point for parsing string message data in MessageML or Markdown formats and associated JSON entity
@@ -39,20 +33,41 @@ import java.io.IOException;
  *
  * To generate a messageML tree, use one of parseMessageML() or parseMarkdown(). Once the message has been parsed,
  * use one of the get() methods to retrieve the desired output format.
+ *
+ * A context holds the last parsed message and is not thread-safe. To share a parser between threads, use
+ * {@link MessageMLEngine} directly.
  * @author lukasz
  * @since 3/21/17
  */
 public class MessageMLContext {
 
-  private final MessageMLParser messageMLParser;
-  private final MarkdownParser markdownParser;
-  private MarkdownRenderer markdownRenderer;
-  private MessageML messageML;
-  private ObjectNode entityJson;
+  private final MessageMLEngine engine;
+  private final MessageMLResultCache cache;
+  private MessageMLResult result;
 
   public MessageMLContext(IDataProvider dataProvider) {
-    this.markdownParser = new MarkdownParser(dataProvider);
-    this.messageMLParser = new MessageMLParser(dataProvider);
+    this(new MessageMLEngine(dataProvider));
+  }
+
+  /**
+   * Create a context reporting the timings and counters of parsing and rendering messages, including the lookups of
+   * the data provider, to a listener.
+   */
+  public MessageMLContext(IDataProvider dataProvider, IMetricsListener listener) {
+    this(new MessageMLEngine(dataProvider, ParserLimits.NONE, listener));
+  }
+
+  public MessageMLContext(MessageMLEngine engine) {
+    this(engine, null);
+  }
+
+  /**
+   * Create a context reusing the results of MessageML messages parsed before, by this context or by any other
+   * context sharing the cache.
+   */
+  public MessageMLContext(MessageMLEngine engine, MessageMLResultCache cache) {
+    this.engine = engine;
+    this.cache = cache;
   }
 
   /**
@@ -69,9 +84,11 @@ public class MessageMLContext {
   public void parseMessageML(String message, String entityJson, String version) throws InvalidInputException, IOException,
       ProcessingException {
 
-    this.messageML = messageMLParser.parse(message, entityJson, version);
-    this.entityJson = messageMLParser.getEntityJson();
-    this.markdownRenderer = new MarkdownRenderer(messageML.asMarkdown());
+    if (cache != null) {
+      this.result = cache.parseMessageML(engine, message, entityJson, version);
+    } else {
+      this.result = engine.parseMessageML(message, entityJson, version);
+    }
   }
 
   /**
@@ -81,9 +98,7 @@ public class MessageMLContext {
    * @param entities additional entity data in JSON
    */
   public void parseMarkdown(String message, JsonNode entities, JsonNode media) throws InvalidInputException {
-    this.messageML = markdownParser.parse(message, entities, media);
-    this.entityJson = messageML.asEntityJson(this.entityJson);
-    this.markdownRenderer = new MarkdownRenderer(messageML.asMarkdown());
+    this.result = engine.parseMarkdown(message, entities, media);
   }
 
   /**
@@ -91,12 +106,7 @@ public class MessageMLContext {
    * @throws IllegalStateException thrown if the message hasn't been parsed yet
    */
   public MessageML getMessageML() throws IllegalStateException {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
-    }
-
-    return messageML;
+    return getResult().getMessageML();
   }
 
   /**
@@ -104,113 +114,110 @@ public class MessageMLContext {
    * @throws IllegalStateException thrown if the message hasn't been parsed yet
    */
   public String getPresentationML() throws IllegalStateException {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
-    }
-
-    ByteArrayOutputStream bout = new ByteArrayOutputStream();
-    XmlPrintStream out = new XmlPrintStream(bout);
-
-    out.setNoIndent(true);
-    out.setNoNl(true);
-
-    messageML.asPresentationML(out);
+    return getResult().getPresentationML();
+  }
 
-    out.close();
+  /**
+   * Write the message in PresentationML to an output stream in UTF-8. The stream is flushed but not closed.
+   * @throws IOException thrown on errors writing to the stream
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   */
+  public void writePresentationML(OutputStream out) throws IOException, IllegalStateException {
+    getResult().writePresentationML(out);
+  }
 
-    return bout.toString();
+  /**
+   * Append the message in PresentationML to a character sink, e.g. a {@link StringBuilder} or a
+   * {@link java.io.Writer}.
+   * @throws IOException thrown on errors writing to the sink
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   */
+  public void writePresentationML(Appendable out) throws IOException, IllegalStateException {
+    getResult().writePresentationML(out);
   }
 
   /**
    * Retrieve a JSON representation of entity data (EntityJSON).
    */
   public ObjectNode getEntityJson() {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
-    }
-
-    return entityJson;
+    return getResult().getEntityJson();
   }
 
   /**
    * Retrieve a string representation of the message in Markdown.
-   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet or cannot be represented in Markdown
    */
   public String getMarkdown() throws IllegalStateException {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
-    }
-
-    return markdownRenderer.getText();
+    return getResult().getMarkdown();
   }
 
   /**
    * Retrieve message entities (tags, mentions, urls) in the legacy JSON format.
-   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet or cannot be represented in Markdown
    */
   public JsonNode getEntities() throws IllegalStateException {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
-    }
-
-    return markdownRenderer.getJson();
+    return getResult().getEntities();
   }
 
   /**
    * Retrieve a string representation of the message by getting the values of
    * its PresentationML elements.
-   * This method returns {@link Element#getTextContent()} of the top-level document tree.
+   * This method returns the text content of the top-level document tree.
    * @throws IllegalStateException thrown if the message hasn't been parsed yet
    */
   public String getText() throws InvalidInputException, ProcessingException, IllegalStateException {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
-    }
-
-    String presentationML = getPresentationML();
-    Element doc = messageMLParser.parseDocument(presentationML);
-    return doc.getTextContent();
+    return getResult().getText();
   }
 
   /**
    * Retrieve a string representation of the message by getting the values of
    * its PresentationML elements.
-   * This method returns {@link Element#getTextContent()} of each individual element of the tree,
+   * This method returns the text content of each individual node of the tree,
    * separated by a single space
    * @param preserveWhitespace if false, trims the leading and trailing whitespce of each element
    * @throws IllegalStateException thrown if the message hasn't been parsed yet
    */
   public String getText(boolean preserveWhitespace) throws InvalidInputException, ProcessingException, IllegalStateException {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
-    }
-
-    StringBuilder sb = new StringBuilder();
-
-    String presentationML = getPresentationML();
-    Element doc = messageMLParser.parseDocument(presentationML);
+    return getResult().getText(preserveWhitespace);
+  }
 
-    NodeList nodes = doc.getChildNodes();
+  /**
+   * Append the text content of the message, as returned by {@link #getText()}, to a character sink.
+   * @throws IOException thrown on errors writing to the sink
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   */
+  public void writeText(Appendable out) throws IOException, IllegalStateException {
+    getResult().writeText(out);
+  }
 
-    for (int i = 0; i < nodes.getLength(); i++) {
-      Node node = nodes.item(i);
-      String text = (preserveWhitespace) ? node.getTextContent() : node.getTextContent().trim();
+  /**
+   * Append the text content of the message, as returned by {@link #getText(boolean)}, to a character sink.
+   * @param preserveWhitespace if false, trims the leading and trailing whitespce of each element
+   * @throws IOException thrown on errors writing to the sink
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   */
+  public void writeText(Appendable out, boolean preserveWhitespace) throws IOException, IllegalStateException {
+    getResult().writeText(out, preserveWhitespace);
+  }
 
-      // Prepend space unless we're at the first node or we trim whitespace and current text is blank
-      if (i > 0 && StringUtils.isNotEmpty(text)) {
-        sb.append(" ");
-      }
+  /**
+   * Return the cache of parsed MessageML messages, or null if results are not cached.
+   */
+  public MessageMLResultCache getCache() {
+    return cache;
+  }
 
-      sb.append(text);
+  /**
+   * Retrieve the immutable result of the last parse, which may be safely handed over to other threads.
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   */
+  public MessageMLResult getResult() throws IllegalStateException {
+    if (result == null) {
+      throw new IllegalStateException("The message hasn't been parsed yet. "
+          + "Please call MessageMLContext.parse() first.");
     }
 
-    return sb.toString();
+    return result;
   }
 
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import freemarker.template.Template;
+import org.symphonyoss.symphony.messageml.elements.Element;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.elements.TextNode;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownParser;
+import org.symphonyoss.symphony.messageml.util.AsyncPrefetchingDataProvider;
+import org.symphonyoss.symphony.messageml.util.IAsyncDataProvider;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener;
+import org.symphonyoss.symphony.messageml.util.InstrumentedAsyncDataProvider;
+import org.symphonyoss.symphony.messageml.util.InstrumentedDataProvider;
+import org.symphonyoss.symphony.messageml.util.LruCache;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A stateless, thread-safe entry point for parsing messages in MessageML or Markdown formats.
+ *
+ * Unlike {@link MessageMLContext}, the engine does not keep the last parsed message. Each call returns an immutable
+ * {@link MessageMLResult}, so a single instance can be shared by any number of threads without synchronization,
+ * provided that the supplied {@link IDataProvider} or {@link IAsyncDataProvider}, and {@link IMetricsListener} if
+ * any, are thread-safe.
+ */
+public class MessageMLEngine {
+
+  private static final int TEMPLATE_CACHE_SIZE = 256;
+
+  private final IDataProvider dataProvider;
+  private final IAsyncDataProvider asyncDataProvider;
+  private final ParserLimits limits;
+  private final IMetricsListener listener;
+  private final IDataProvider instrumentedDataProvider;
+  private final IAsyncDataProvider instrumentedAsyncDataProvider;
+  private final LruCache<String, Template> templates = new LruCache<>(TEMPLATE_CACHE_SIZE);
+
+  public MessageMLEngine(IDataProvider dataProvider) {
+    this(dataProvider, ParserLimits.NONE);
+  }
+
+  /**
+   * Create an engine rejecting messages which exceed the given limits.
+   */
+  public MessageMLEngine(IDataProvider dataProvider, ParserLimits limits) {
+    this(dataProvider, limits, IMetricsListener.NONE);
+  }
+
+  /**
+   * Create an engine rejecting messages which exceed the given limits and reporting the timings and counters of
+   * parsing and rendering messages, including the lookups of the data provider, to a listener.
+   */
+  public MessageMLEngine(IDataProvider dataProvider, ParserLimits limits, IMetricsListener listener) {
+    this.dataProvider = dataProvider;
+    this.asyncDataProvider = null;
+    this.limits = limits;
+    this.listener = listener;
+    this.instrumentedDataProvider = InstrumentedDataProvider.wrap(dataProvider, listener);
+    this.instrumentedAsyncDataProvider = null;
+  }
+
+  /**
+   * Create an engine resolving user mentions and validating URIs without blocking. All lookups needed by a
+   * message are issued at once, and blocking calls wait only for the slowest of them.
+   */
+  public MessageMLEngine(IAsyncDataProvider asyncDataProvider) {
+    this(asyncDataProvider, ParserLimits.NONE);
+  }
+
+  /**
+   * Create an engine resolving user mentions and validating URIs without blocking, and rejecting messages which
+   * exceed the given limits.
+   */
+  public MessageMLEngine(IAsyncDataProvider asyncDataProvider, ParserLimits limits) {
+    this(asyncDataProvider, limits, IMetricsListener.NONE);
+  }
+
+  /**
+   * Create an engine resolving user mentions and validating URIs without blocking, rejecting messages which
+   * exceed the given limits and reporting the timings and counters of parsing and rendering messages, including
+   * the lookups of the data provider, to a listener.
+   */
+  public MessageMLEngine(IAsyncDataProvider asyncDataProvider, ParserLimits limits, IMetricsListener listener) {
+    this.dataProvider = null;
+    this.asyncDataProvider = asyncDataProvider;
+    this.limits = limits;
+    this.listener = listener;
+    this.instrumentedDataProvider = null;
+    this.instrumentedAsyncDataProvider = InstrumentedAsyncDataProvider.wrap(asyncDataProvider, listener);
+  }
+
+  /**
+   * Parse the text contents of the message and optionally EntityJSON into a MessageMLV2 message. Expands
+   * Freemarker templates and generates document tree structures for serialization into output formats.
+   * @param message string containing a MessageMLV2 message with optional Freemarker templates
+   * @param entityJson string containing EntityJSON data
+   * @param version string containing the version of the message format
+   * @return the parsed message and its output formats
+   * @throws InvalidInputException thrown on invalid MessageMLV2 input or input exceeding the limits of the engine
+   * @throws ProcessingException thrown on errors generating the document tree
+   * @throws IOException thrown on invalid EntityJSON input
+   */
+  public MessageMLResult parseMessageML(String message, String entityJson, String version) throws InvalidInputException,
+      ProcessingException, IOException {
+    listener.onInput(length(message), length(entityJson));
+    MessageMLParser parser = newParser();
+    MessageML messageML = parser.parse(message, entityJson, version);
+
+    return newResult(messageML, parser.getEntityJson());
+  }
+
+  /**
+   * Parse the text contents of the message and optionally EntityJSON into a MessageMLV2 message without waiting
+   * for the data provider. The message is parsed on the calling thread; the mentions and links which depend on
+   * external data are validated once all their lookups have completed, on the thread completing the last lookup.
+   *
+   * With an {@link IDataProvider} the lookups are performed on the calling thread and the returned future is
+   * already completed.
+   * @param message string containing a MessageMLV2 message with optional Freemarker templates
+   * @param entityJson string containing EntityJSON data
+   * @param version string containing the version of the message format
+   * @return a future of the parsed message and its output formats, completed exceptionally with
+   * {@link InvalidInputException}, {@link ProcessingException} or {@link IOException} if parsing fails
+   */
+  public CompletableFuture<MessageMLResult> parseMessageMLAsync(String message, String entityJson, String version) {
+    listener.onInput(length(message), length(entityJson));
+    MessageMLParser parser = newParser();
+    CompletableFuture<Void> lookups;
+
+    try {
+      parser.build(message, entityJson, version);
+      lookups = parser.prefetch();
+    } catch (InvalidInputException | ProcessingException | IOException e) {
+      CompletableFuture<MessageMLResult> result = new CompletableFuture<>();
+      result.completeExceptionally(e);
+      return result;
+    }
+
+    return lookups.thenApply(ignored -> {
+      try {
+        MessageML messageML = parser.complete();
+        return newResult(messageML, parser.getEntityJson());
+      } catch (InvalidInputException | ProcessingException e) {
+        throw new CompletionException(e);
+      }
+    });
+  }
+
+  /**
+   * Compile a MessageMLV2 message with Freemarker templates for rendering with many EntityJSON payloads. Template
+   * syntax errors are reported here rather than on each rendering.
+   * @param message string containing a MessageMLV2 message with optional Freemarker templates
+   * @param version string containing the version of the message format
+   * @return the compiled message, rendered by this engine
+   * @throws InvalidInputException thrown on invalid Freemarker templates or input exceeding the limits of the engine
+   */
+  public MessageMLTemplate compileTemplate(String message, String version) throws InvalidInputException {
+    Template template = MessageMLParser.compileTemplate(message, limits);
+
+    return new MessageMLTemplate(this, message, version, template);
+  }
+
+  /**
+   * Parse a Markdown message into its MessageMLV2 representation.
+   * @param message string containing a message in Markdown
+   * @param entities additional entity data in JSON
+   * @param media additional media (e.g. tables) in JSON
+   * @return the parsed message and its output formats
+   * @throws InvalidInputException thrown on invalid Markdown input or input exceeding the limits of the engine
+   */
+  public MessageMLResult parseMarkdown(String message, JsonNode entities, JsonNode media) throws InvalidInputException {
+    listener.onInput(length(message), 0);
+    MessageML messageML = new MarkdownParser(newDataProvider(), limits, listener).parse(message, entities, media);
+
+    return newResult(messageML, null);
+  }
+
+  /**
+   * Return the data provider used to resolve user mentions and validate URIs, or null if the engine was created
+   * with an {@link IAsyncDataProvider}.
+   */
+  public IDataProvider getDataProvider() {
+    return dataProvider;
+  }
+
+  /**
+   * Return the limits on the size and complexity of the messages accepted by the engine.
+   */
+  public ParserLimits getLimits() {
+    return limits;
+  }
+
+  /**
+   * Return the listener receiving the timings and counters of the engine.
+   */
+  public IMetricsListener getMetricsListener() {
+    return listener;
+  }
+
+  /**
+   * Return the asynchronous data provider used to resolve user mentions and validate URIs, or null if the engine
+   * was created with an {@link IDataProvider}.
+   */
+  public IAsyncDataProvider getAsyncDataProvider() {
+    return asyncDataProvider;
+  }
+
+  /**
+   * Expand a compiled template with EntityJSON data and parse the expanded message.
+   */
+  MessageMLResult render(MessageMLTemplate template, String entityJson) throws InvalidInputException,
+      ProcessingException, IOException {
+    listener.onInput(length(template.getMessage()), length(entityJson));
+    MessageMLParser parser = newParser();
+    parser.build(template.getMessage(), template.getTemplate(), entityJson, template.getVersion());
+    MessageML messageML = parser.complete();
+
+    return newResult(messageML, parser.getEntityJson());
+  }
+
+  private MessageMLParser newParser() {
+    return new MessageMLParser(newDataProvider(), limits, listener, templates);
+  }
+
+  private IDataProvider newDataProvider() {
+    return (asyncDataProvider != null)
+        ? new AsyncPrefetchingDataProvider(instrumentedAsyncDataProvider) : instrumentedDataProvider;
+  }
+
+  private MessageMLResult newResult(MessageML messageML, ObjectNode entityJson) {
+    if (listener != IMetricsListener.NONE) {
+      Map<String, Integer> counts = new TreeMap<>();
+      countElements(messageML, counts);
+      listener.onElements(counts);
+    }
+
+    return new MessageMLResult(messageML, entityJson, listener);
+  }
+
+  private static void countElements(Element element, Map<String, Integer> counts) {
+    if (!(element instanceof TextNode)) {
+      counts.merge(element.getMessageMLTag(), 1, Integer::sum);
+    }
+
+    for (Element child : element.getChildren()) {
+      countElements(child, counts);
+    }
+  }
+
+  private static int length(String input) {
+    return (input != null) ? input.length() : 0;
+  }
+
+}
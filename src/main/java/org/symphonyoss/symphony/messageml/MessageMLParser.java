@@ -7,12 +7,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import freemarker.core.ParseException;
 import freemarker.core.TemplateClassResolver;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
 import freemarker.template.TemplateExceptionHandler;
-import org.apache.commons.io.input.ReaderInputStream;
+import freemarker.template.TemplateModel;
 import org.apache.commons.lang3.StringUtils;
 import org.symphonyoss.symphony.messageml.elements.Bold;
 import org.symphonyoss.symphony.messageml.elements.BulletList;
@@ -52,59 +53,149 @@ import org.symphonyoss.symphony.messageml.elements.TableFooter;
 import org.symphonyoss.symphony.messageml.elements.TableHeader;
 import org.symphonyoss.symphony.messageml.elements.TableHeaderCell;
 import org.symphonyoss.symphony.messageml.elements.TableRow;
+import org.symphonyoss.symphony.messageml.elements.TextNode;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.AsyncPrefetchingDataProvider;
+import org.symphonyoss.symphony.messageml.util.IBatchDataProvider;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener;
+import org.symphonyoss.symphony.messageml.util.JsonNodeTemplateModel;
+import org.symphonyoss.symphony.messageml.util.LruCache;
 import org.symphonyoss.symphony.messageml.util.NoOpEntityResolver;
 import org.symphonyoss.symphony.messageml.util.NullErrorHandler;
-import org.w3c.dom.Document;
+import org.symphonyoss.symphony.messageml.util.PrefetchingDataProvider;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.util.Arrays;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.parsers.SAXParserFactory;
 
 /**
  * Converts a string representation of the message and optional entity data into a MessageMLV2 document tree.
+ *
+ * A parser keeps the state of a single message (format, entity data and entity index) and is therefore not
+ * thread-safe; {@link MessageMLEngine} creates a new instance for every message.
  * @author lukasz
  * @since 4/20/17
  */
 public class MessageMLParser {
   private static final ObjectMapper MAPPER = new ObjectMapper();
   private static final Configuration FREEMARKER = new Configuration(Configuration.getVersion());
+  // JAXP factories are not guaranteed to be thread-safe
+  private static final ThreadLocal<SAXParserFactory> SAX_FACTORY = ThreadLocal.withInitial(() -> {
+    SAXParserFactory factory = SAXParserFactory.newInstance();
+    factory.setXIncludeAware(false);
+    return factory;
+  });
+  private static final Map<String, ElementFactory> ELEMENT_FACTORIES = new HashMap<>();
   private final IDataProvider dataProvider;
+  private final ParserLimits limits;
+  private final IMetricsListener listener;
+  private final LruCache<String, Template> templates;
 
+  private IDataProvider userProvider;
   private FormatEnum messageFormat;
   private MessageML messageML;
   private ObjectNode entityJson;
+  private Map<String, List<JsonNode>> entityIndex;
+  private final List<Element> pending = new ArrayList<>();
+  private boolean deferMentions;
+  private boolean deferLinks;
 
   private int index;
+  private int elements;
+  private int mentions;
+  private int links;
 
   static {
     FREEMARKER.setDefaultEncoding("UTF-8");
     FREEMARKER.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
     FREEMARKER.setLogTemplateExceptions(false);
     FREEMARKER.setNewBuiltinClassResolver(TemplateClassResolver.ALLOWS_NOTHING_RESOLVER);
+
+    for (int level = 1; level <= 6; level++) {
+      register(Header.MESSAGEML_TAG + level, (parser, tag, attributes, parent) -> new Header(parent, tag));
+    }
+    registerShorthand(Chime.MESSAGEML_TAG,
+        (parser, tag, attributes, parent) -> new Chime(parent, FormatEnum.MESSAGEML));
+    register(Chime.PRESENTATIONML_TAG,
+        (parser, tag, attributes, parent) -> new Chime(parent, FormatEnum.PRESENTATIONML));
+    register(Paragraph.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Paragraph(parent));
+    register(LineBreak.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new LineBreak(parent));
+    register(HorizontalRule.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new HorizontalRule(parent));
+    register(Span.MESSAGEML_TAG, MessageMLParser::createSpan);
+    register(Div.MESSAGEML_TAG, MessageMLParser::createDiv);
+    register(Bold.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Bold(parent));
+    register(Italic.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Italic(parent));
+    register(Preformatted.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Preformatted(parent));
+    registerShorthand(HashTag.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new HashTag(parent, ++parser.index));
+    registerShorthand(CashTag.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new CashTag(parent, ++parser.index));
+    registerShorthand(Mention.MESSAGEML_TAG,
+        (parser, tag, attributes, parent) -> new Mention(parent, ++parser.index, parser.userProvider));
+    register(Link.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Link(parent, parser.dataProvider));
+    register(Image.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Image(parent));
+    register(BulletList.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new BulletList(parent));
+    register(OrderedList.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new OrderedList(parent));
+    register(ListItem.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new ListItem(parent));
+    register(Table.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Table(parent));
+    register(TableHeader.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new TableHeader(parent));
+    register(TableBody.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new TableBody(parent));
+    register(TableFooter.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new TableFooter(parent));
+    register(TableRow.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new TableRow(parent));
+    register(TableHeaderCell.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new TableHeaderCell(parent));
+    register(TableCell.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new TableCell(parent));
+    registerShorthand(Card.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Card(parent, FormatEnum.MESSAGEML));
+    register(Code.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Code(parent));
+    registerShorthand(CardHeader.MESSAGEML_TAG,
+        (parser, tag, attributes, parent) -> new CardHeader(parent, FormatEnum.MESSAGEML));
+    registerShorthand(CardBody.MESSAGEML_TAG,
+        (parser, tag, attributes, parent) -> new CardBody(parent, FormatEnum.MESSAGEML));
+    register(Emoji.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Emoji(parent, ++parser.index));
+    register(Form.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Form(parent));
+    register(Select.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Select(parent));
+    register(Option.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Option(parent));
+    register(Button.MESSAGEML_TAG, (parser, tag, attributes, parent) -> new Button(parent));
   }
 
-  MessageMLParser(IDataProvider dataProvider) {
+  /**
+   * @param templates the cache of compiled templates, keyed by {@link #digest(String)} of the message, or null to
+   * compile templates on every use
+   */
+  MessageMLParser(IDataProvider dataProvider, ParserLimits limits, IMetricsListener listener,
+      LruCache<String, Template> templates) {
     this.dataProvider = dataProvider;
+    this.limits = limits;
+    this.listener = listener;
+    this.templates = templates;
   }
 
   /**
@@ -119,37 +210,100 @@ public class MessageMLParser {
    */
   MessageML parse(String message, String entityJson, String version) throws InvalidInputException, ProcessingException,
       IOException {
+    build(message, entityJson, version);
+    return complete();
+  }
+
+  /**
+   * Expand Freemarker templates and generate the MessageML document tree, leaving out the validation of elements
+   * which depend on external data when it is resolved in bulk (see {@link #getPendingUids()},
+   * {@link #getPendingEmails()} and {@link #getPendingUris()}). {@link #complete()} finishes the parsing.
+   */
+  void build(String message, String entityJson, String version) throws InvalidInputException, ProcessingException,
+      IOException {
+    build(message, null, entityJson, version);
+  }
+
+  /**
+   * Generate the MessageML document tree as {@link #build(String, String, String)} does, expanding a template
+   * compiled by {@link #compileTemplate(String, ParserLimits)}.
+   * @param template the compiled Freemarker template of the message, or null if it has to be looked up
+   */
+  void build(String message, Template template, String entityJson, String version) throws InvalidInputException,
+      ProcessingException, IOException {
     this.index = 0;
+    this.elements = 0;
+    this.mentions = 0;
+    this.links = 0;
+    this.entityIndex = null;
+    this.pending.clear();
+    this.userProvider = (dataProvider instanceof IBatchDataProvider)
+        ? new PrefetchingDataProvider((IBatchDataProvider) dataProvider) : dataProvider;
+    this.deferMentions = userProvider instanceof PrefetchingDataProvider
+        || dataProvider instanceof AsyncPrefetchingDataProvider;
+    this.deferLinks = dataProvider instanceof AsyncPrefetchingDataProvider;
     String expandedMessage;
 
     if (StringUtils.isBlank(message)) {
      throw new InvalidInputException("Error parsing message: the message cannot be null or empty");
     }
 
+    limits.checkInputSize(message);
+
     if (StringUtils.isNotBlank(entityJson)) {
+      limits.checkEntityJsonSize(entityJson);
+      long start = System.nanoTime();
+
       try {
         this.entityJson = (ObjectNode) MAPPER.readTree(entityJson);
       } catch (JsonProcessingException e) {
         throw new InvalidInputException("Error parsing EntityJSON: " + e.getMessage());
       }
+
+      listener.onPhase(IMetricsListener.Phase.ENTITY_JSON, System.nanoTime() - start);
     } else {
       this.entityJson = new ObjectNode(JsonNodeFactory.instance);
     }
 
     try {
-      expandedMessage = expandTemplates(message, this.entityJson);
+      expandedMessage = expandTemplates(message, template, this.entityJson);
     } catch (IOException e) {
+      if (e.getCause() instanceof InvalidInputException) {
+        throw (InvalidInputException) e.getCause(); // the expanded message exceeds the limits
+      }
       throw new InvalidInputException("Error parsing EntityJSON: " + e.getMessage());
     } catch (TemplateException e) {
       throw new InvalidInputException(String.format("Error parsing Freemarker template: invalid input at line %s, "
           + "column %s", e.getLineNumber(), e.getColumnNumber()));
     }
 
+    long start = System.nanoTime();
     this.messageML = parseMessageML(expandedMessage, version);
+    listener.onPhase(IMetricsListener.Phase.XML_PARSING, System.nanoTime() - start);
+  }
 
-    if (this.messageML != null) {
-      this.entityJson = this.messageML.asEntityJson(this.entityJson);
+  /**
+   * Validate the elements left out by {@link #build(String, String, String)}, resolving mentioned users in bulk if
+   * the data provider supports it.
+   */
+  MessageML complete() throws InvalidInputException, ProcessingException {
+    long start = System.nanoTime();
 
+    if (userProvider instanceof PrefetchingDataProvider && !pending.isEmpty()) {
+      ((PrefetchingDataProvider) userProvider).prefetch(getPendingUids(), getPendingEmails());
+    } else {
+      prefetch().join();
+    }
+
+    if (!pending.isEmpty()) {
+      for (Element element : pending) {
+        element.validate();
+      }
+      pending.clear();
+      listener.onPhase(IMetricsListener.Phase.VALIDATION, System.nanoTime() - start);
+    }
+
+    if (this.messageML != null) {
       return this.messageML;
     }
 
@@ -157,7 +311,68 @@ public class MessageMLParser {
   }
 
   /**
-   * Retrieve a JSON representation of entity data (EntityJSON).
+   * Start the lookups of the external data needed to validate the elements left out by
+   * {@link #build(String, String, String)}, if the data provider is asynchronous.
+   * @return a future completing when all lookups have completed, successfully or not
+   */
+  CompletableFuture<Void> prefetch() {
+    if (dataProvider instanceof AsyncPrefetchingDataProvider && !pending.isEmpty()) {
+      return ((AsyncPrefetchingDataProvider) dataProvider).prefetch(getPendingUids(), getPendingEmails(),
+          getPendingUris());
+    }
+
+    return CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   * Return the UIDs of the users mentioned by elements awaiting validation.
+   */
+  Set<Long> getPendingUids() {
+    Set<Long> uids = new LinkedHashSet<>();
+
+    for (Element element : pending) {
+      if (element instanceof Mention && ((Mention) element).getUid() != null) {
+        uids.add(((Mention) element).getUid());
+      }
+    }
+
+    return uids;
+  }
+
+  /**
+   * Return the emails of the users mentioned by elements awaiting validation, if they are not mentioned by UID.
+   */
+  Set<String> getPendingEmails() {
+    Set<String> emails = new LinkedHashSet<>();
+
+    for (Element element : pending) {
+      if (element instanceof Mention && ((Mention) element).getUid() == null
+          && ((Mention) element).getEmail() != null) {
+        emails.add(((Mention) element).getEmail());
+      }
+    }
+
+    return emails;
+  }
+
+  /**
+   * Return the absolute URIs of links awaiting validation.
+   */
+  Set<URI> getPendingUris() {
+    Set<URI> uris = new LinkedHashSet<>();
+
+    for (Element element : pending) {
+      if (element instanceof Link && ((Link) element).getUri() != null && ((Link) element).getUri().isAbsolute()) {
+        uris.add(((Link) element).getUri());
+      }
+    }
+
+    return uris;
+  }
+
+  /**
+   * Retrieve the entity data (EntityJSON) supplied with the message, to be completed with the entities of the
+   * document tree by {@link MessageML#asEntityJson(ObjectNode)}.
    */
   ObjectNode getEntityJson() {
     return entityJson;
@@ -177,32 +392,66 @@ public class MessageMLParser {
   }
 
   /**
-   * Check whether <i>data-entity-id</i> attributes in the message match EntityJSON entities.
+   * Find the EntityJSON entity of a <i>data-entity-id</i> attribute in the message: the first field of that name in
+   * the EntityJSON tree, as returned by {@link JsonNode#findPath(String)}.
    */
-  private static void validateEntities(org.w3c.dom.Element document, JsonNode entityJson) throws InvalidInputException,
-      ProcessingException {
-    XPathFactory xPathfactory = XPathFactory.newInstance();
-    XPath xpath = xPathfactory.newXPath();
+  private JsonNode findEntity(String entityId) throws InvalidInputException {
+    List<JsonNode> entityList = findEntities(entityId);
 
-    NodeList nodes;
-    try {
-      XPathExpression expr = xpath.compile("//@data-entity-id");
-      nodes = (NodeList) expr.evaluate(document, XPathConstants.NODESET);
-    } catch (XPathExpressionException e) {
-      throw new ProcessingException("Internal error processing document tree: " + e.getMessage());
-    }
-
-    for (int i = 0; i < nodes.getLength(); i++) {
-      Node node = nodes.item(i);
-      String entityId = ((org.w3c.dom.Attr) node).getValue();
-
-      JsonNode entityNode = entityJson.findPath(entityId);
-      if (entityNode.isMissingNode()) {
-        throw new InvalidInputException("Error processing EntityJSON: "
-            + "no entity data provided for \"data-entity-id\"=\"" + entityId + "\"");
-      } else if (!entityNode.isObject()) {
-        throw new InvalidInputException("Error processing EntityJSON: "
-            + "the node \"" + entityId + "\" has to be an object");
+    if (entityList.isEmpty()) {
+      throw new InvalidInputException("Error processing EntityJSON: "
+          + "no entity data provided for \"data-entity-id\"=\"" + entityId + "\"");
+    }
+
+    JsonNode entityNode = entityList.get(0);
+
+    if (!entityNode.isObject()) {
+      throw new InvalidInputException("Error processing EntityJSON: "
+          + "the node \"" + entityId + "\" has to be an object");
+    }
+
+    return entityNode;
+  }
+
+  /**
+   * Return the values of the fields with the given name in the EntityJSON tree, as returned by
+   * {@link JsonNode#findValues(String)}. The tree is indexed on the first lookup of a message, so that each
+   * <i>data-entity-id</i> is resolved with a direct lookup rather than a search of the whole tree.
+   */
+  private List<JsonNode> findEntities(String entityId) {
+    if (entityIndex == null) {
+      entityIndex = new HashMap<>();
+      indexFields(entityJson, new HashSet<>());
+    }
+
+    return entityIndex.getOrDefault(entityId, Collections.emptyList());
+  }
+
+  /**
+   * Add the fields of a node to the EntityJSON index, in document order. Like {@link JsonNode#findValues(String)},
+   * fields nested in the value of a field with the same name are not indexed under that name.
+   */
+  private void indexFields(JsonNode node, Set<String> enclosingNames) {
+    if (node.isObject()) {
+      Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        boolean indexed = enclosingNames.add(field.getKey());
+
+        if (indexed) {
+          entityIndex.computeIfAbsent(field.getKey(), name -> new ArrayList<>(1)).add(field.getValue());
+        }
+
+        indexFields(field.getValue(), enclosingNames);
+
+        if (indexed) {
+          enclosingNames.remove(field.getKey());
+        }
+      }
+    } else if (node.isArray()) {
+      for (JsonNode element : node) {
+        indexFields(element, enclosingNames);
       }
     }
   }
@@ -217,288 +466,469 @@ public class MessageMLParser {
   }
 
   /**
-   * Expand Freemarker templates.
+   * Compile the Freemarker template of a message for repeated expansion.
+   * @return the compiled template, or null if the message has no template directives
+   * @throws InvalidInputException thrown on empty or oversized messages and invalid templates
    */
-  private String expandTemplates(String message, JsonNode entityJson) throws IOException, TemplateException {
-    // Read entityJSON data
-    Map<String, Object> data = new HashMap<>();
-    data.put("data", MAPPER.convertValue(entityJson, Map.class));
-    data.put("entity", MAPPER.convertValue(entityJson, Map.class));
+  static Template compileTemplate(String message, ParserLimits limits) throws InvalidInputException {
+    if (StringUtils.isBlank(message)) {
+      throw new InvalidInputException("Error parsing message: the message cannot be null or empty");
+    }
 
-    // Read MessageMLV2 template
-    StringWriter sw = new StringWriter();
-    Template template = new Template("messageML", message, FREEMARKER);
+    limits.checkInputSize(message);
 
-    // Expand the template
-    template.process(data, sw);
+    if (!hasTemplateDirectives(message)) {
+      return null;
+    }
 
-    return sw.toString();
+    try {
+      return new Template("messageML", message, FREEMARKER);
+    } catch (ParseException e) {
+      throw new InvalidInputException(String.format("Error parsing Freemarker template: invalid input at line %s, "
+          + "column %s", e.getLineNumber(), e.getColumnNumber()));
+    } catch (IOException e) {
+      throw new InvalidInputException("Error parsing Freemarker template: " + e.getMessage());
+    }
   }
 
   /**
-   * Parse the message string into its MessageML representation.
+   * Expand Freemarker templates. Messages without template directives are returned as is.
+   * @param template the compiled template of the message, or null to look it up
    */
-  private MessageML parseMessageML(String messageML, String version) throws InvalidInputException, ProcessingException {
-    validateMessageText(messageML);
+  private String expandTemplates(String message, Template template, JsonNode entityJson) throws IOException,
+      TemplateException {
+    if (template == null && !hasTemplateDirectives(message)) {
+      return message;
+    }
 
-    org.w3c.dom.Element docElement = parseDocument(messageML);
+    long start = System.nanoTime();
 
-    validateEntities(docElement, entityJson);
+    if (template == null) {
+      template = getTemplate(message);
+    }
 
-    switch (docElement.getTagName()) {
-      case MessageML.MESSAGEML_TAG:
-        this.messageFormat = FormatEnum.MESSAGEML;
-        if (StringUtils.isBlank(version)) {
-          version = MessageML.MESSAGEML_VERSION;
-        }
-        break;
+    // Expose entityJSON data, resolving fields as the template reads them
+    TemplateModel entityModel = JsonNodeTemplateModel.wrap(entityJson);
+    Map<String, Object> data = new HashMap<>();
+    data.put("data", entityModel);
+    data.put("entity", entityModel);
+
+    StringWriter sw = new StringWriter();
 
-      case MessageML.PRESENTATIONML_TAG:
-        this.messageFormat = FormatEnum.PRESENTATIONML;
-        break;
+    // Expand the template
+    template.process(data, (limits.getMaxExpandedSize() < Integer.MAX_VALUE) ? new LimitedWriter(sw) : sw);
+    listener.onPhase(IMetricsListener.Phase.TEMPLATE, System.nanoTime() - start);
+
+    return sw.toString();
+  }
 
-      default:
-        throw new InvalidInputException("Root tag must be <" + MessageML.MESSAGEML_TAG + ">"
-            + " or <" + MessageML.PRESENTATIONML_TAG + ">");
+  /**
+   * Return the compiled Freemarker template for the message, compiling and caching it on first use. Only called
+   * for messages with template directives, so plain messages never take up room in the cache.
+   */
+  private Template getTemplate(String message) throws IOException {
+    if (templates == null) {
+      return new Template("messageML", message, FREEMARKER);
     }
 
-    MessageML result = new MessageML(messageFormat, version);
-    result.buildAll(this, docElement);
-    result.validate();
+    String key = digest(message);
+    Template template = templates.get(key);
+
+    if (template == null) {
+      template = new Template("messageML", message, FREEMARKER);
+      templates.put(key, template);
+    }
 
-    return result;
+    return template;
   }
 
   /**
-   * Parse the message string into a DOM element tree.
+   * Return the SHA-256 digest of the message, used as the key of the template cache.
    */
-  org.w3c.dom.Element parseDocument(String messageML) throws InvalidInputException, ProcessingException {
+  static String digest(String message) {
     try {
-      DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-      //XXE prevention as per https://www.owasp.org/index.php/XML_External_Entity_(XXE)_Prevention_Cheat_Sheet
-      dbFactory.setXIncludeAware(false);
-      dbFactory.setExpandEntityReferences(false);
-      dbFactory.setIgnoringElementContentWhitespace(true);
-      dbFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-      dbFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      MessageDigest sha = MessageDigest.getInstance("SHA-256");
+      return Base64.getEncoder().encodeToString(sha.digest(message.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
 
-      DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-      dBuilder.setErrorHandler(new NullErrorHandler()); // default handler prints to stderr
-      dBuilder.setEntityResolver(new NoOpEntityResolver());
+  /**
+   * Check whether the message contains Freemarker interpolations (<i>${...}</i>, <i>#{...}</i>), directives
+   * (<i>&lt;#...&gt;</i>) or user-defined directive calls (<i>&lt;@...&gt;</i>).
+   */
+  static boolean hasTemplateDirectives(String message) {
+    int length = message.length();
+
+    for (int i = 0; i < length - 1; i++) {
+      char ch = message.charAt(i);
+      char next = message.charAt(i + 1);
+
+      if ((ch == '$' || ch == '#') && next == '{') {
+        return true;
+      } else if (ch == '<') {
+        if (next == '/' && i + 2 < length) {
+          next = message.charAt(i + 2);
+        }
+        if (next == '#' || next == '@') {
+          return true;
+        }
+      }
+    }
 
-      StringReader sr = new StringReader(messageML);
-      ReaderInputStream ris = new ReaderInputStream(sr);
-      Document doc = dBuilder.parse(ris);
+    return false;
+  }
 
-      doc.getDocumentElement().normalize();
+  /**
+   * Parse the message string into its MessageML representation, building the document tree directly from
+   * SAX events.
+   */
+  private MessageML parseMessageML(String messageML, String version) throws InvalidInputException, ProcessingException {
+    validateMessageText(messageML);
 
-      return doc.getDocumentElement();
+    TreeBuilder builder = new TreeBuilder(version);
 
+    try {
+      XMLReader reader = SAX_FACTORY.get().newSAXParser().getXMLReader();
+      //XXE prevention as per https://www.owasp.org/index.php/XML_External_Entity_(XXE)_Prevention_Cheat_Sheet
+      reader.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+      reader.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      reader.setFeature("http://xml.org/sax/features/external-general-entities", false);
+      reader.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+      reader.setProperty("http://xml.org/sax/properties/lexical-handler", builder);
+      reader.setContentHandler(builder);
+      reader.setErrorHandler(new NullErrorHandler()); // default handler prints to stderr
+      reader.setEntityResolver(new NoOpEntityResolver());
+
+      reader.parse(new InputSource(new StringReader(messageML)));
     } catch (SAXException e) {
+      if (e.getException() instanceof InvalidInputException) {
+        throw (InvalidInputException) e.getException();
+      } else if (e.getException() instanceof ProcessingException) {
+        throw (ProcessingException) e.getException();
+      }
       throw new InvalidInputException("Invalid messageML: " + e.getMessage(), e);
     } catch (ParserConfigurationException | IOException e) {
       throw new ProcessingException("Failed to parse messageML", e);
     }
-  }
 
-  private boolean containsAttribute(String input, String attribute) {
-    String[] splitInput = input.split("\\s+");
-
-    return Arrays.asList(splitInput).contains(attribute);
+    return builder.getResult();
   }
 
-  private void removeAttribute(org.w3c.dom.Element element, String input, String attribute) {
-    if (element.hasAttribute(input)) {
-      String newAttribute = Arrays.stream(element.getAttribute(input).split("\\s+"))
-          .filter(it -> !it.equalsIgnoreCase(attribute))
-          .collect(Collectors.joining(" "));
+  /**
+   * Create a MessageML element based on the tag name and attributes of a start tag. The attributes are applied to
+   * the element by {@link Element#buildAttributes(Attributes)}.
+   */
+  public Element createElement(String tag, Attributes attributes, Element parent) throws InvalidInputException {
+    ElementFactory factory = ELEMENT_FACTORIES.get(tag);
 
-      if (StringUtils.isNotBlank(newAttribute)) {
-        element.setAttribute(input, newAttribute);
-      } else {
-        element.removeAttribute(input);
-      }
+    if (factory == null) {
+      throw new InvalidInputException("Invalid MessageML content at element \"" + tag + "\"");
     }
+
+    return factory.create(this, tag, attributes, parent);
   }
 
   /**
    * Create a MessageML element based on the DOM element's name and attributes.
+   * @deprecated messages are parsed from SAX events, use {@link #createElement(String, Attributes, Element)}
    */
-  public Element createElement(org.w3c.dom.Element element, Element parent) throws
-      InvalidInputException {
-    String tag = element.getNodeName();
+  @Deprecated
+  public Element createElement(org.w3c.dom.Element element, Element parent) throws InvalidInputException {
+    NamedNodeMap attr = element.getAttributes();
+    AttributesImpl attributes = new AttributesImpl();
+
+    for (int i = 0; i < attr.getLength(); i++) {
+      Node item = attr.item(i);
+      attributes.addAttribute("", item.getNodeName(), item.getNodeName(), "CDATA", item.getNodeValue());
+    }
+
+    return createElement(element.getNodeName(), attributes, parent);
+  }
 
-    if (Header.isHeaderElement(tag)) {
-      return new Header(parent, tag);
+  private Element createSpan(String tag, Attributes attributes, Element parent) throws InvalidInputException {
+    if (Element.hasClass(attributes.getValue(CLASS_ATTR), Entity.PRESENTATIONML_CLASS)) {
+      return createEntity(tag, attributes, parent);
+    } else {
+      return new Span(parent);
     }
+  }
 
-    String elementClass = element.getAttribute(CLASS_ATTR);
-    switch (tag) {
-      case Chime.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new Chime(parent, FormatEnum.MESSAGEML);
+  private Element createDiv(String tag, Attributes attributes, Element parent) throws InvalidInputException {
+    String elementClass = attributes.getValue(CLASS_ATTR);
 
-      case Chime.PRESENTATIONML_TAG:
-        return new Chime(parent, FormatEnum.PRESENTATIONML);
+    if (elementClass == null) {
+      return new Div(parent);
+    } else if (Element.hasClass(elementClass, Entity.PRESENTATIONML_CLASS)) {
+      return createEntity(tag, attributes, parent);
+    } else if (Element.hasClass(elementClass, Card.PRESENTATIONML_CLASS)) {
+      return new Card(parent, FormatEnum.PRESENTATIONML);
+    } else if (Element.hasClass(elementClass, CardBody.PRESENTATIONML_CLASS)) {
+      return new CardBody(parent, FormatEnum.PRESENTATIONML);
+    } else if (Element.hasClass(elementClass, CardHeader.PRESENTATIONML_CLASS)) {
+      return new CardHeader(parent, FormatEnum.PRESENTATIONML);
+    } else {
+      return new Div(parent);
+    }
+  }
 
-      case Paragraph.MESSAGEML_TAG:
-        return new Paragraph(parent);
+  /**
+   * Register the factory of the elements with the given tag.
+   */
+  private static void register(String tag, ElementFactory factory) {
+    ELEMENT_FACTORIES.put(tag, factory);
+  }
 
-      case LineBreak.MESSAGEML_TAG:
-        return new LineBreak(parent);
+  /**
+   * Register the factory of a shorthand element, which is only allowed in MessageML.
+   */
+  private static void registerShorthand(String tag, ElementFactory factory) {
+    ELEMENT_FACTORIES.put(tag, (parser, name, attributes, parent) -> {
+      parser.validateFormat(name);
+      return factory.create(parser, name, attributes, parent);
+    });
+  }
 
-      case HorizontalRule.MESSAGEML_TAG:
-        return new HorizontalRule(parent);
+  private Element createEntity(String tag, Attributes attributes, Element parent) throws InvalidInputException {
+    String entityId = attributes.getValue(Entity.ENTITY_ID_ATTR);
 
-      case Span.MESSAGEML_TAG:
-        if (containsAttribute(elementClass, Entity.PRESENTATIONML_CLASS)) {
-            return createEntity(element, parent);
-        } else {
-            return new Span(parent);
-        }
+    if (entityId == null) {
+      throw new InvalidInputException("The attribute \"data-entity-id\" is required");
+    }
 
-      case Div.MESSAGEML_TAG:
-        if (containsAttribute(elementClass, Entity.PRESENTATIONML_CLASS)) {
-            return createEntity(element, parent);
-        } else if (containsAttribute(elementClass, Card.PRESENTATIONML_CLASS)) {
-          removeAttribute(element, CLASS_ATTR, Card.PRESENTATIONML_CLASS);
-            return new Card(parent, FormatEnum.PRESENTATIONML);
-        } else if (containsAttribute(elementClass, CardBody.PRESENTATIONML_CLASS)) {
-          removeAttribute(element, CLASS_ATTR, CardBody.PRESENTATIONML_CLASS);
-            return new CardBody(parent, FormatEnum.PRESENTATIONML);
-        } else if (containsAttribute(elementClass, CardHeader.PRESENTATIONML_CLASS)) {
-          removeAttribute(element, CLASS_ATTR, CardHeader.PRESENTATIONML_CLASS);
-            return new CardHeader(parent, FormatEnum.PRESENTATIONML);
-        } else {
-            return new Div(parent);
-        }
+    List<JsonNode> entityList = findEntities(entityId);
 
-      case Bold.MESSAGEML_TAG:
-        return new Bold(parent);
+    if (entityList.isEmpty()) {
+      throw new InvalidInputException("The attribute \"data-entity-id\" is required");
+    } else if (entityList.size() > 1) {
+      throw new InvalidInputException("Duplicate \"data-entity-id\"=\"" + entityId + "\" in entityJSON");
+    }
 
-      case Italic.MESSAGEML_TAG:
-        return new Italic(parent);
+    JsonNode entity = entityList.get(0);
+    JsonNode type = entity.path(Entity.TYPE_FIELD);
+    JsonNode value = entity.path(Entity.ID_FIELD).path(0).path(Entity.VALUE_FIELD);
 
-      case Preformatted.MESSAGEML_TAG:
-        return new Preformatted(parent);
+    if (!type.isMissingNode() && !value.isMissingNode()) {
+      switch (type.textValue()) {
+        case CashTag.ENTITY_TYPE:
+          return new CashTag(parent, tag, value.asText());
+        case HashTag.ENTITY_TYPE:
+          return new HashTag(parent, tag, value.asText());
+        case Mention.ENTITY_TYPE:
+          return new Mention(parent, tag, value.asLong(), userProvider);
+        default:
+          break;
+      }
+    }
 
-      case HashTag.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new HashTag(parent, ++index);
+    if (Div.MESSAGEML_TAG.equals(tag)) {
+      return new Div(parent);
+    } else if (Span.MESSAGEML_TAG.equals(tag)) {
+      return new Span(parent);
+    } else {
+      throw new InvalidInputException("The element \'" + tag + "\" cannot be an entity");
+    }
+  }
 
-      case CashTag.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new CashTag(parent, ++index);
+  /**
+   * Creates the MessageML element for a start tag on behalf of a parser.
+   */
+  @FunctionalInterface
+  private interface ElementFactory {
+    Element create(MessageMLParser parser, String tag, Attributes attributes, Element parent)
+        throws InvalidInputException;
+  }
 
-      case Mention.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new Mention(parent, ++index, dataProvider);
+  /**
+   * Forwards the output of template expansion, failing as soon as it exceeds the maximum expanded size. The
+   * {@link InvalidInputException} is reported as the cause of an {@link IOException}, which Freemarker propagates.
+   */
+  private class LimitedWriter extends Writer {
+    private final Writer out;
+    private long size;
 
-      case Link.MESSAGEML_TAG:
-        return new Link(parent, dataProvider);
+    LimitedWriter(Writer out) {
+      this.out = out;
+    }
 
-      case Image.MESSAGEML_TAG:
-        return new Image(parent);
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      count(ParserLimits.utf8Length(CharBuffer.wrap(cbuf), off, len));
+      out.write(cbuf, off, len);
+    }
 
-      case BulletList.MESSAGEML_TAG:
-        return new BulletList(parent);
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+      count(ParserLimits.utf8Length(str, off, len));
+      out.write(str, off, len);
+    }
 
-      case OrderedList.MESSAGEML_TAG:
-        return new OrderedList(parent);
+    private void count(int bytes) throws IOException {
+      size += bytes;
 
-      case ListItem.MESSAGEML_TAG:
-        return new ListItem(parent);
+      try {
+        limits.checkExpandedSize(size);
+      } catch (InvalidInputException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    }
 
-      case Table.MESSAGEML_TAG:
-        return new Table(parent);
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
 
-      case TableHeader.MESSAGEML_TAG:
-        return new TableHeader(parent);
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
 
-      case TableBody.MESSAGEML_TAG:
-        return new TableBody(parent);
+  /**
+   * Builds the MessageML document tree from SAX events. Each element is created, has its attributes applied and is
+   * validated as soon as its start and end tags are read; adjacent character events are merged into a single text
+   * node.
+   */
+  private class TreeBuilder extends DefaultHandler implements LexicalHandler {
+    private final StringBuilder text = new StringBuilder();
+    private String version;
+    private Element current;
+    private int depth;
+    private MessageML result;
+
+    TreeBuilder(String version) {
+      this.version = version;
+    }
 
-      case TableFooter.MESSAGEML_TAG:
-        return new TableFooter(parent);
+    MessageML getResult() {
+      return result;
+    }
 
-      case TableRow.MESSAGEML_TAG:
-        return new TableRow(parent);
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+      try {
+        flushText();
+        limits.checkDepth(++depth);
+        limits.checkElements(++elements);
 
-      case TableHeaderCell.MESSAGEML_TAG:
-        return new TableHeaderCell(parent);
+        String entityId = attributes.getValue(Entity.ENTITY_ID_ATTR);
+        if (entityId != null) {
+          findEntity(entityId);
+        }
 
-      case TableCell.MESSAGEML_TAG:
-        return new TableCell(parent);
+        Element element = (current == null) ? createRoot(qName) : createElement(qName, attributes, current);
+        if (element instanceof Mention) {
+          limits.checkMentions(++mentions);
+        } else if (element instanceof Link) {
+          limits.checkLinks(++links);
+        }
+        element.buildAttributes(attributes);
+        current = element;
+      } catch (InvalidInputException e) {
+        throw new SAXException(e);
+      }
+    }
 
-      case Card.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new Card(parent, FormatEnum.MESSAGEML);
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      try {
+        flushText();
 
-      case Code.MESSAGEML_TAG:
-        return new Code(parent);
+        Element element = current;
+        if ((deferMentions && element instanceof Mention) || (deferLinks && element instanceof Link)) {
+          pending.add(element); // validated once the external data of the whole message is resolved
+        } else {
+          element.validate();
+        }
+        current = element.getParent();
+        depth--;
 
-      case CardHeader.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new CardHeader(parent, FormatEnum.MESSAGEML);
+        if (current != null) {
+          current.addChild(element);
+        }
+      } catch (InvalidInputException e) {
+        throw new SAXException(e);
+      }
+    }
 
-      case CardBody.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new CardBody(parent, FormatEnum.MESSAGEML);
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (current != null) {
+        text.append(ch, start, length);
+      }
+    }
 
-      case Emoji.MESSAGEML_TAG:
-        return new Emoji(parent, ++index);
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException {
+      invalidNode(target);
+    }
 
-      case Form.MESSAGEML_TAG:
-        return new Form(parent);
+    @Override
+    public void comment(char[] ch, int start, int length) throws SAXException {
+      invalidNode("#comment");
+    }
 
-      case Select.MESSAGEML_TAG:
-        return new Select(parent);
+    @Override
+    public void startCDATA() throws SAXException {
+      invalidNode("#cdata-section");
+    }
 
-      case Option.MESSAGEML_TAG:
-        return new Option(parent);
+    @Override
+    public void endCDATA() {
+    }
 
-      case Button.MESSAGEML_TAG:
-        return new Button(parent);
+    @Override
+    public void startDTD(String name, String publicId, String systemId) {
+    }
 
-      default:
-        throw new InvalidInputException("Invalid MessageML content at element \"" + tag + "\"");
+    @Override
+    public void endDTD() {
     }
-  }
 
-  private Element createEntity(org.w3c.dom.Element element, Element parent) throws InvalidInputException {
-    String entityId = element.getAttribute(Entity.ENTITY_ID_ATTR);
-    String tag = element.getNodeName();
-    List<JsonNode> entityList = entityJson.findValues(entityId);
+    @Override
+    public void startEntity(String name) {
+    }
 
-    if (entityList.isEmpty()) {
-      throw new InvalidInputException("The attribute \"data-entity-id\" is required");
-    } else if (entityList.size() > 1) {
-      throw new InvalidInputException("Duplicate \"data-entity-id\"=\"" + entityId + "\" in entityJSON");
+    @Override
+    public void endEntity(String name) {
     }
 
-    JsonNode entity = entityList.get(0);
-    JsonNode type = entity.path(Entity.TYPE_FIELD);
-    JsonNode value = entity.path(Entity.ID_FIELD).path(0).path(Entity.VALUE_FIELD);
+    private MessageML createRoot(String tag) throws InvalidInputException {
+      switch (tag) {
+        case MessageML.MESSAGEML_TAG:
+          messageFormat = FormatEnum.MESSAGEML;
+          if (StringUtils.isBlank(version)) {
+            version = MessageML.MESSAGEML_VERSION;
+          }
+          break;
 
-    if (!type.isMissingNode() && !value.isMissingNode()) {
-    switch (type.textValue()) {
-      case CashTag.ENTITY_TYPE:
-          return new CashTag(parent, tag, value.asText());
-      case HashTag.ENTITY_TYPE:
-          return new HashTag(parent, tag, value.asText());
-      case Mention.ENTITY_TYPE:
-          return new Mention(parent, tag, value.asLong(), dataProvider);
-      default:
+        case MessageML.PRESENTATIONML_TAG:
+          messageFormat = FormatEnum.PRESENTATIONML;
           break;
+
+        default:
+          throw new InvalidInputException("Root tag must be <" + MessageML.MESSAGEML_TAG + ">"
+              + " or <" + MessageML.PRESENTATIONML_TAG + ">");
       }
+
+      result = new MessageML(messageFormat, version);
+      return result;
     }
 
-    if (Div.MESSAGEML_TAG.equals(tag)) {
-      return new Div(parent);
-    } else if (Span.MESSAGEML_TAG.equals(tag)) {
-      return new Span(parent);
-    } else {
-      throw new InvalidInputException("The element \'" + tag + "\" cannot be an entity");
+    private void flushText() {
+      if (text.length() > 0) {
+        current.addChild(new TextNode(current, text.toString())); // do not escape here
+        text.setLength(0);
+      }
+    }
+
+    private void invalidNode(String name) throws SAXException {
+      // Comments and processing instructions are permitted outside of the root element only
+      if (current != null) {
+        throw new SAXException(new InvalidInputException("Invalid element \"" + name + "\""));
+      }
     }
   }
 
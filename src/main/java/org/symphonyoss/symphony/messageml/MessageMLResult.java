@@ -0,0 +1,366 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.symphonyoss.symphony.messageml.elements.Element;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener.Phase;
+import org.symphonyoss.symphony.messageml.util.Utf8Appendable;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The immutable outcome of parsing a message with {@link MessageMLEngine}: the MessageML document tree and its
+ * output formats (PresentationML, EntityJSON, Markdown, legacy entities and plain text).
+ *
+ * The document tree and the JSON nodes are shared with every caller of the getters and must be treated as read-only.
+ * Results served by a {@link MessageMLResultCache} are copies, so changing one does not affect the cached result;
+ * the copies share the output formats rendered once by the cached result.
+ * Every output format is generated from the document tree on first use and kept for subsequent calls, so callers
+ * only pay for the formats they retrieve. PresentationML can also be streamed straight from the document tree by
+ * {@link #writePresentationML(OutputStream)}.
+ */
+public class MessageMLResult {
+
+  private final MessageML messageML;
+  private final ObjectNode entityData;
+  private final IMetricsListener listener;
+  private volatile ObjectNode entityJson;
+  private volatile String presentationML;
+  private volatile String markdown;
+  private volatile JsonNode entities;
+  private volatile String text;
+
+  /**
+   * @param messageML the MessageML document tree
+   * @param entityData EntityJSON supplied with the message, completed with the entities of the document tree on
+   * first use, or null
+   * @param listener the listener of the rendering of output formats
+   */
+  MessageMLResult(MessageML messageML, ObjectNode entityData, IMetricsListener listener) {
+    this.messageML = messageML;
+    this.entityData = entityData;
+    this.listener = listener;
+  }
+
+  /**
+   * Return a copy of the result with its own document tree and JSON nodes. The output formats already rendered by
+   * this result are immutable strings and are shared with the copy rather than rendered again.
+   */
+  MessageMLResult copy() {
+    MessageMLResult copy = new MessageMLResult((MessageML) messageML.copy(),
+        (entityData != null) ? entityData.deepCopy() : null, listener);
+    ObjectNode json = entityJson;
+    JsonNode legacy = entities; // written after markdown
+
+    copy.entityJson = (json != null) ? json.deepCopy() : null;
+    copy.presentationML = presentationML;
+    copy.text = text;
+
+    if (legacy != null) {
+      copy.markdown = markdown;
+      copy.entities = legacy.deepCopy();
+    }
+
+    return copy;
+  }
+
+  /**
+   * Render every output format, so that copies of this result share them.
+   */
+  void render() throws InvalidInputException, ProcessingException {
+    getPresentationML();
+    getEntityJson();
+    getText();
+
+    try {
+      renderMarkdown();
+    } catch (IllegalStateException e) {
+      // The message cannot be represented in Markdown, getMarkdown() reports it to the callers who ask
+    }
+  }
+
+  /**
+   * Retrieve the MessageML document tree.
+   */
+  public MessageML getMessageML() {
+    return messageML;
+  }
+
+  /**
+   * Retrieve a string representation of the message in PresentationML.
+   */
+  public String getPresentationML() {
+    String result = presentationML;
+
+    if (result == null) {
+      long start = System.nanoTime();
+      StringBuilder out = new StringBuilder();
+      messageML.asPresentationML(new XmlWriter(out)); // StringBuilder does not throw IOException
+      result = out.toString();
+      presentationML = result;
+      listener.onPhase(Phase.PRESENTATIONML, System.nanoTime() - start);
+      listener.onOutput(Phase.PRESENTATIONML, result.length());
+    }
+
+    return result;
+  }
+
+  /**
+   * Write the message in PresentationML to an output stream in UTF-8, without building it as a string first.
+   * The stream is flushed but not closed.
+   * @throws IOException thrown on errors writing to the stream
+   */
+  public void writePresentationML(OutputStream out) throws IOException {
+    Utf8Appendable utf8 = new Utf8Appendable(out);
+    writePresentationML(utf8);
+    utf8.flush();
+  }
+
+  /**
+   * Append the message in PresentationML to a character sink, e.g. a {@link StringBuilder} or a
+   * {@link java.io.Writer}, without building it as a string first.
+   * @throws IOException thrown on errors writing to the sink
+   */
+  public void writePresentationML(Appendable out) throws IOException {
+    String result = presentationML;
+
+    if (result != null) {
+      out.append(result);
+    } else {
+      renderPresentationML(out);
+    }
+  }
+
+  /**
+   * Retrieve a JSON representation of entity data (EntityJSON).
+   */
+  public ObjectNode getEntityJson() {
+    ObjectNode result = entityJson;
+
+    if (result == null) {
+      synchronized (this) {
+        result = entityJson;
+
+        if (result == null) {
+          long start = System.nanoTime();
+          result = messageML.asEntityJson(entityData);
+          entityJson = result;
+          listener.onPhase(Phase.ENTITY_JSON_RENDERING, System.nanoTime() - start);
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Retrieve a string representation of the message in Markdown.
+   * @throws IllegalStateException thrown if the message cannot be represented in Markdown
+   */
+  public String getMarkdown() {
+    if (entities == null) {
+      renderMarkdown();
+    }
+
+    return markdown;
+  }
+
+  /**
+   * Retrieve message entities (tags, mentions, urls) in the legacy JSON format.
+   * @throws IllegalStateException thrown if the message cannot be represented in Markdown
+   */
+  public JsonNode getEntities() {
+    JsonNode result = entities;
+
+    if (result == null) {
+      renderMarkdown();
+      result = entities;
+    }
+
+    return result;
+  }
+
+  /**
+   * Retrieve a string representation of the message by getting the values of
+   * its PresentationML elements.
+   * This method returns the text content of the top-level document tree.
+   */
+  public String getText() throws InvalidInputException, ProcessingException {
+    String result = text;
+
+    if (result == null) {
+      long start = System.nanoTime();
+      StringBuilder out = new StringBuilder();
+      messageML.asPresentationML(new XmlWriter(out, true)); // StringBuilder does not throw IOException
+      result = out.toString();
+      text = result;
+      listener.onPhase(Phase.TEXT, System.nanoTime() - start);
+      listener.onOutput(Phase.TEXT, result.length());
+    }
+
+    return result;
+  }
+
+  /**
+   * Retrieve a string representation of the message by getting the values of
+   * its PresentationML elements.
+   * This method returns the text content of each individual node of the tree,
+   * separated by a single space
+   * @param preserveWhitespace if false, trims the leading and trailing whitespce of each element
+   */
+  public String getText(boolean preserveWhitespace) throws InvalidInputException, ProcessingException {
+    StringBuilder out = new StringBuilder();
+
+    try {
+      writeText(out, preserveWhitespace);
+    } catch (IOException e) {
+      throw new ProcessingException("Failed to extract text", e); // not thrown by StringBuilder
+    }
+
+    return out.toString();
+  }
+
+  /**
+   * Append the text content of the message, as returned by {@link #getText()}, to a character sink.
+   * @throws IOException thrown on errors writing to the sink
+   */
+  public void writeText(Appendable out) throws IOException {
+    String result = text;
+
+    if (result != null) {
+      out.append(result);
+    } else {
+      long start = System.nanoTime();
+      XmlWriter writer = new XmlWriter(out, true);
+      messageML.asPresentationML(writer);
+
+      if (writer.checkError()) {
+        throw writer.getError();
+      }
+
+      listener.onPhase(Phase.TEXT, System.nanoTime() - start);
+      listener.onOutput(Phase.TEXT, writer.getLength());
+    }
+  }
+
+  /**
+   * Append the text content of the message, as returned by {@link #getText(boolean)}, to a character sink.
+   * @param preserveWhitespace if false, trims the leading and trailing whitespce of each element
+   * @throws IOException thrown on errors writing to the sink
+   */
+  public void writeText(Appendable out, boolean preserveWhitespace) throws IOException {
+    long start = System.nanoTime();
+    StringBuilder node = null;
+    boolean textNode = false;
+    boolean first = true;
+    int length = 0;
+
+    for (Element child : messageML.getChildren()) {
+      StringBuilder content = new StringBuilder();
+      XmlWriter writer = new XmlWriter(content, true);
+      child.asPresentationML(writer);
+
+      boolean text = writer.getElementCount() == 0;
+
+      if (text && content.length() == 0) {
+        continue;
+      } else if (text && textNode) {
+        node.append(content); // adjacent text forms a single node of the document
+        continue;
+      }
+
+      if (node != null) {
+        length += appendNode(out, node, !first, preserveWhitespace);
+        first = false;
+      }
+
+      node = content;
+      textNode = text;
+    }
+
+    if (node != null) {
+      length += appendNode(out, node, !first, preserveWhitespace);
+    }
+
+    listener.onPhase(Phase.TEXT, System.nanoTime() - start);
+    listener.onOutput(Phase.TEXT, length);
+  }
+
+  /**
+   * @return the number of characters appended
+   */
+  private static int appendNode(Appendable out, CharSequence node, boolean separate, boolean preserveWhitespace)
+      throws IOException {
+    String content = preserveWhitespace ? node.toString() : node.toString().trim();
+    int length = content.length();
+
+    // Prepend space unless we're at the first node or we trim whitespace and current text is blank
+    if (separate && StringUtils.isNotEmpty(content)) {
+      out.append(' ');
+      length++;
+    }
+
+    out.append(content);
+    return length;
+  }
+
+  /**
+   * Render the message in Markdown and the legacy JSON entities, which are produced together.
+   */
+  private synchronized void renderMarkdown() {
+    if (entities == null) {
+      long start = System.nanoTime();
+      MarkdownRenderer markdownRenderer;
+
+      try {
+        markdownRenderer = new MarkdownRenderer(messageML.asMarkdown());
+      } catch (InvalidInputException e) {
+        throw new IllegalStateException(e.getMessage(), e);
+      }
+
+      markdown = markdownRenderer.getText();
+      entities = markdownRenderer.getJson();
+      listener.onPhase(Phase.MARKDOWN, System.nanoTime() - start);
+      listener.onOutput(Phase.MARKDOWN, markdown.length());
+    }
+  }
+
+  private void renderPresentationML(Appendable appendable) throws IOException {
+    long start = System.nanoTime();
+    XmlWriter out = new XmlWriter(appendable);
+
+    messageML.asPresentationML(out);
+
+    if (out.checkError()) {
+      throw out.getError();
+    }
+
+    listener.onPhase(Phase.PRESENTATIONML, System.nanoTime() - start);
+    listener.onOutput(Phase.PRESENTATIONML, out.getLength());
+  }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml;
+
+import org.symphonyoss.symphony.messageml.elements.Element;
+import org.symphonyoss.symphony.messageml.elements.Link;
+import org.symphonyoss.symphony.messageml.elements.Mention;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.CacheStats;
+import org.symphonyoss.symphony.messageml.util.ExpiringCache;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A thread-safe, bounded cache of the results of parsing MessageML messages, for applications sending the same message
+ * and EntityJSON many times. Results are keyed by the engine which parsed them, its {@link ParserLimits} and the
+ * SHA-256 digest of the message, the EntityJSON and the version, so the cache does not keep the inputs themselves and
+ * never serves a result parsed by one engine, with its data provider and limits, to another.
+ *
+ * Each caller receives its own copy of the cached {@link MessageMLResult}, with a separate document tree and
+ * EntityJSON, so changes made by one caller are not seen by others. The output formats are rendered once, when the
+ * result is cached, and shared by every copy. Only successfully parsed messages are cached.
+ *
+ * Results which mention users or contain links depend on the lookups of the data provider at the time of parsing.
+ * Every result expires after the time to live ({@link #DEFAULT_TTL_SECONDS} by default) even if it is still used, so
+ * such data is never older than the time to live; match it with the one of the data provider's own cache. Use
+ * {@link #invalidateUser(Long, String)} and {@link #invalidateUri(URI)} to drop results earlier when that data changes.
+ */
+public class MessageMLResultCache {
+  public static final int DEFAULT_MAX_SIZE = 1000;
+  public static final long DEFAULT_TTL_SECONDS = 300;
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  private final long ttlMillis;
+  private final ExpiringCache<Key, Entry> results;
+
+  public MessageMLResultCache() {
+    this(DEFAULT_MAX_SIZE, DEFAULT_TTL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * @param maxSize the maximum number of cached results
+   * @param ttl the time to live of cached results, which must be positive
+   * @param unit the time unit of the time to live
+   */
+  public MessageMLResultCache(int maxSize, long ttl, TimeUnit unit) {
+    this(maxSize, ttl, unit, System::currentTimeMillis);
+  }
+
+  MessageMLResultCache(int maxSize, long ttl, TimeUnit unit, LongSupplier clock) {
+    if (ttl <= 0) {
+      throw new IllegalArgumentException("The time to live must be positive");
+    }
+
+    this.ttlMillis = unit.toMillis(ttl);
+    this.results = new ExpiringCache<>(maxSize, clock);
+  }
+
+  /**
+   * Return a copy of the cached result of parsing the message with the engine, or parse it and cache the result.
+   * @see MessageMLEngine#parseMessageML(String, String, String)
+   */
+  public MessageMLResult parseMessageML(MessageMLEngine engine, String message, String entityJson, String version)
+      throws InvalidInputException, ProcessingException, IOException {
+    Key key = new Key(engine, message, entityJson, version);
+    Entry entry = results.get(key);
+
+    if (entry == null) {
+      MessageMLResult result = engine.parseMessageML(message, entityJson, version);
+      result.render();
+      entry = new Entry(result);
+      results.put(key, entry, ttlMillis);
+    }
+
+    return entry.result.copy();
+  }
+
+  /**
+   * Remove the cached results mentioning a user, by UID or by email.
+   * @return the number of removed results
+   */
+  public int invalidateUser(Long uid, String emailAddress) {
+    return results.removeIf(entry -> entry.dependencies.contains(uid)
+        || (emailAddress != null && entry.dependencies.contains(emailAddress)));
+  }
+
+  /**
+   * Remove the cached results containing a link to the URI.
+   * @return the number of removed results
+   */
+  public int invalidateUri(URI uri) {
+    return results.removeIf(entry -> entry.dependencies.contains(uri));
+  }
+
+  /**
+   * Remove all cached results.
+   */
+  public void invalidateAll() {
+    results.clear();
+  }
+
+  /**
+   * Return the number of cached results.
+   */
+  public int size() {
+    return results.size();
+  }
+
+  /**
+   * Return the counters of the cache.
+   */
+  public CacheStats getStats() {
+    return results.getStats();
+  }
+
+  /**
+   * A cached result with the user UIDs, emails and URIs it was built from. The result itself is never handed out.
+   */
+  private static class Entry {
+    private final MessageMLResult result;
+    private final Set<Object> dependencies = new HashSet<>();
+
+    Entry(MessageMLResult result) {
+      this.result = result;
+      collectDependencies(result.getMessageML());
+    }
+
+    private void collectDependencies(Element element) {
+      if (element instanceof Mention) {
+        Mention mention = (Mention) element;
+        IUserPresentation user = mention.getUserPresentation();
+
+        addDependency(mention.getUid());
+        addDependency(mention.getEmail());
+
+        if (user != null) {
+          addDependency(user.getId());
+          addDependency(user.getEmail());
+        }
+      } else if (element instanceof Link) {
+        addDependency(((Link) element).getUri());
+      }
+
+      for (Element child : element.getChildren()) {
+        collectDependencies(child);
+      }
+    }
+
+    private void addDependency(Object dependency) {
+      if (dependency != null) {
+        dependencies.add(dependency);
+      }
+    }
+  }
+
+  /**
+   * The parsing engine and its limits, compared by identity, and the SHA-256 digest of the parser input. Each field
+   * of the input is preceded by its length, or -1 for null, so that distinct inputs never hash the same bytes.
+   */
+  private static final class Key {
+    private final MessageMLEngine engine;
+    private final ParserLimits limits;
+    private final byte[] digest;
+    private final int hashCode;
+
+    Key(MessageMLEngine engine, String message, String entityJson, String version) {
+      MessageDigest md = newDigest();
+      update(md, message);
+      update(md, entityJson);
+      update(md, version);
+
+      this.engine = engine;
+      this.limits = engine.getLimits();
+      this.digest = md.digest();
+      this.hashCode = 31 * System.identityHashCode(engine) + Arrays.hashCode(digest);
+    }
+
+    private static void update(MessageDigest md, String field) {
+      if (field == null) {
+        md.update(ByteBuffer.allocate(4).putInt(-1).array());
+      } else {
+        byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+        md.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        md.update(bytes);
+      }
+    }
+
+    private static MessageDigest newDigest() {
+      try {
+        return MessageDigest.getInstance(DIGEST_ALGORITHM);
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(DIGEST_ALGORITHM + " is not supported", e); // required of every JRE
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      Key other = (Key) o;
+      return engine == other.engine && limits == other.limits && Arrays.equals(digest, other.digest);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml;
+
+import freemarker.template.Template;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+
+import java.io.IOException;
+
+/**
+ * A MessageMLV2 message compiled by {@link MessageMLEngine#compileTemplate(String, String)} for rendering with
+ * many EntityJSON payloads. The Freemarker template is parsed once, when the message is compiled; each call of
+ * {@link #render(String)} only expands it with the given data and builds the document tree of the expanded message.
+ *
+ * A template is immutable and may be rendered by any number of threads at once.
+ */
+public class MessageMLTemplate {
+
+  private final MessageMLEngine engine;
+  private final String message;
+  private final String version;
+  private final Template template;
+
+  /**
+   * @param template the compiled Freemarker template, or null if the message has no template directives
+   */
+  MessageMLTemplate(MessageMLEngine engine, String message, String version, Template template) {
+    this.engine = engine;
+    this.message = message;
+    this.version = version;
+    this.template = template;
+  }
+
+  /**
+   * Expand the template with the EntityJSON data and parse the resulting MessageMLV2 message.
+   * @param entityJson string containing EntityJSON data
+   * @return the parsed message and its output formats
+   * @throws InvalidInputException thrown on invalid MessageMLV2 input or input exceeding the limits of the engine
+   * @throws ProcessingException thrown on errors generating the document tree
+   * @throws IOException thrown on invalid EntityJSON input
+   */
+  public MessageMLResult render(String entityJson) throws InvalidInputException, ProcessingException, IOException {
+    return engine.render(this, entityJson);
+  }
+
+  /**
+   * Return the source of the message.
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Return the version of the message format, or null if the version of the parsed message applies.
+   */
+  public String getVersion() {
+    return version;
+  }
+
+  /**
+   * Check whether the message contains Freemarker directives, i.e. whether its rendering depends on EntityJSON data
+   * beyond the entities it refers to.
+   */
+  public boolean hasTemplateDirectives() {
+    return template != null;
+  }
+
+  Template getTemplate() {
+    return template;
+  }
+
+}
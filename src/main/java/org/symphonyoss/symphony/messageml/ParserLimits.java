@@ -0,0 +1,271 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+
+/**
+ * Upper bounds on the size and complexity of the messages accepted by {@link MessageMLEngine}. Each limit is checked
+ * as soon as the corresponding part of the message is read, so an oversized message is rejected with an
+ * {@link InvalidInputException} before the rest of it is processed.
+ *
+ * Sizes are measured in bytes of the UTF-8 encoding. The depth of the root element is 1, and mentions and links
+ * are counted among the elements. The EntityJSON limits apply to MessageML messages only.
+ *
+ * Instances are immutable; each <i>with</i> method returns a copy with a single limit changed.
+ */
+public final class ParserLimits {
+
+  /**
+   * No limits, the default of {@link MessageMLEngine}.
+   */
+  public static final ParserLimits NONE = new ParserLimits();
+
+  private static final int UNLIMITED = Integer.MAX_VALUE;
+
+  private final int maxInputSize;
+  private final int maxExpandedSize;
+  private final int maxEntityJsonSize;
+  private final int maxDepth;
+  private final int maxElements;
+  private final int maxMentions;
+  private final int maxLinks;
+
+  public ParserLimits() {
+    this(UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED);
+  }
+
+  private ParserLimits(int maxInputSize, int maxExpandedSize, int maxEntityJsonSize, int maxDepth, int maxElements,
+      int maxMentions, int maxLinks) {
+    this.maxInputSize = maxInputSize;
+    this.maxExpandedSize = maxExpandedSize;
+    this.maxEntityJsonSize = maxEntityJsonSize;
+    this.maxDepth = maxDepth;
+    this.maxElements = maxElements;
+    this.maxMentions = maxMentions;
+    this.maxLinks = maxLinks;
+  }
+
+  /**
+   * Limit the size of the message as supplied by the caller.
+   */
+  public ParserLimits withMaxInputSize(int bytes) {
+    return new ParserLimits(positive(bytes), maxExpandedSize, maxEntityJsonSize, maxDepth, maxElements, maxMentions,
+        maxLinks);
+  }
+
+  /**
+   * Limit the size of the message after the expansion of Freemarker templates.
+   */
+  public ParserLimits withMaxExpandedSize(int bytes) {
+    return new ParserLimits(maxInputSize, positive(bytes), maxEntityJsonSize, maxDepth, maxElements, maxMentions,
+        maxLinks);
+  }
+
+  /**
+   * Limit the size of the EntityJSON supplied with the message.
+   */
+  public ParserLimits withMaxEntityJsonSize(int bytes) {
+    return new ParserLimits(maxInputSize, maxExpandedSize, positive(bytes), maxDepth, maxElements, maxMentions,
+        maxLinks);
+  }
+
+  /**
+   * Limit the nesting depth of elements.
+   */
+  public ParserLimits withMaxDepth(int depth) {
+    return new ParserLimits(maxInputSize, maxExpandedSize, maxEntityJsonSize, positive(depth), maxElements,
+        maxMentions, maxLinks);
+  }
+
+  /**
+   * Limit the total number of elements.
+   */
+  public ParserLimits withMaxElements(int count) {
+    return new ParserLimits(maxInputSize, maxExpandedSize, maxEntityJsonSize, maxDepth, positive(count), maxMentions,
+        maxLinks);
+  }
+
+  /**
+   * Limit the number of user mentions.
+   */
+  public ParserLimits withMaxMentions(int count) {
+    return new ParserLimits(maxInputSize, maxExpandedSize, maxEntityJsonSize, maxDepth, maxElements, nonNegative(count),
+        maxLinks);
+  }
+
+  /**
+   * Limit the number of links.
+   */
+  public ParserLimits withMaxLinks(int count) {
+    return new ParserLimits(maxInputSize, maxExpandedSize, maxEntityJsonSize, maxDepth, maxElements, maxMentions,
+        nonNegative(count));
+  }
+
+  public int getMaxInputSize() {
+    return maxInputSize;
+  }
+
+  public int getMaxExpandedSize() {
+    return maxExpandedSize;
+  }
+
+  public int getMaxEntityJsonSize() {
+    return maxEntityJsonSize;
+  }
+
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  public int getMaxElements() {
+    return maxElements;
+  }
+
+  public int getMaxMentions() {
+    return maxMentions;
+  }
+
+  public int getMaxLinks() {
+    return maxLinks;
+  }
+
+  /**
+   * Throw an exception if the message supplied by the caller exceeds the maximum size.
+   */
+  public void checkInputSize(CharSequence message) throws InvalidInputException {
+    if (exceeds(message, maxInputSize)) {
+      throw new InvalidInputException("Message exceeds the maximum size of " + maxInputSize + " bytes");
+    }
+  }
+
+  /**
+   * Throw an exception if the EntityJSON supplied with the message exceeds the maximum size.
+   */
+  public void checkEntityJsonSize(CharSequence entityJson) throws InvalidInputException {
+    if (exceeds(entityJson, maxEntityJsonSize)) {
+      throw new InvalidInputException("EntityJSON exceeds the maximum size of " + maxEntityJsonSize + " bytes");
+    }
+  }
+
+  /**
+   * Throw an exception if the number of bytes output so far by the expansion of templates exceeds the maximum size.
+   */
+  public void checkExpandedSize(long size) throws InvalidInputException {
+    if (size > maxExpandedSize) {
+      throw new InvalidInputException("Expanded message exceeds the maximum size of " + maxExpandedSize + " bytes");
+    }
+  }
+
+  /**
+   * Throw an exception if an element is nested deeper than permitted.
+   */
+  public void checkDepth(int depth) throws InvalidInputException {
+    if (depth > maxDepth) {
+      throw new InvalidInputException("Message exceeds the maximum nesting depth of " + maxDepth);
+    }
+  }
+
+  /**
+   * Throw an exception if the number of elements read so far exceeds the maximum.
+   */
+  public void checkElements(int count) throws InvalidInputException {
+    if (count > maxElements) {
+      throw new InvalidInputException("Message exceeds the maximum number of elements (" + maxElements + ")");
+    }
+  }
+
+  /**
+   * Throw an exception if the number of mentions read so far exceeds the maximum.
+   */
+  public void checkMentions(int count) throws InvalidInputException {
+    if (count > maxMentions) {
+      throw new InvalidInputException("Message exceeds the maximum number of mentions (" + maxMentions + ")");
+    }
+  }
+
+  /**
+   * Throw an exception if the number of links read so far exceeds the maximum.
+   */
+  public void checkLinks(int count) throws InvalidInputException {
+    if (count > maxLinks) {
+      throw new InvalidInputException("Message exceeds the maximum number of links (" + maxLinks + ")");
+    }
+  }
+
+  /**
+   * Return the number of bytes of the UTF-8 encoding of a range of characters. A surrogate pair is encoded in four
+   * bytes, two for each of its halves.
+   */
+  static int utf8Length(CharSequence text, int offset, int length) {
+    int size = 0;
+
+    for (int i = offset; i < offset + length; i++) {
+      size += utf8Length(text.charAt(i));
+    }
+
+    return size;
+  }
+
+  private static int utf8Length(char ch) {
+    if (ch < 0x80) {
+      return 1;
+    } else if (ch < 0x800 || Character.isSurrogate(ch)) {
+      return 2;
+    } else {
+      return 3;
+    }
+  }
+
+  /**
+   * Check whether the UTF-8 encoding of the text is longer than the limit, only counting the bytes of text which
+   * could not fit otherwise.
+   */
+  private static boolean exceeds(CharSequence text, int limit) {
+    int length = text.length();
+
+    if (length > limit) {
+      return true;
+    } else if ((long) length * 3 <= limit) {
+      return false;
+    }
+
+    long size = 0;
+
+    for (int i = 0; i < length && size <= limit; i++) {
+      size += utf8Length(text.charAt(i));
+    }
+
+    return size > limit;
+  }
+
+  private static int positive(int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("The limit must be positive: " + limit);
+    }
+    return limit;
+  }
+
+  private static int nonNegative(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("The limit cannot be negative: " + limit);
+    }
+    return limit;
+  }
+
+}
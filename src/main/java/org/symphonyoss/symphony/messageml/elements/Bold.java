@@ -34,6 +34,15 @@ public class Bold extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private Bold(Element parent, Bold source) {
+    super(parent, source);
+  }
+
+  @Override
+  Bold copy(Element parent) {
+    return new Bold(parent, this);
+  }
+
   @Override
   public Node asMarkdown() {
     return new StrongEmphasis(MARKDOWN);
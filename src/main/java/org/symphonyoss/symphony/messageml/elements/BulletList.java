@@ -19,7 +19,6 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
-import java.util.Collections;
 
 /**
  * Class representing a bulleted list container.
@@ -29,11 +28,21 @@ import java.util.Collections;
  */
 public class BulletList extends Element {
   public static final String MESSAGEML_TAG = "ul";
+  private static final ContentModel CONTENT_MODEL = ContentModel.of(ListItem.class);
 
   public BulletList(Element parent) {
     super(parent, MESSAGEML_TAG);
   }
 
+  private BulletList(Element parent, BulletList source) {
+    super(parent, source);
+  }
+
+  @Override
+  BulletList copy(Element parent) {
+    return new BulletList(parent, this);
+  }
+
   @Override
   public Node asMarkdown() {
     org.commonmark.node.BulletList ul = new org.commonmark.node.BulletList();
@@ -45,7 +54,7 @@ public class BulletList extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Collections.<Class<? extends Element>>singleton(ListItem.class));
+    assertContentModel(CONTENT_MODEL);
   }
 
 }
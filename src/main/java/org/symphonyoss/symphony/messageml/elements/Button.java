@@ -5,7 +5,6 @@ import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.ButtonNode;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -19,6 +18,7 @@ import java.util.Set;
 public class Button extends FormElement {
 
   public static final String MESSAGEML_TAG = "button";
+  private static final ContentModel CONTENT_MODEL = ContentModel.of(TextNode.class);
   public static final String NAME_ATTR = "name";
   public static final String TYPE_ATTR = "type";
   public static final Set<String> VALID_CLASSES = new HashSet<>(Arrays.asList("primary", "secondary",
@@ -30,23 +30,40 @@ public class Button extends FormElement {
     setAttribute(TYPE_ATTR, "action");
   }
 
+  private Button(Element parent, Button source) {
+    super(parent, source);
+  }
+
   @Override
+  Button copy(Element parent) {
+    return new Button(parent, this);
+  }
+
+  /**
+   * @deprecated use {@link #buildAttribute(String, String)}
+   */
+  @Deprecated
   public void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+    buildAttribute(item.getNodeName(), item.getNodeValue());
+  }
+
+  @Override
+  public void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case NAME_ATTR:
-        setAttribute(NAME_ATTR, getStringAttribute(item).toLowerCase());
+        setAttribute(NAME_ATTR, value.toLowerCase());
         break;
 
       case TYPE_ATTR:
-        setAttribute(TYPE_ATTR, getStringAttribute(item).toLowerCase());
+        setAttribute(TYPE_ATTR, value.toLowerCase());
         break;
 
       case CLASS_ATTR:
-        setAttribute(CLASS_ATTR, getStringAttribute(item).toLowerCase());
+        setAttribute(CLASS_ATTR, value.toLowerCase());
         break;
 
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
                 + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
@@ -74,6 +91,6 @@ public class Button extends FormElement {
     if (type.equals("action") && StringUtils.isBlank(name)) {
       throw new InvalidInputException("Attribute \"name\" is required for generic action buttons");
     }
-    assertContentModel(Collections.singleton(TextNode.class));
+    assertContentModel(CONTENT_MODEL);
   }
 }
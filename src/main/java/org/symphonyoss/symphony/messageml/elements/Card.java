@@ -17,7 +17,7 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -43,24 +43,39 @@ public class Card extends Element {
     super(parent, MESSAGEML_TAG, format);
   }
 
+  private Card(Element parent, Card source) {
+    super(parent, source);
+  }
+
+  @Override
+  Card copy(Element parent) {
+    return new Card(parent, this);
+  }
+
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
+      case CLASS_ATTR:
+        String classes = (format == FormatEnum.PRESENTATIONML) ? removeClass(value, PRESENTATIONML_CLASS) : value;
+        if (classes != null) {
+          super.buildAttribute(name, classes);
+        }
+        break;
       case PRESENTATIONML_ICON:
       case ATTR_ICON:
-        setAttribute(ATTR_ICON, getStringAttribute(item));
+        setAttribute(ATTR_ICON, value);
         break;
       case PRESENTATIONML_ACCENT:
       case ATTR_ACCENT:
-        setAttribute(ATTR_ACCENT, getStringAttribute(item));
+        setAttribute(ATTR_ACCENT, value);
         break;
       default:
-        super.buildAttribute(item);
+        super.buildAttribute(name, value);
     }
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
     Map<String, String> presentationAttrs = new LinkedHashMap<>();
     if (getAttribute(CLASS_ATTR) != null) {
       presentationAttrs.put(CLASS_ATTR, String.format("%s %s", PRESENTATIONML_CLASS, getAttribute(CLASS_ATTR)));
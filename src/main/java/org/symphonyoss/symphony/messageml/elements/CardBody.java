@@ -19,7 +19,7 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.commonmark.node.Node;
 import org.commonmark.node.Paragraph;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 import java.util.Collections;
 
@@ -31,6 +31,7 @@ import java.util.Collections;
 public class CardBody extends Element {
 
   public static final String MESSAGEML_TAG = "body";
+  private static final ContentModel PERMITTED_PARENTS = ContentModel.of(Card.class);
   public static final String PRESENTATIONML_CLASS = "cardBody";
   private static final String PRESENTATIONML_TAG = "div";
 
@@ -38,14 +39,27 @@ public class CardBody extends Element {
     super(parent, MESSAGEML_TAG, format);
   }
 
+  private CardBody(Element parent, CardBody source) {
+    super(parent, source);
+  }
+
+  @Override
+  CardBody copy(Element parent) {
+    return new CardBody(parent, this);
+  }
+
   @Override
-  void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    throw new InvalidInputException("Attribute \"" + item.getNodeName()
+  void buildAttribute(String name, String value) throws InvalidInputException {
+    if (format == FormatEnum.PRESENTATIONML && CLASS_ATTR.equals(name)
+        && removeClass(value, PRESENTATIONML_CLASS) == null) {
+      return;
+    }
+    throw new InvalidInputException("Attribute \"" + name
         + "\" is not allowed in \"" + getMessageMLTag() + "\"");
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
     out.openElement(PRESENTATIONML_TAG, Collections.singletonMap(CLASS_ATTR, PRESENTATIONML_CLASS));
 
     for (Element child : getChildren()) {
@@ -61,9 +75,9 @@ public class CardBody extends Element {
   }
 
   @Override
-  void validate() throws InvalidInputException {
+  public void validate() throws InvalidInputException {
     assertNoAttributes();
-    assertParent(Collections.<Class<? extends Element>>singleton(Card.class));
+    assertParent(PERMITTED_PARENTS);
   }
 
 }
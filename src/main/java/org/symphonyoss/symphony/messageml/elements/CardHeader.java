@@ -19,7 +19,7 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.commonmark.node.Node;
 import org.commonmark.node.Paragraph;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 import java.util.Collections;
 
@@ -39,14 +39,27 @@ public class CardHeader extends Element {
     super(parent, MESSAGEML_TAG, format);
   }
 
+  private CardHeader(Element parent, CardHeader source) {
+    super(parent, source);
+  }
+
+  @Override
+  CardHeader copy(Element parent) {
+    return new CardHeader(parent, this);
+  }
+
   @Override
-  void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    throw new InvalidInputException("Attribute \"" + item.getNodeName()
+  void buildAttribute(String name, String value) throws InvalidInputException {
+    if (format == FormatEnum.PRESENTATIONML && CLASS_ATTR.equals(name)
+        && removeClass(value, PRESENTATIONML_CLASS) == null) {
+      return;
+    }
+    throw new InvalidInputException("Attribute \"" + name
         + "\" is not allowed in \"" + getMessageMLTag() + "\"");
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
     out.openElement(PRESENTATIONML_TAG, Collections.singletonMap(CLASS_ATTR, PRESENTATIONML_CLASS));
 
     for (Element child : getChildren()) {
@@ -62,7 +75,7 @@ public class CardHeader extends Element {
   }
 
   @Override
-  void validate() throws InvalidInputException {
+  public void validate() throws InvalidInputException {
     assertNoAttributes();
   }
 }
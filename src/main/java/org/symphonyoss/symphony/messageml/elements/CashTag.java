@@ -49,6 +49,15 @@ public class CashTag extends Keyword {
     this.tag = value;
   }
 
+  private CashTag(Element parent, CashTag source) {
+    super(parent, source);
+  }
+
+  @Override
+  CashTag copy(Element parent) {
+    return new CashTag(parent, this);
+  }
+
   @Override
   public String asText() {
     return "$" + getTag();
@@ -17,7 +17,7 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 /**
  * Class representing a convenience element for a chime. Translated to an audio element.
@@ -42,11 +42,20 @@ public class Chime extends Element {
     }
   }
 
+  private Chime(Element parent, Chime source) {
+    super(parent, source);
+  }
+
+  @Override
+  Chime copy(Element parent) {
+    return new Chime(parent, this);
+  }
+
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_SRC:
-        if (!getStringAttribute(item).equalsIgnoreCase(SRC)) {
+        if (!value.equalsIgnoreCase(SRC)) {
           throw new InvalidInputException("Attribute \"" + ATTR_SRC
               + "\" value needs to be \"" + SRC + "\"");
         }
@@ -54,13 +63,13 @@ public class Chime extends Element {
       case ATTR_AUTOPLAY:
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
             + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
     out.printElement(PRESENTATIONML_TAG, null, ATTR_SRC, SRC,
         ATTR_AUTOPLAY, "true");
   }
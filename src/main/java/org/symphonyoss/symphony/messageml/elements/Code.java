@@ -36,6 +36,15 @@ public class Code extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private Code(Element parent, Code source) {
+    super(parent, source);
+  }
+
+  @Override
+  Code copy(Element parent) {
+    return new Code(parent, this);
+  }
+
   @Override
   public Node asMarkdown() {
     FencedCodeBlock node = new FencedCodeBlock();
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.elements;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of element types permitted as children or parents of an element. Every element type is assigned a kind
+ * number on first use, so that checking an element against the model is a single bit test.
+ *
+ * Content models are immutable and meant to be declared once per element type as constants.
+ */
+final class ContentModel {
+  private static final AtomicInteger KINDS = new AtomicInteger();
+  private static final ClassValue<Integer> KIND = new ClassValue<Integer>() {
+    @Override
+    protected Integer computeValue(Class<?> type) {
+      return KINDS.getAndIncrement();
+    }
+  };
+
+  private final List<Class<? extends Element>> types;
+  private final BitSet kinds = new BitSet();
+
+  private ContentModel(Collection<Class<? extends Element>> types) {
+    this.types = Collections.unmodifiableList(new ArrayList<>(types));
+
+    for (Class<? extends Element> type : types) {
+      kinds.set(KIND.get(type));
+    }
+  }
+
+  /**
+   * Create a content model permitting the given element types.
+   */
+  @SafeVarargs
+  static ContentModel of(Class<? extends Element>... types) {
+    List<Class<? extends Element>> list = new ArrayList<>(types.length);
+    Collections.addAll(list, types);
+    return new ContentModel(list);
+  }
+
+  /**
+   * Create a content model permitting the given element types.
+   */
+  static ContentModel of(Collection<Class<? extends Element>> types) {
+    return new ContentModel(types);
+  }
+
+  /**
+   * Check whether the content model permits an element.
+   */
+  boolean permits(Element element) {
+    return kinds.get(KIND.get(element.getClass()));
+  }
+
+  /**
+   * Return the permitted element types in the order of their declaration.
+   */
+  List<Class<? extends Element>> getTypes() {
+    return types;
+  }
+}
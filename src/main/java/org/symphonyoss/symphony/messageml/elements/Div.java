@@ -37,23 +37,32 @@ public class Div extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private Div(Element parent, Div source) {
+    super(parent, source);
+  }
+
+  @Override
+  Div copy(Element parent) {
+    return new Div(parent, this);
+  }
+
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_ENTITY_ID:
-        setAttribute(ATTR_ENTITY_ID, getStringAttribute(item));
+        setAttribute(ATTR_ENTITY_ID, value);
         break;
 
       case ATTR_ICON_SRC:
-        setAttribute(ATTR_ICON_SRC, getStringAttribute(item));
+        setAttribute(ATTR_ICON_SRC, value);
         break;
 
       case ATTR_ACCENT_COLOR:
-        setAttribute(ATTR_ACCENT_COLOR, getStringAttribute(item));
+        setAttribute(ATTR_ACCENT_COLOR, value);
         break;
 
       default:
-        super.buildAttribute(item);
+        super.buildAttribute(name, value);
     }
   }
 
@@ -24,14 +24,14 @@ import org.symphonyoss.symphony.messageml.MessageMLParser;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.NodeList;
-import org.w3c.dom.Text;
+import org.xml.sax.Attributes;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -54,6 +54,8 @@ import java.util.Map;
 public abstract class Element {
   public static final String CLASS_ATTR = "class";
   public static final String STYLE_ATTR = "style";
+  static final ContentModel PHRASING_CONTENT = ContentModel.of(TextNode.class, Link.class, Chime.class, Bold.class,
+      Italic.class, Image.class, LineBreak.class, Span.class, Emoji.class, HashTag.class, CashTag.class, Mention.class);
   protected FormatEnum format = FormatEnum.PRESENTATIONML;
   private final Map<String, String> attributes = new LinkedHashMap<>();
   private final List<Element> children = new ArrayList<>();
@@ -61,7 +63,7 @@ public abstract class Element {
   private String messageMLTag;
 
   Element(Element parent) {
-    this(parent, null);
+    this(parent, (String) null);
   }
 
   Element(Element parent, String messageMLTag) {
@@ -74,78 +76,186 @@ public abstract class Element {
     this.format = format;
   }
 
+  /**
+   * Copy constructor, copying the attributes and, recursively, the children of the source element.
+   */
+  Element(Element parent, Element source) {
+    this(parent, source.messageMLTag, source.format);
+    this.attributes.putAll(source.attributes);
+
+    for (Element child : source.children) {
+      this.children.add(child.copy(this));
+    }
+  }
+
+  /**
+   * Parse the attributes of a start tag into MessageML element properties. Attributes are processed in the order
+   * of their names, independently of their order in the message.
+   */
+  public void buildAttributes(Attributes attr) throws InvalidInputException {
+    int length = attr.getLength();
+    int[] order = new int[length];
+
+    for (int i = 0; i < length; i++) {
+      int j = i;
+      while (j > 0 && attr.getQName(order[j - 1]).compareTo(attr.getQName(i)) > 0) {
+        order[j] = order[j - 1];
+        j--;
+      }
+      order[j] = i;
+    }
+
+    for (int i : order) {
+      buildAttribute(attr.getQName(i), attr.getValue(i));
+    }
+  }
+
   /**
    * Process a DOM element, descending into its children, and construct the output MessageML tree.
+   * @deprecated messages are parsed from SAX events, use {@link #buildAttributes(Attributes)} and
+   * {@link MessageMLParser#createElement(String, Attributes, Element)}
    */
+  @Deprecated
   public void buildAll(MessageMLParser context, org.w3c.dom.Element element) throws InvalidInputException,
       ProcessingException {
     NamedNodeMap attr = element.getAttributes();
 
     for (int i = 0; i < attr.getLength(); i++) {
-      buildAttribute(attr.item(i));
+      buildAttribute(attr.item(i).getNodeName(), attr.item(i).getNodeValue());
     }
 
     NodeList children = element.getChildNodes();
 
     for (int i = 0; i < children.getLength(); i++) {
-      buildNode(context, children.item(i));
+      org.w3c.dom.Node node = children.item(i);
+
+      switch (node.getNodeType()) {
+        case org.w3c.dom.Node.TEXT_NODE:
+          addChild(new TextNode(this, node.getTextContent()));
+          break;
+
+        case org.w3c.dom.Node.ELEMENT_NODE:
+          org.w3c.dom.Element childElement = (org.w3c.dom.Element) node;
+          Element child = context.createElement(childElement, this);
+          child.buildAll(context, childElement);
+          child.validate();
+          addChild(child);
+          break;
+
+        default:
+          throw new InvalidInputException("Invalid element \"" + node.getNodeName() + "\"");
+      }
     }
   }
 
   /**
-   * Parse a DOM attribute into MessageML element properties.
+   * Parse an attribute into MessageML element properties.
    */
-  void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case CLASS_ATTR:
-        attributes.put(CLASS_ATTR, getStringAttribute(item));
+        attributes.put(CLASS_ATTR, value);
         break;
       case STYLE_ATTR:
-        final String styleAttribute = getStringAttribute(item);
-        Styles.validate(styleAttribute);
-        attributes.put(STYLE_ATTR, styleAttribute);
+        Styles.validate(value);
+        attributes.put(STYLE_ATTR, value);
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
             + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
 
   /**
-   * Build a text node or a MessageML element based on the provided DOM node.
+   * Check whether a space-separated list of classes contains the given class name.
    */
-  private void buildNode(MessageMLParser context, org.w3c.dom.Node node) throws InvalidInputException, ProcessingException {
-    switch (node.getNodeType()) {
-      case org.w3c.dom.Node.TEXT_NODE:
-        buildText((Text) node);
-        break;
+  public static boolean hasClass(String classes, String className) {
+    return classes != null && indexOfClass(classes, className, false) >= 0;
+  }
 
-      case org.w3c.dom.Node.ELEMENT_NODE:
-        buildElement(context, (org.w3c.dom.Element) node);
-        break;
+  /**
+   * Remove a class name (ignoring case) from a space-separated list of classes, returning null if no other class
+   * remains. The remaining classes are separated by single spaces.
+   */
+  static String removeClass(String classes, String className) {
+    if (indexOfClass(classes, className, true) < 0 && isSingleSpaced(classes)) {
+      return classes.isEmpty() ? null : classes;
+    }
 
-      default:
-        throw new InvalidInputException("Invalid element \"" + node.getNodeName() + "\"");
+    StringBuilder result = new StringBuilder(classes.length());
+    int length = classes.length();
+    int start = 0;
+
+    while (start < length) {
+      if (isSpace(classes.charAt(start))) {
+        start++;
+        continue;
+      }
+
+      int end = start;
+      while (end < length && !isSpace(classes.charAt(end))) {
+        end++;
+      }
+
+      if (end - start != className.length() || !classes.regionMatches(true, start, className, 0, end - start)) {
+        if (result.length() > 0) {
+          result.append(' ');
+        }
+        result.append(classes, start, end);
+      }
 
+      start = end;
     }
+
+    return (result.length() > 0) ? result.toString() : null;
   }
 
   /**
-   * Build a MessageML element based on the provided DOM element and descend into its children.
+   * Return the position of a class name in a space-separated list of classes, or -1 if it is not present.
    */
-  private void buildElement(MessageMLParser context, org.w3c.dom.Element element) throws InvalidInputException,
-      ProcessingException {
-    Element child = context.createElement(element, this);
-    child.buildAll(context, element);
-    child.validate();
-    addChild(child);
+  private static int indexOfClass(String classes, String className, boolean ignoreCase) {
+    int length = classes.length();
+    int start = 0;
+
+    while (start < length) {
+      if (isSpace(classes.charAt(start))) {
+        start++;
+        continue;
+      }
+
+      int end = start;
+      while (end < length && !isSpace(classes.charAt(end))) {
+        end++;
+      }
+
+      if (end - start == className.length() && classes.regionMatches(ignoreCase, start, className, 0, end - start)) {
+        return start;
+      }
+
+      start = end;
+    }
+
+    return -1;
   }
 
   /**
-   * Build the text content of the element.
+   * Check that a list of classes has no leading or trailing whitespace and is separated by single spaces.
    */
-  void buildText(Text text) {
-    addChild(new TextNode(this, text)); // do not escape here
+  private static boolean isSingleSpaced(String classes) {
+    int length = classes.length();
+
+    for (int i = 0; i < length; i++) {
+      if (isSpace(classes.charAt(i))
+          && (classes.charAt(i) != ' ' || i == 0 || i == length - 1 || classes.charAt(i - 1) == ' ')) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean isSpace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
   }
 
   /**
@@ -187,9 +297,9 @@ public abstract class Element {
   }
 
   /**
-   * Print a PresentationML representation of the element and its children to the provided PrintStream.
+   * Print a PresentationML representation of the element and its children to the provided XmlWriter.
    */
-  void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
     out.openElement(getMessageMLTag(), getAttributes());
 
     for (Element child : getChildren()) {
@@ -199,6 +309,17 @@ public abstract class Element {
     out.closeElement();
   }
 
+  /**
+   * Print a PresentationML representation of the element and its children to the provided PrintStream.
+   * @deprecated use {@link #asPresentationML(XmlWriter)}
+   */
+  @Deprecated
+  void asPresentationML(XmlPrintStream out) {
+    XmlWriter writer = new XmlWriter(out); // PrintStream does not throw IOException
+    writer.setRemoveNl(out.isRemoveNl());
+    asPresentationML(writer);
+  }
+
   /**
    * Return a text representation of the element, descending into its children.
    */
@@ -222,62 +343,49 @@ public abstract class Element {
   /**
    * Check the syntax and contents of the element.
    */
-  void validate() throws InvalidInputException {
-  }
-
-  /**
-   * Get a DOM attribute as a String value.
-   */
-  String getStringAttribute(org.w3c.dom.Node attribute) {
-    return attribute.getTextContent();
+  public void validate() throws InvalidInputException {
   }
 
   /**
-   * Get a DOM attribute as a Long value.
+   * Get an attribute as a Long value.
    */
-  Long getLongAttribute(org.w3c.dom.Node attribute) throws InvalidInputException {
-    String s = getStringAttribute(attribute);
-
-    if (s == null) {
+  Long getLongAttribute(String name, String value) throws InvalidInputException {
+    if (value == null) {
       return null;
     }
 
     try {
-      return Long.parseLong(s);
+      return Long.parseLong(value);
     } catch (NumberFormatException e) {
-      throw new InvalidInputException("Invalid input: " + attribute.getNodeName()
-          + " must be a int64 value not \"" + s + "\"");
+      throw new InvalidInputException("Invalid input: " + name
+          + " must be a int64 value not \"" + value + "\"");
     }
   }
 
   /**
-   * Get a DOM attribute as a Boolean value.
+   * Get an attribute as a Boolean value.
    */
-  Boolean getBooleanAttribute(org.w3c.dom.Node attribute)  {
-    String s = getStringAttribute(attribute);
-
-    if (s == null) {
+  Boolean getBooleanAttribute(String value) {
+    if (value == null) {
       return null;
     }
 
-    return Boolean.parseBoolean(s);
+    return Boolean.parseBoolean(value);
   }
 
   /**
-   * Get a DOM attribute as a URI.
+   * Get an attribute as a URI.
    */
-  URI getUrlAttribute(org.w3c.dom.Node attribute) throws InvalidInputException {
-    String s = getStringAttribute(attribute);
-
-    if (s == null) {
+  URI getUrlAttribute(String name, String value) throws InvalidInputException {
+    if (value == null) {
       return null;
     }
 
     try {
-      return new URI(s);
+      return new URI(value);
     } catch (URISyntaxException e) {
-      throw new InvalidInputException("Invalid input: " + attribute.getLocalName()
-          + " must be a URI value not \"" + s + "\"");
+      throw new InvalidInputException("Invalid input: " + name
+          + " must be a URI value not \"" + value + "\"");
     }
   }
 
@@ -315,16 +423,22 @@ public abstract class Element {
    * @throws InvalidInputException
    */
   void assertPhrasingContent() throws InvalidInputException {
-    assertContentModel(Arrays.asList(TextNode.class, Link.class, Chime.class, Bold.class, Italic.class, Image.class,
-        LineBreak.class, Span.class, Emoji.class, HashTag.class, CashTag.class, Mention.class));
+    assertContentModel(PHRASING_CONTENT);
   }
 
   /**
    * Check that the element's children are limited to allowed element types.
    */
   void assertContentModel(Collection<Class<? extends Element>> permittedChildren) throws InvalidInputException {
+    assertContentModel(ContentModel.of(permittedChildren));
+  }
+
+  /**
+   * Check that the element's children are limited to the element types of a content model.
+   */
+  void assertContentModel(ContentModel permittedChildren) throws InvalidInputException {
     for (Element child : this.getChildren()) {
-      if (!permittedChildren.contains(child.getClass())) {
+      if (!permittedChildren.permits(child)) {
 
         //Permit whitespace
         if (child instanceof TextNode && StringUtils.isBlank(((TextNode) child).getText())) {
@@ -341,7 +455,14 @@ public abstract class Element {
    * Check that the element's allowed parents are limited to the specified element types.
    */
   void assertParent(Collection<Class<? extends Element>> permittedParents) throws InvalidInputException {
-    if (!permittedParents.contains(this.getParent().getClass())) {
+    assertParent(ContentModel.of(permittedParents));
+  }
+
+  /**
+   * Check that the element's parent is one of the element types of a content model.
+   */
+  void assertParent(ContentModel permittedParents) throws InvalidInputException {
+    if (!permittedParents.permits(this.getParent())) {
       throw new InvalidInputException("Element \"" + this.getMessageMLTag() + "\" is not allowed as a child of \""
           + this.getParent().getMessageMLTag() + "\"");
     }
@@ -375,6 +496,19 @@ public abstract class Element {
     attributes.put(attr, value);
   }
 
+  /**
+   * Return a deep copy of the element and its children, without a parent. Attributes and children can be changed in
+   * either tree without affecting the other.
+   */
+  public Element copy() {
+    return copy(null);
+  }
+
+  /**
+   * Return a deep copy of the element and its children under the given parent.
+   */
+  abstract Element copy(Element parent);
+
   /**
    * Return a list of the element's children.
    */
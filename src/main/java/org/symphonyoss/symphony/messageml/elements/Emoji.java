@@ -6,8 +6,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.EmojiNode;
 import org.symphonyoss.symphony.messageml.util.EmojiShortcodeToUnicode;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
-import org.w3c.dom.Node;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 
 /**
@@ -47,6 +46,18 @@ public class Emoji extends Entity {
     this.size = DEFAULT_EMOJI_SIZE;
   }
 
+  private Emoji(Element parent, Emoji source) {
+    super(parent, source);
+    this.shortcode = source.shortcode;
+    this.family = source.family;
+    this.size = source.size;
+  }
+
+  @Override
+  Emoji copy(Element parent) {
+    return new Emoji(parent, this);
+  }
+
   public String getShortCode() {
     return this.shortcode;
   }
@@ -60,11 +71,11 @@ public class Emoji extends Entity {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
     out.openElement(presentationMLTag, CLASS_ATTR, Entity.PRESENTATIONML_CLASS, ENTITY_ID_ATTR, entityId);
 
     if (this.getChildren().isEmpty()) {
-      out.append(asDefaultRepresentation());
+      out.print(asDefaultRepresentation());
     } else {
       for (Element child : getChildren()) {
         child.asPresentationML(out);
@@ -145,19 +156,19 @@ public class Emoji extends Entity {
   }
 
   @Override
-  protected void buildAttribute(Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_SHORTCODE:
-        this.shortcode = getStringAttribute(item);
+        this.shortcode = value;
         break;
       case ATTR_FAMILY:
-        this.family = getStringAttribute(item);
+        this.family = value;
         break;
       case ATTR_SIZE:
-        this.size = getStringAttribute(item);
+        this.size = value;
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName() + "\" is not allowed in \"" + getMessageMLTag() + "\"");
+        throw new InvalidInputException("Attribute \"" + name + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
 
@@ -43,17 +43,23 @@ public abstract class Entity extends Element {
     this.presentationMLTag = presentationMlTag;
   }
 
+  Entity(Element parent, Entity source) {
+    super(parent, source);
+    this.presentationMLTag = source.presentationMLTag;
+    this.entityId = source.entityId;
+  }
+
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ENTITY_ID_ATTR:
-        this.entityId = item.getTextContent();
+        this.entityId = value;
         break;
       default:
         if (format == FormatEnum.PRESENTATIONML) {
-          super.buildAttribute(item);
+          super.buildAttribute(name, value);
         } else {
-          throw new InvalidInputException("Attribute \"" + item.getNodeName()
+          throw new InvalidInputException("Attribute \"" + name
               + "\" is not allowed in \"" + getMessageMLTag() + "\"");
         }
     }
@@ -16,6 +16,15 @@ public class Form extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private Form(Element parent, Form source) {
+    super(parent, source);
+  }
+
+  @Override
+  Form copy(Element parent) {
+    return new Form(parent, this);
+  }
+
   @Override
   public org.commonmark.node.Node asMarkdown() {
     return new FormNode();
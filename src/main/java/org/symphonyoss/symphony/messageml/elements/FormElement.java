@@ -3,9 +3,10 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
 import java.util.Collection;
-import java.util.Collections;
 
 public class FormElement extends Element {
+  private static final ContentModel PERMITTED_PARENTS = ContentModel.of(Form.class);
+
   FormElement(Element parent) {
     super(parent);
   }
@@ -18,15 +19,29 @@ public class FormElement extends Element {
     super(parent, messageMLTag, format);
   }
 
+  FormElement(Element parent, FormElement source) {
+    super(parent, source);
+  }
+
+  @Override
+  FormElement copy(Element parent) {
+    return new FormElement(parent, this);
+  }
+
   @Override
   public void validate() throws InvalidInputException {
-    assertParent(Collections.singleton(Form.class));
+    assertParent(PERMITTED_PARENTS);
   }
 
   @Override
   public void assertParent(Collection<Class<? extends Element>> permittedParents) throws InvalidInputException {
-    if (!permittedParents.contains(this.getParent().getClass())) {
-      String permittedParentsClassAsString = permittedParents.stream()
+    assertParent(ContentModel.of(permittedParents));
+  }
+
+  @Override
+  void assertParent(ContentModel permittedParents) throws InvalidInputException {
+    if (!permittedParents.permits(this.getParent())) {
+      String permittedParentsClassAsString = permittedParents.getTypes().stream()
           .map(permittedParentClass -> permittedParentClass.getSimpleName().toLowerCase())
           .reduce((item, anotherItem) -> String.format("%s, %s", item, anotherItem))
           .orElse("");
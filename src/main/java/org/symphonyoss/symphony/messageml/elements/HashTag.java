@@ -49,6 +49,15 @@ public class HashTag extends Keyword {
     this.tag = value;
   }
 
+  private HashTag(Element parent, HashTag source) {
+    super(parent, source);
+  }
+
+  @Override
+  HashTag copy(Element parent) {
+    return new HashTag(parent, this);
+  }
+
   @Override
   public String asText() {
     return "#" + getTag();
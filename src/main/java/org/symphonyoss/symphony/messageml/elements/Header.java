@@ -37,6 +37,15 @@ public class Header extends Element {
     super(parent, tag);
   }
 
+  private Header(Element parent, Header source) {
+    super(parent, source);
+  }
+
+  @Override
+  Header copy(Element parent) {
+    return new Header(parent, this);
+  }
+
   @Override
   public Node asMarkdown() {
     return new StrongEmphasis(MARKDOWN);
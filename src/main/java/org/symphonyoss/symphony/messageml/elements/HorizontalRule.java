@@ -18,7 +18,7 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 /**
  * Class representing a horizontal rule.
@@ -35,14 +35,23 @@ public class HorizontalRule extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private HorizontalRule(Element parent, HorizontalRule source) {
+    super(parent, source);
+  }
+
+  @Override
+  HorizontalRule copy(Element parent) {
+    return new HorizontalRule(parent, this);
+  }
+
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
     out.printElement(MESSAGEML_TAG);
   }
 
   @Override
-  void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    throw new InvalidInputException("Attribute \"" + item.getNodeName()
+  void buildAttribute(String name, String value) throws InvalidInputException {
+    throw new InvalidInputException("Attribute \"" + name
         + "\" is not allowed in \"" + getMessageMLTag() + "\"");
   }
 
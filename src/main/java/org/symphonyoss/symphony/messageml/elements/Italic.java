@@ -34,6 +34,15 @@ public class Italic extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private Italic(Element parent, Italic source) {
+    super(parent, source);
+  }
+
+  @Override
+  Italic copy(Element parent) {
+    return new Italic(parent, this);
+  }
+
   @Override
   public Node asMarkdown() {
     return new Emphasis(MARKDOWN);
@@ -17,7 +17,7 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 /**
  * Base class of convenience elements for hash and cash tags.
@@ -37,14 +37,19 @@ abstract class Keyword extends Entity {
     super(parent, messageMLTag, presentationMlTag, format);
   }
 
+  Keyword(Element parent, Keyword source) {
+    super(parent, source);
+    this.tag = source.tag;
+  }
+
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_TAG:
-        this.tag = item.getTextContent();
+        this.tag = value;
         break;
       default:
-          super.buildAttribute(item);
+          super.buildAttribute(name, value);
     }
   }
 
@@ -71,7 +76,7 @@ abstract class Keyword extends Entity {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
     out.printElement(presentationMLTag, asText(), CLASS_ATTR, Entity.PRESENTATIONML_CLASS, ENTITY_ID_ATTR, entityId);
   }
 
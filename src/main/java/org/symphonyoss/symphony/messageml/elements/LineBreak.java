@@ -19,7 +19,7 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.commonmark.node.HardLineBreak;
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 /**
  * Class representing a line break.
@@ -34,14 +34,23 @@ public class LineBreak extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private LineBreak(Element parent, LineBreak source) {
+    super(parent, source);
+  }
+
+  @Override
+  LineBreak copy(Element parent) {
+    return new LineBreak(parent, this);
+  }
+
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
     out.printElement(MESSAGEML_TAG);
   }
 
   @Override
-  void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    throw new InvalidInputException("Attribute \"" + item.getNodeName()
+  void buildAttribute(String name, String value) throws InvalidInputException {
+    throw new InvalidInputException("Attribute \"" + name
         + "\" is not allowed in \"" + getMessageMLTag() + "\"");
   }
 
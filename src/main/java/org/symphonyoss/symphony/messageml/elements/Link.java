@@ -21,7 +21,7 @@ import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -56,25 +56,36 @@ public class Link extends Element {
     }
   }
 
+  private Link(Element parent, Link source) {
+    super(parent, source);
+    this.dataProvider = source.dataProvider;
+    this.uri = source.uri;
+  }
+
+  @Override
+  Link copy(Element parent) {
+    return new Link(parent, this);
+  }
+
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_HREF:
-        uri = getUrlAttribute(item);
+        uri = getUrlAttribute(name, value);
         setAttribute(ATTR_HREF, uri.toString());
         break;
 
       default:
-        super.buildAttribute(item);
+        super.buildAttribute(name, value);
     }
   }
 
   @Override
-  void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
     out.openElement(getMessageMLTag(), getAttributes());
 
     if (getChildren().isEmpty()) {
-      out.print(out.escape(getUri().toString()));
+      out.printText(getUri().toString());
     } else {
       for (Element child : getChildren()) {
         child.asPresentationML(out);
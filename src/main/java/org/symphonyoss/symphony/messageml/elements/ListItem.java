@@ -31,6 +31,15 @@ public class ListItem extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private ListItem(Element parent, ListItem source) {
+    super(parent, source);
+  }
+
+  @Override
+  ListItem copy(Element parent) {
+    return new ListItem(parent, this);
+  }
+
   @Override
   public Node asMarkdown() {
     return new org.commonmark.node.ListItem();
@@ -23,7 +23,7 @@ import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.MentionNode;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
 import org.symphonyoss.symphony.messageml.util.IUserPresentation;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 /**
  * Class representing a convenience element for a user mention. Translated to an anchor element.
@@ -73,28 +73,43 @@ public class Mention extends Entity {
     this.entityId = getEntityId(entityIndex);
   }
 
+  private Mention(Element parent, Mention source) {
+    super(parent, source);
+    this.dataProvider = source.dataProvider;
+    this.userPresentation = source.userPresentation;
+    this.email = source.email;
+    this.prettyName = source.prettyName;
+    this.uid = source.uid;
+    this.fallback = source.fallback;
+  }
+
+  @Override
+  Mention copy(Element parent) {
+    return new Mention(parent, this);
+  }
+
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_EMAIL:
-        email = getStringAttribute(item);
+        email = value;
         break;
 
       case ATTR_UID:
-        uid = getLongAttribute(item);
+        uid = getLongAttribute(name, value);
         break;
 
       case ATTR_STRICT:
-        fallback = !getBooleanAttribute(item);
+        fallback = !getBooleanAttribute(value);
         break;
 
       default:
-        super.buildAttribute(item);
+        super.buildAttribute(name, value);
     }
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
     if (userPresentation != null) {
       out.printElement(presentationMLTag, asText(), CLASS_ATTR, PRESENTATIONML_CLASS,
           ENTITY_ID_ATTR, entityId);
@@ -176,6 +191,10 @@ public class Mention extends Entity {
 
   @Override
   public void validate() throws InvalidInputException {
+    if (uid == null && email == null) {
+      throw new InvalidInputException("Error processing user mention. No id or email provided");
+    }
+
     try {
       resolveUser();
     } catch (InvalidInputException e) {
@@ -209,6 +228,14 @@ public class Mention extends Entity {
     return userPresentation;
   }
 
+  public Long getUid() {
+    return uid;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
   @Override
   protected String getEntityIdPrefix() {
     return MESSAGEML_TAG;
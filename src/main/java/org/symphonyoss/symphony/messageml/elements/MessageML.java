@@ -26,7 +26,7 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.commonmark.node.Document;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 
 /**
@@ -54,23 +54,34 @@ public class MessageML extends Element {
     this.version = version;
   }
 
+  private MessageML(Element parent, MessageML source) {
+    super(parent, source);
+    this.version = source.version;
+    this.chime = source.chime;
+  }
+
+  @Override
+  MessageML copy(Element parent) {
+    return new MessageML(parent, this);
+  }
+
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
     if (getFormat() == FormatEnum.PRESENTATIONML) {
-      switch (item.getNodeName()) {
+      switch (name) {
         case ATTR_FORMAT:
-          setAttribute(ATTR_FORMAT, getStringAttribute(item));
+          setAttribute(ATTR_FORMAT, value);
           break;
 
         case ATTR_VERSION:
-          this.version = getStringAttribute(item);
+          this.version = value;
           break;
 
         default:
-          super.buildAttribute(item);
+          super.buildAttribute(name, value);
       }
     } else {
-      super.buildAttribute(item);
+      super.buildAttribute(name, value);
     }
   }
 
@@ -86,7 +97,7 @@ public class MessageML extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
 
     out.openElement(PRESENTATIONML_TAG, ATTR_FORMAT, PRESENTATIONML_FORMAT, ATTR_VERSION, version);
 
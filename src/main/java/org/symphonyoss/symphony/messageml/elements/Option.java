@@ -3,9 +3,6 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.OptionNode;
 
-import java.util.Collection;
-import java.util.Collections;
-
 /**
  * Class representing a Symphony Elements option
  *
@@ -15,12 +12,23 @@ import java.util.Collections;
 public class Option extends FormElement {
 
   public static final String MESSAGEML_TAG = "option";
+  private static final ContentModel PERMITTED_PARENTS = ContentModel.of(Select.class);
+  private static final ContentModel CONTENT_MODEL = ContentModel.of(TextNode.class);
   public static final String VALUE_ATTR = "value";
 
   public Option(Element parent) {
     super(parent, MESSAGEML_TAG);
   }
 
+  private Option(Element parent, Option source) {
+    super(parent, source);
+  }
+
+  @Override
+  Option copy(Element parent) {
+    return new Option(parent, this);
+  }
+
   @Override
   public org.commonmark.node.Node asMarkdown() {
     return new OptionNode();
@@ -31,16 +39,16 @@ public class Option extends FormElement {
       throw new InvalidInputException("The attribute \"value\" is required");
     }
 
-    assertParent(Collections.singleton(Select.class));
-    assertContentModel(Collections.singleton(TextNode.class));
+    assertParent(PERMITTED_PARENTS);
+    assertContentModel(CONTENT_MODEL);
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    if (item.getNodeName().equals(VALUE_ATTR)) {
-      setAttribute(VALUE_ATTR, getStringAttribute(item));
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    if (name.equals(VALUE_ATTR)) {
+      setAttribute(VALUE_ATTR, value);
     } else {
-      throw new InvalidInputException("Attribute \"" + item.getNodeName()
+      throw new InvalidInputException("Attribute \"" + name
           + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
@@ -19,7 +19,6 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
-import java.util.Collections;
 
 /**
  * Class representing an ordered list container.
@@ -30,11 +29,21 @@ import java.util.Collections;
 public class OrderedList extends Element {
 
   public static final String MESSAGEML_TAG = "ol";
+  private static final ContentModel CONTENT_MODEL = ContentModel.of(ListItem.class);
 
   public OrderedList(Element parent) {
     super(parent, MESSAGEML_TAG);
   }
 
+  private OrderedList(Element parent, OrderedList source) {
+    super(parent, source);
+  }
+
+  @Override
+  OrderedList copy(Element parent) {
+    return new OrderedList(parent, this);
+  }
+
   @Override
   public Node asMarkdown() {
     org.commonmark.node.OrderedList ol = new org.commonmark.node.OrderedList();
@@ -46,6 +55,6 @@ public class OrderedList extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Collections.<Class<? extends Element>>singleton(ListItem.class));
+    assertContentModel(CONTENT_MODEL);
   }
 }
@@ -31,6 +31,15 @@ public class Paragraph extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private Paragraph(Element parent, Paragraph source) {
+    super(parent, source);
+  }
+
+  @Override
+  Paragraph copy(Element parent) {
+    return new Paragraph(parent, this);
+  }
+
   @Override
   public String asText() {
     return "\n";
@@ -19,7 +19,7 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.PreformattedNode;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 /**
  * Class representing preformatted text.
@@ -33,8 +33,17 @@ public class Preformatted extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private Preformatted(Element parent, Preformatted source) {
+    super(parent, source);
+  }
+
+  @Override
+  Preformatted copy(Element parent) {
+    return new Preformatted(parent, this);
+  }
+
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  public void asPresentationML(XmlWriter out) {
     boolean removeNl = out.isRemoveNl();
 
     out.setRemoveNl(false);
@@ -20,8 +20,6 @@ import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.SelectNode;
 
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -34,6 +32,7 @@ import java.util.Set;
 public class Select extends FormElement {
 
   public static final String MESSAGEML_TAG = "select";
+  private static final ContentModel CONTENT_MODEL = ContentModel.of(Option.class);
   private static final String NAME_ATTR = "name";
   private static final String REQUIRED_ATTR = "required";
   private static final Set<String> VALID_VALUES_FOR_REQUIRED_ATTR = new HashSet<>(Arrays.asList("true", "false"));
@@ -42,6 +41,15 @@ public class Select extends FormElement {
     super(parent, MESSAGEML_TAG);
   }
 
+  private Select(Element parent, Select source) {
+    super(parent, source);
+  }
+
+  @Override
+  Select copy(Element parent) {
+    return new Select(parent, this);
+  }
+
   @Override
   public org.commonmark.node.Node asMarkdown() {
     return new SelectNode(getAttribute(NAME_ATTR));
@@ -55,22 +63,22 @@ public class Select extends FormElement {
       throw new InvalidInputException("The attribute \"name\" is required");
     }
 
-    assertContentModel(Collections.singleton(Option.class));
+    assertContentModel(CONTENT_MODEL);
     assertAtLeastOneOptionChild();
     validateRequiredAttribute(getAttribute(REQUIRED_ATTR));
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case NAME_ATTR:
-        setAttribute(NAME_ATTR, getStringAttribute(item));
+        setAttribute(NAME_ATTR, value);
         break;
       case REQUIRED_ATTR:
-        setAttribute(REQUIRED_ATTR, getStringAttribute(item));
+        setAttribute(REQUIRED_ATTR, value);
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
             + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
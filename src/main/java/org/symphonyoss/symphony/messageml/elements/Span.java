@@ -34,16 +34,25 @@ public class Span extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private Span(Element parent, Span source) {
+    super(parent, source);
+  }
+
+  @Override
+  Span copy(Element parent) {
+    return new Span(parent, this);
+  }
+
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
 
       case ATTR_ENTITY_ID:
-        setAttribute(ATTR_ENTITY_ID, getStringAttribute(item));
+        setAttribute(ATTR_ENTITY_ID, value);
         break;
 
       default:
-        super.buildAttribute(item);
+        super.buildAttribute(name, value);
     }
   }
 
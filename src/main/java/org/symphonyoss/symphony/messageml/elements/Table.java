@@ -20,7 +20,6 @@ import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableNode;
 
-import java.util.Arrays;
 
 /**
  * Class representing a table container.
@@ -30,11 +29,21 @@ import java.util.Arrays;
  */
 public class Table extends Element {
   public static final String MESSAGEML_TAG = "table";
+  private static final ContentModel CONTENT_MODEL = ContentModel.of(TableHeader.class, TableBody.class, TableFooter.class, TableRow.class);
 
   public Table(Element parent) {
     super(parent, MESSAGEML_TAG);
   }
 
+  private Table(Element parent, Table source) {
+    super(parent, source);
+  }
+
+  @Override
+  Table copy(Element parent) {
+    return new Table(parent, this);
+  }
+
   @Override
   public Node asMarkdown() {
     return new TableNode();
@@ -48,7 +57,7 @@ public class Table extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Arrays.asList(TableHeader.class, TableBody.class, TableFooter.class, TableRow.class));
+    assertContentModel(CONTENT_MODEL);
   }
 
 }
@@ -18,7 +18,6 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
-import java.util.Collections;
 
 /**
  * Class representing a table body container.
@@ -28,11 +27,21 @@ import java.util.Collections;
  */
 public class TableBody extends Element {
   public static final String MESSAGEML_TAG = "tbody";
+  private static final ContentModel CONTENT_MODEL = ContentModel.of(TableRow.class);
 
   public TableBody(Element parent) {
     super(parent, MESSAGEML_TAG);
   }
 
+  private TableBody(Element parent, TableBody source) {
+    super(parent, source);
+  }
+
+  @Override
+  TableBody copy(Element parent) {
+    return new TableBody(parent, this);
+  }
+
   @Override
   public String toString() {
     return "Body";
@@ -41,6 +50,6 @@ public class TableBody extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Collections.<Class<? extends Element>>singleton(TableRow.class));
+    assertContentModel(CONTENT_MODEL);
   }
 }
@@ -35,17 +35,26 @@ public class TableCell extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private TableCell(Element parent, TableCell source) {
+    super(parent, source);
+  }
+
+  @Override
+  TableCell copy(Element parent) {
+    return new TableCell(parent, this);
+  }
+
   @Override
-  void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_ROWSPAN:
-        setAttribute(ATTR_ROWSPAN, getLongAttribute(item).toString());
+        setAttribute(ATTR_ROWSPAN, getLongAttribute(name, value).toString());
         break;
       case ATTR_COLSPAN:
-        setAttribute(ATTR_COLSPAN, getLongAttribute(item).toString());
+        setAttribute(ATTR_COLSPAN, getLongAttribute(name, value).toString());
         break;
       default:
-        super.buildAttribute(item);
+        super.buildAttribute(name, value);
     }
   }
 
@@ -18,7 +18,6 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
-import java.util.Collections;
 
 /**
  * Class representing a table footer container.
@@ -28,11 +27,21 @@ import java.util.Collections;
  */
 public class TableFooter extends Element {
   public static final String MESSAGEML_TAG = "tfoot";
+  private static final ContentModel CONTENT_MODEL = ContentModel.of(TableRow.class);
 
   public TableFooter(Element parent) {
     super(parent, MESSAGEML_TAG);
   }
 
+  private TableFooter(Element parent, TableFooter source) {
+    super(parent, source);
+  }
+
+  @Override
+  TableFooter copy(Element parent) {
+    return new TableFooter(parent, this);
+  }
+
   @Override
   public String toString() {
     return "Footer";
@@ -41,6 +50,6 @@ public class TableFooter extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Collections.<Class<? extends Element>>singleton(TableRow.class));
+    assertContentModel(CONTENT_MODEL);
   }
 }
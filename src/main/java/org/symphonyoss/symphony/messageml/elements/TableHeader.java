@@ -18,7 +18,6 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
-import java.util.Collections;
 
 /**
  * Class representing a table header container.
@@ -28,11 +27,21 @@ import java.util.Collections;
  */
 public class TableHeader extends Element {
   public static final String MESSAGEML_TAG = "thead";
+  private static final ContentModel CONTENT_MODEL = ContentModel.of(TableRow.class);
 
   public TableHeader(Element parent) {
     super(parent, MESSAGEML_TAG);
   }
 
+  private TableHeader(Element parent, TableHeader source) {
+    super(parent, source);
+  }
+
+  @Override
+  TableHeader copy(Element parent) {
+    return new TableHeader(parent, this);
+  }
+
   @Override
   public String toString() {
     return "Header";
@@ -41,6 +50,6 @@ public class TableHeader extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Collections.<Class<? extends Element>>singleton(TableRow.class));
+    assertContentModel(CONTENT_MODEL);
   }
 }
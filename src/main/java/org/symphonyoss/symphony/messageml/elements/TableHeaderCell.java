@@ -32,6 +32,15 @@ public class TableHeaderCell extends Element {
     super(parent, MESSAGEML_TAG);
   }
 
+  private TableHeaderCell(Element parent, TableHeaderCell source) {
+    super(parent, source);
+  }
+
+  @Override
+  TableHeaderCell copy(Element parent) {
+    return new TableHeaderCell(parent, this);
+  }
+
   @Override
   public Node asMarkdown() {
     return new TableCellNode();
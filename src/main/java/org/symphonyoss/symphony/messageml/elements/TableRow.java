@@ -20,7 +20,6 @@ import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableRowNode;
 
-import java.util.Arrays;
 
 /**
  * Class representing a table row container.
@@ -30,11 +29,21 @@ import java.util.Arrays;
  */
 public class TableRow extends Element {
   public static final String MESSAGEML_TAG = "tr";
+  private static final ContentModel CONTENT_MODEL = ContentModel.of(TableHeaderCell.class, TableCell.class);
 
   public TableRow(Element parent) {
     super(parent, MESSAGEML_TAG);
   }
 
+  private TableRow(Element parent, TableRow source) {
+    super(parent, source);
+  }
+
+  @Override
+  TableRow copy(Element parent) {
+    return new TableRow(parent, this);
+  }
+
   @Override
   public Node asMarkdown() {
     return new TableRowNode();
@@ -48,6 +57,6 @@ public class TableRow extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Arrays.asList(TableHeaderCell.class, TableCell.class));
+    assertContentModel(CONTENT_MODEL);
   }
 }
@@ -17,7 +17,7 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 import org.w3c.dom.Text;
 
 /**
@@ -29,6 +29,10 @@ import org.w3c.dom.Text;
 public class TextNode extends Element {
   private String text;
 
+  /**
+   * @deprecated use {@link #TextNode(Element, String)}
+   */
+  @Deprecated
   public TextNode(Element parent, Text node) {
     this(parent, node.getTextContent());
   }
@@ -38,24 +42,25 @@ public class TextNode extends Element {
     this.text = text;
   }
 
+  private TextNode(Element parent, TextNode source) {
+    super(parent, source);
+    this.text = source.text;
+  }
+
   @Override
-  public void asPresentationML(XmlPrintStream out) {
-    String content = this.text;
-    if (out.isRemoveNl() && !(getParent() instanceof Code)) { // Do not remove newlines if the parent node is a code node
-      content = XmlPrintStream.removeNewLines(content);
-    }
-    content = out.escape(content);
-    out.println(content);
+  TextNode copy(Element parent) {
+    return new TextNode(parent, this);
   }
 
   @Override
-  public Node asMarkdown() {
-    return new org.commonmark.node.Text(this.text);
+  public void asPresentationML(XmlWriter out) {
+    // Do not remove newlines if the parent node is a code node
+    out.printText(this.text, out.isRemoveNl() && !(getParent() instanceof Code));
   }
 
   @Override
-  protected void buildText(Text node) {
-    this.text = node.getTextContent();
+  public Node asMarkdown() {
+    return new org.commonmark.node.Text(this.text);
   }
 
   public String getText() {
@@ -41,6 +41,7 @@ import org.commonmark.node.StrongEmphasis;
 import org.commonmark.node.Text;
 import org.commonmark.node.ThematicBreak;
 import org.commonmark.parser.Parser;
+import org.symphonyoss.symphony.messageml.ParserLimits;
 import org.symphonyoss.symphony.messageml.elements.Bold;
 import org.symphonyoss.symphony.messageml.elements.BulletList;
 import org.symphonyoss.symphony.messageml.elements.CashTag;
@@ -65,9 +66,14 @@ import org.symphonyoss.symphony.messageml.markdown.nodes.MentionNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableCellNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableRowNode;
+import org.symphonyoss.symphony.messageml.util.IBatchDataProvider;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener;
+import org.symphonyoss.symphony.messageml.util.PrefetchingDataProvider;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.TreeMap;
 
@@ -85,9 +91,15 @@ public class MarkdownParser extends AbstractVisitor {
   private static final String ID = "id";
   private static final String TEXT = "text";
   private final IDataProvider dataProvider;
+  private final ParserLimits limits;
+  private final IMetricsListener listener;
+  private IDataProvider userProvider;
   private MessageML messageML;
   private Element parent;
   private int index;
+  private int elements;
+  private int mentions;
+  private int links;
 
   static {
     Set<Class<? extends Block>> enabledBlockTypes = new HashSet<>();
@@ -103,7 +115,17 @@ public class MarkdownParser extends AbstractVisitor {
   }
 
   public MarkdownParser(IDataProvider dataProvider) {
+    this(dataProvider, ParserLimits.NONE);
+  }
+
+  public MarkdownParser(IDataProvider dataProvider, ParserLimits limits) {
+    this(dataProvider, limits, IMetricsListener.NONE);
+  }
+
+  public MarkdownParser(IDataProvider dataProvider, ParserLimits limits, IMetricsListener listener) {
     this.dataProvider = dataProvider;
+    this.limits = limits;
+    this.listener = listener;
   }
 
   @Override
@@ -242,7 +264,7 @@ public class MarkdownParser extends AbstractVisitor {
 
   private void visit(MentionNode mention) {
     try {
-      Mention node = new Mention(parent, ++index, mention.getUid(), dataProvider);
+      Mention node = new Mention(parent, ++index, mention.getUid(), userProvider);
       node.validate();
       visitChildren(node, mention);
     } catch (InvalidInputException e) {
@@ -385,12 +407,72 @@ public class MarkdownParser extends AbstractVisitor {
    */
   public MessageML parse(String message, JsonNode entities, JsonNode media) throws InvalidInputException {
     this.index = 0;
+    this.elements = 0;
+    this.mentions = 0;
+    this.links = 0;
+    limits.checkInputSize(message);
+    long start = System.nanoTime();
     message = message.replace((char) 160, (char) 32);
     String enriched = enrichMarkdown(message, entities, media);
     Node markdown = MARKDOWN_PARSER.parse(enriched);
+    checkLimits(markdown, 1);
+    listener.onPhase(IMetricsListener.Phase.MARKDOWN_PARSING, System.nanoTime() - start);
+
+    start = System.nanoTime();
+    this.userProvider = prefetchUsers(markdown);
     markdown.accept(this);
+    listener.onPhase(IMetricsListener.Phase.TREE_BUILDING, System.nanoTime() - start);
 
     return messageML;
   }
 
+  /**
+   * Check the Markdown tree against the limits before it is converted, so that oversized messages are rejected
+   * without looking up their mentions. The document node stands for the root element, and every other node except
+   * text counts as an element, nested in its parent node.
+   */
+  private void checkLimits(Node node, int depth) throws InvalidInputException {
+    if (!(node instanceof Text) && !(node instanceof HtmlInline)) {
+      limits.checkDepth(depth);
+      limits.checkElements(++elements); // text is not counted, as in MessageML
+    }
+
+    if (node instanceof MentionNode) {
+      limits.checkMentions(++mentions);
+    } else if (node instanceof org.commonmark.node.Link) {
+      limits.checkLinks(++links);
+    }
+
+    for (Node child = node.getFirstChild(); child != null; child = child.getNext()) {
+      checkLimits(child, depth + 1);
+    }
+  }
+
+  /**
+   * If the data provider supports bulk lookups, resolve the users of all mentions in the Markdown tree in a single
+   * request and return a data provider which serves them.
+   */
+  private IDataProvider prefetchUsers(Node markdown) {
+    if (!(dataProvider instanceof IBatchDataProvider)) {
+      return dataProvider;
+    }
+
+    Set<Long> uids = new LinkedHashSet<>();
+    collectMentions(markdown, uids);
+
+    PrefetchingDataProvider prefetchingProvider = new PrefetchingDataProvider((IBatchDataProvider) dataProvider);
+    prefetchingProvider.prefetch(uids, Collections.<String>emptySet());
+
+    return prefetchingProvider;
+  }
+
+  private void collectMentions(Node node, Set<Long> uids) {
+    for (Node child = node.getFirstChild(); child != null; child = child.getNext()) {
+      if (child instanceof MentionNode) {
+        uids.add(((MentionNode) child).getUid());
+      }
+      collectMentions(child, uids);
+    }
+  }
+
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A per-message {@link IDataProvider} backed by an {@link IAsyncDataProvider}. {@link #prefetch(Collection,
+ * Collection, Collection)} issues all lookups of a message at once; the blocking methods then answer from the
+ * results of these lookups, waiting only for lookups which were not prefetched.
+ */
+public class AsyncPrefetchingDataProvider implements IDataProvider {
+  private final IAsyncDataProvider dataProvider;
+  private final Map<Long, CompletableFuture<IUserPresentation>> usersByUid = new ConcurrentHashMap<>();
+  private final Map<String, CompletableFuture<IUserPresentation>> usersByEmail = new ConcurrentHashMap<>();
+  private final Map<URI, CompletableFuture<Void>> uris = new ConcurrentHashMap<>();
+
+  public AsyncPrefetchingDataProvider(IAsyncDataProvider dataProvider) {
+    this.dataProvider = dataProvider;
+  }
+
+  /**
+   * Start the lookups of the given users and URIs without waiting for their results.
+   * @param uids UIDs of the users to resolve
+   * @param emailAddresses emails of the users to resolve
+   * @param uris URIs to validate
+   * @return a future completing when all lookups have completed, successfully or not
+   */
+  public CompletableFuture<Void> prefetch(Collection<Long> uids, Collection<String> emailAddresses,
+      Collection<URI> uris) {
+    List<CompletableFuture<?>> lookups = new ArrayList<>();
+
+    for (Long uid : uids) {
+      lookups.add(lookup(usersByUid, uid, dataProvider::getUserPresentation));
+    }
+
+    for (String emailAddress : emailAddresses) {
+      lookups.add(lookup(usersByEmail, emailAddress, dataProvider::getUserPresentation));
+    }
+
+    for (URI uri : uris) {
+      lookups.add(lookup(this.uris, uri, dataProvider::validateURI));
+    }
+
+    // Failed lookups are reported by the blocking methods
+    return CompletableFuture.allOf(lookups.stream()
+        .map(lookup -> lookup.handle((value, error) -> null))
+        .toArray(CompletableFuture[]::new));
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+    try {
+      return await(lookup(usersByEmail, emailAddress, dataProvider::getUserPresentation));
+    } catch (ProcessingException e) {
+      throw new InvalidInputException(e.getMessage());
+    }
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+    try {
+      return await(lookup(usersByUid, uid, dataProvider::getUserPresentation));
+    } catch (ProcessingException e) {
+      throw new InvalidInputException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void validateURI(URI uri) throws InvalidInputException, ProcessingException {
+    await(lookup(uris, uri, dataProvider::validateURI));
+  }
+
+  private static <K, V> CompletableFuture<V> lookup(Map<K, CompletableFuture<V>> lookups, K key,
+      Function<K, CompletionStage<V>> loader) {
+    return lookups.computeIfAbsent(key, k -> {
+      try {
+        return loader.apply(k).toCompletableFuture();
+      } catch (RuntimeException e) {
+        CompletableFuture<V> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        return failed;
+      }
+    });
+  }
+
+  private static <V> V await(CompletableFuture<V> lookup) throws InvalidInputException, ProcessingException {
+    try {
+      return lookup.join();
+    } catch (CompletionException e) {
+      Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+
+      if (cause instanceof InvalidInputException) {
+        throw (InvalidInputException) cause;
+      } else if (cause instanceof ProcessingException) {
+        throw (ProcessingException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      throw new ProcessingException(cause.getMessage(), cause);
+    }
+  }
+}
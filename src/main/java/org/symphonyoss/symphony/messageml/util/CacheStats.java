@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+/**
+ * A snapshot of the usage counters of a cache.
+ */
+public class CacheStats {
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+  private final long expirations;
+  private final int size;
+
+  public CacheStats(long hits, long misses, long evictions, long expirations, int size) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.expirations = expirations;
+    this.size = size;
+  }
+
+  /**
+   * Return the number of lookups which found a live entry.
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * Return the number of lookups which found no entry or an expired one.
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Return the number of entries removed to keep the cache within its size bound.
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Return the number of entries removed because they had expired.
+   */
+  public long getExpirations() {
+    return expirations;
+  }
+
+  /**
+   * Return the number of entries in the cache.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Return the ratio of hits to all lookups, or 0 if there were no lookups.
+   */
+  public double getHitRate() {
+    long lookups = hits + misses;
+    return (lookups == 0) ? 0 : (double) hits / lookups;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats(hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+        + ", expirations=" + expirations + ", size=" + size + ")";
+  }
+}
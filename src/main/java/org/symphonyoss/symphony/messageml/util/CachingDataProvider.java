@@ -0,0 +1,283 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * An {@link IDataProvider} decorator which caches user lookups by UID and by email, and URI validation results.
+ *
+ * Each kind of lookup has its own bounded cache. Successful results are kept for the configured time to live; lookups
+ * failing with {@link InvalidInputException} (unknown users, unsupported URI schemes) are cached as well, for the
+ * negative time to live, and rethrown on later hits. {@link ProcessingException}s are never cached.
+ *
+ * Use {@link #wrap(IDataProvider)} to keep the bulk lookups of an {@link IBatchDataProvider}; they are served from
+ * the cache where possible, and the remaining users are resolved with a single bulk request.
+ *
+ * The decorator is thread-safe if the underlying provider is.
+ */
+public class CachingDataProvider implements IDataProvider {
+  public static final int DEFAULT_MAX_SIZE = 10000;
+  public static final long DEFAULT_TTL_SECONDS = 300;
+  public static final long DEFAULT_NEGATIVE_TTL_SECONDS = 30;
+
+  final IDataProvider dataProvider;
+  private final long ttlMillis;
+  private final long negativeTtlMillis;
+  final ExpiringCache<Long, Result<IUserPresentation>> usersByUid;
+  final ExpiringCache<String, Result<IUserPresentation>> usersByEmail;
+  private final ExpiringCache<URI, Result<URI>> uris;
+
+  public CachingDataProvider(IDataProvider dataProvider) {
+    this(dataProvider, DEFAULT_MAX_SIZE, DEFAULT_TTL_SECONDS, DEFAULT_NEGATIVE_TTL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * @param dataProvider the provider whose results to cache
+   * @param maxSize the maximum number of entries of each of the UID, email and URI caches
+   * @param ttl the time to live of successful results
+   * @param negativeTtl the time to live of failed lookups
+   * @param unit the time unit of the times to live
+   */
+  public CachingDataProvider(IDataProvider dataProvider, int maxSize, long ttl, long negativeTtl, TimeUnit unit) {
+    this(dataProvider, maxSize, ttl, negativeTtl, unit, System::currentTimeMillis);
+  }
+
+  CachingDataProvider(IDataProvider dataProvider, int maxSize, long ttl, long negativeTtl, TimeUnit unit,
+      LongSupplier clock) {
+    this.dataProvider = dataProvider;
+    this.ttlMillis = unit.toMillis(ttl);
+    this.negativeTtlMillis = unit.toMillis(negativeTtl);
+    this.usersByUid = new ExpiringCache<>(maxSize, clock);
+    this.usersByEmail = new ExpiringCache<>(maxSize, clock);
+    this.uris = new ExpiringCache<>(maxSize, clock);
+  }
+
+  /**
+   * Cache the lookups of a data provider, implementing {@link IBatchDataProvider} if it does.
+   */
+  public static CachingDataProvider wrap(IDataProvider dataProvider) {
+    return wrap(dataProvider, DEFAULT_MAX_SIZE, DEFAULT_TTL_SECONDS, DEFAULT_NEGATIVE_TTL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Cache the lookups of a data provider, implementing {@link IBatchDataProvider} if it does.
+   * @see #CachingDataProvider(IDataProvider, int, long, long, TimeUnit)
+   */
+  public static CachingDataProvider wrap(IDataProvider dataProvider, int maxSize, long ttl, long negativeTtl,
+      TimeUnit unit) {
+    if (dataProvider instanceof IBatchDataProvider) {
+      return new Batch((IBatchDataProvider) dataProvider, maxSize, ttl, negativeTtl, unit, System::currentTimeMillis);
+    } else {
+      return new CachingDataProvider(dataProvider, maxSize, ttl, negativeTtl, unit);
+    }
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+    Result<IUserPresentation> result = usersByEmail.get(emailAddress);
+
+    if (result == null) {
+      try {
+        result = cache(usersByEmail, emailAddress, dataProvider.getUserPresentation(emailAddress));
+      } catch (InvalidInputException e) {
+        result = cache(usersByEmail, emailAddress, e);
+      }
+    }
+
+    return result.get();
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+    Result<IUserPresentation> result = usersByUid.get(uid);
+
+    if (result == null) {
+      try {
+        result = cache(usersByUid, uid, dataProvider.getUserPresentation(uid));
+      } catch (InvalidInputException e) {
+        result = cache(usersByUid, uid, e);
+      }
+    }
+
+    return result.get();
+  }
+
+  @Override
+  public void validateURI(URI uri) throws InvalidInputException, ProcessingException {
+    Result<URI> result = uris.get(uri);
+
+    if (result == null) {
+      try {
+        dataProvider.validateURI(uri);
+        result = cache(uris, uri, uri);
+      } catch (InvalidInputException e) {
+        result = cache(uris, uri, e);
+      }
+    }
+
+    result.get();
+  }
+
+  /**
+   * Remove all cached users and URI validation results.
+   */
+  public void invalidateAll() {
+    usersByUid.clear();
+    usersByEmail.clear();
+    uris.clear();
+  }
+
+  /**
+   * Remove the cached lookups of a user.
+   */
+  public void invalidateUser(Long uid, String emailAddress) {
+    if (uid != null) {
+      usersByUid.remove(uid);
+    }
+    if (emailAddress != null) {
+      usersByEmail.remove(emailAddress);
+    }
+  }
+
+  /**
+   * Return the counters of the user lookup by UID cache.
+   */
+  public CacheStats getUidStats() {
+    return usersByUid.getStats();
+  }
+
+  /**
+   * Return the counters of the user lookup by email cache.
+   */
+  public CacheStats getEmailStats() {
+    return usersByEmail.getStats();
+  }
+
+  /**
+   * Return the counters of the URI validation cache.
+   */
+  public CacheStats getUriStats() {
+    return uris.getStats();
+  }
+
+  <K, V> Result<V> cache(ExpiringCache<K, Result<V>> cache, K key, V value) {
+    Result<V> result = new Result<>(value, null);
+    cache.put(key, result, ttlMillis);
+    return result;
+  }
+
+  private <K, V> Result<V> cache(ExpiringCache<K, Result<V>> cache, K key, InvalidInputException error) {
+    Result<V> result = new Result<>(null, error);
+    cache.put(key, result, negativeTtlMillis);
+    return result;
+  }
+
+  /**
+   * The outcome of a lookup: either a value or the exception it failed with.
+   */
+  private static class Result<V> {
+    private final V value;
+    private final InvalidInputException error;
+
+    Result(V value, InvalidInputException error) {
+      this.value = value;
+      this.error = error;
+    }
+
+    V get() throws InvalidInputException {
+      if (error != null) {
+        // A new exception for each caller, so that the stack trace is the caller's and the cached one stays untouched
+        throw new InvalidInputException(error.getMessage(), error);
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Caches the bulk lookups of an {@link IBatchDataProvider} as well, resolving the users missing from the cache
+   * with a single bulk request.
+   */
+  static class Batch extends CachingDataProvider implements IBatchDataProvider {
+
+    Batch(IBatchDataProvider dataProvider, int maxSize, long ttl, long negativeTtl, TimeUnit unit,
+        LongSupplier clock) {
+      super(dataProvider, maxSize, ttl, negativeTtl, unit, clock);
+    }
+
+    @Override
+    public Map<Long, IUserPresentation> getUserPresentationsByUid(Collection<Long> uids) {
+      Map<Long, IUserPresentation> users = new HashMap<>();
+      List<Long> missing = new ArrayList<>();
+
+      for (Long uid : uids) {
+        Result<IUserPresentation> result = usersByUid.get(uid);
+        if (result == null) {
+          missing.add(uid);
+        } else if (result.value != null) {
+          users.put(uid, result.value);
+        }
+      }
+
+      if (!missing.isEmpty()) {
+        Map<Long, IUserPresentation> found = ((IBatchDataProvider) dataProvider).getUserPresentationsByUid(missing);
+        for (Map.Entry<Long, IUserPresentation> user : found.entrySet()) {
+          cache(usersByUid, user.getKey(), user.getValue());
+        }
+        users.putAll(found);
+      }
+
+      return users;
+    }
+
+    @Override
+    public Map<String, IUserPresentation> getUserPresentationsByEmail(Collection<String> emailAddresses) {
+      Map<String, IUserPresentation> users = new HashMap<>();
+      List<String> missing = new ArrayList<>();
+
+      for (String email : emailAddresses) {
+        Result<IUserPresentation> result = usersByEmail.get(email);
+        if (result == null) {
+          missing.add(email);
+        } else if (result.value != null) {
+          users.put(email, result.value);
+        }
+      }
+
+      if (!missing.isEmpty()) {
+        Map<String, IUserPresentation> found =
+            ((IBatchDataProvider) dataProvider).getUserPresentationsByEmail(missing);
+        for (Map.Entry<String, IUserPresentation> user : found.entrySet()) {
+          cache(usersByEmail, user.getKey(), user.getValue());
+        }
+        users.putAll(found);
+      }
+
+      return users;
+    }
+  }
+}
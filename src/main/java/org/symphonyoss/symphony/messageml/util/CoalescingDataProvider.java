@@ -0,0 +1,294 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * An {@link IDataProvider} decorator which coalesces concurrent lookups of the same user: while a lookup of a UID or
+ * email is in flight, other callers asking for the same user wait for its result instead of issuing their own.
+ *
+ * If the underlying provider implements {@link IBatchDataProvider}, a micro-batching window can be configured. The
+ * first caller of a batch then waits for the window to elapse (or for the batch to fill up), collecting the users
+ * requested meanwhile by other threads, and resolves all of them with a single bulk lookup. Users missing from the
+ * bulk result are looked up individually, so that their callers receive the same errors as without batching; if the
+ * bulk lookup itself fails, all callers of the batch receive its exception.
+ *
+ * URI validation is passed on to the underlying provider unchanged.
+ */
+public class CoalescingDataProvider implements IBatchDataProvider {
+  private final IDataProvider dataProvider;
+  private final long batchWindowMillis;
+  private final int maxBatchSize;
+  private final Coalescer<Long> uidLookups;
+  private final Coalescer<String> emailLookups;
+
+  /**
+   * Coalesce concurrent lookups of the same user without batching.
+   */
+  public CoalescingDataProvider(IDataProvider dataProvider) {
+    this(dataProvider, 0, TimeUnit.MILLISECONDS, 1);
+  }
+
+  /**
+   * Coalesce concurrent lookups of the same user and merge lookups of different users issued within the batch window
+   * into bulk lookups. Batching only applies if the data provider implements {@link IBatchDataProvider}.
+   * @param dataProvider the provider to delegate lookups to
+   * @param batchWindow how long the first lookup of a batch waits for others to join it
+   * @param unit the time unit of the batch window
+   * @param maxBatchSize the number of users which triggers a bulk lookup before the window elapses
+   */
+  public CoalescingDataProvider(IDataProvider dataProvider, long batchWindow, TimeUnit unit, int maxBatchSize) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("The batch size must be positive");
+    }
+
+    this.dataProvider = dataProvider;
+    this.batchWindowMillis = unit.toMillis(batchWindow);
+    this.maxBatchSize = maxBatchSize;
+
+    if (dataProvider instanceof IBatchDataProvider) {
+      IBatchDataProvider batchDataProvider = (IBatchDataProvider) dataProvider;
+      this.uidLookups = new Coalescer<>(dataProvider::getUserPresentation, batchDataProvider::getUserPresentationsByUid);
+      this.emailLookups = new Coalescer<>(dataProvider::getUserPresentation,
+          batchDataProvider::getUserPresentationsByEmail);
+    } else {
+      this.uidLookups = new Coalescer<>(dataProvider::getUserPresentation, null);
+      this.emailLookups = new Coalescer<>(dataProvider::getUserPresentation, null);
+    }
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+    return emailLookups.get(emailAddress);
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+    return uidLookups.get(uid);
+  }
+
+  @Override
+  public Map<Long, IUserPresentation> getUserPresentationsByUid(Collection<Long> uids) {
+    return uidLookups.getAll(uids);
+  }
+
+  @Override
+  public Map<String, IUserPresentation> getUserPresentationsByEmail(Collection<String> emailAddresses) {
+    return emailLookups.getAll(emailAddresses);
+  }
+
+  @Override
+  public void validateURI(URI uri) throws InvalidInputException, ProcessingException {
+    dataProvider.validateURI(uri);
+  }
+
+  /**
+   * Return the number of user lookups currently in flight.
+   */
+  public int getLookupsInFlight() {
+    return uidLookups.inFlight.size() + emailLookups.inFlight.size();
+  }
+
+  private static IUserPresentation await(CompletableFuture<IUserPresentation> future) throws InvalidInputException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof InvalidInputException) {
+        throw (InvalidInputException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private interface Lookup<K> {
+    IUserPresentation get(K key) throws InvalidInputException;
+  }
+
+  /**
+   * Tracks the lookups in flight for one kind of key and the batch being collected.
+   */
+  private class Coalescer<K> {
+    private final ConcurrentMap<K, CompletableFuture<IUserPresentation>> inFlight = new ConcurrentHashMap<>();
+    private final Lookup<K> lookup;
+    private final Function<Collection<K>, Map<K, IUserPresentation>> bulkLookup;
+    private Map<K, CompletableFuture<IUserPresentation>> batch;
+
+    Coalescer(Lookup<K> lookup, Function<Collection<K>, Map<K, IUserPresentation>> bulkLookup) {
+      this.lookup = lookup;
+      this.bulkLookup = bulkLookup;
+    }
+
+    IUserPresentation get(K key) throws InvalidInputException {
+      CompletableFuture<IUserPresentation> future = new CompletableFuture<>();
+      CompletableFuture<IUserPresentation> existing = inFlight.putIfAbsent(key, future);
+
+      if (existing != null) {
+        return await(existing);
+      }
+
+      if (bulkLookup != null && batchWindowMillis > 0) {
+        enqueue(key, future);
+      } else {
+        resolve(key, future);
+      }
+
+      return await(future);
+    }
+
+    Map<K, IUserPresentation> getAll(Collection<K> keys) {
+      Map<K, CompletableFuture<IUserPresentation>> futures = new LinkedHashMap<>();
+      Map<K, CompletableFuture<IUserPresentation>> owned = new LinkedHashMap<>();
+
+      for (K key : keys) {
+        CompletableFuture<IUserPresentation> future = new CompletableFuture<>();
+        CompletableFuture<IUserPresentation> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing == null) {
+          owned.put(key, future);
+          futures.put(key, future);
+        } else {
+          futures.put(key, existing);
+        }
+      }
+
+      if (!owned.isEmpty()) {
+        resolveAll(owned);
+      }
+
+      Map<K, IUserPresentation> users = new HashMap<>();
+      for (Map.Entry<K, CompletableFuture<IUserPresentation>> entry : futures.entrySet()) {
+        try {
+          IUserPresentation user = await(entry.getValue());
+          if (user != null) {
+            users.put(entry.getKey(), user);
+          }
+        } catch (InvalidInputException e) {
+          // Users which could not be found are omitted
+        }
+      }
+
+      return users;
+    }
+
+    /**
+     * Add the lookup to the current batch. The thread which opens a batch waits for the batch window and then
+     * resolves it, unless it is filled up in the meantime: the thread adding the last lookup then resolves it and
+     * wakes the opening thread up.
+     */
+    private void enqueue(K key, CompletableFuture<IUserPresentation> future) {
+      Map<K, CompletableFuture<IUserPresentation>> ownBatch = null;
+      Map<K, CompletableFuture<IUserPresentation>> fullBatch = null;
+
+      synchronized (this) {
+        if (batch == null) {
+          batch = new LinkedHashMap<>();
+          ownBatch = batch;
+        }
+        batch.put(key, future);
+
+        if (batch.size() >= maxBatchSize) {
+          fullBatch = batch;
+          batch = null;
+          notifyAll();
+        }
+      }
+
+      if (fullBatch != null) {
+        resolveAll(fullBatch);
+      } else if (ownBatch != null) {
+        synchronized (this) {
+          long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindowMillis);
+          long remaining = batchWindowMillis;
+
+          try {
+            while (batch == ownBatch && remaining > 0) {
+              wait(remaining);
+              remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+
+          if (batch == ownBatch) {
+            batch = null;
+          } else {
+            ownBatch = null;
+          }
+        }
+
+        if (ownBatch != null) {
+          resolveAll(ownBatch);
+        }
+      }
+    }
+
+    private void resolve(K key, CompletableFuture<IUserPresentation> future) {
+      try {
+        future.complete(lookup.get(key));
+      } catch (InvalidInputException | RuntimeException e) {
+        future.completeExceptionally(e);
+      } finally {
+        inFlight.remove(key, future);
+      }
+    }
+
+    private void resolveAll(Map<K, CompletableFuture<IUserPresentation>> lookups) {
+      Map<K, IUserPresentation> users = Collections.emptyMap();
+
+      if (bulkLookup != null) {
+        try {
+          users = bulkLookup.apply(lookups.keySet());
+        } catch (RuntimeException e) {
+          // Every caller waiting on the batch gets the failure
+          for (Map.Entry<K, CompletableFuture<IUserPresentation>> entry : lookups.entrySet()) {
+            entry.getValue().completeExceptionally(e);
+            inFlight.remove(entry.getKey(), entry.getValue());
+          }
+          return;
+        }
+      }
+
+      for (Map.Entry<K, CompletableFuture<IUserPresentation>> entry : lookups.entrySet()) {
+        IUserPresentation user = users.get(entry.getKey());
+
+        if (user != null) {
+          entry.getValue().complete(user);
+          inFlight.remove(entry.getKey(), entry.getValue());
+        } else {
+          resolve(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+  }
+}
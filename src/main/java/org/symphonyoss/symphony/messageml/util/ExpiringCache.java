@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * A thread-safe cache holding at most a fixed number of entries, each of which expires after its own time to live.
+ * The least recently used entry is evicted when the cache is full. Hits, misses, evictions and expirations are
+ * counted and reported by {@link #getStats()}.
+ */
+public class ExpiringCache<K, V> {
+  private final int maxSize;
+  private final LongSupplier clock;
+  private final Map<K, Entry<V>> entries;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long expirations;
+
+  public ExpiringCache(int maxSize) {
+    this(maxSize, System::currentTimeMillis);
+  }
+
+  /**
+   * @param maxSize the maximum number of entries
+   * @param clock the source of the current time in milliseconds
+   */
+  public ExpiringCache(final int maxSize, LongSupplier clock) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("The cache size must be positive");
+    }
+
+    this.maxSize = maxSize;
+    this.clock = clock;
+    this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+        if (size() > maxSize) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Return the value cached for the key, or null if there is none or it has expired.
+   */
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+
+    if (entry.expiresAt <= clock.getAsLong()) {
+      entries.remove(key);
+      expirations++;
+      misses++;
+      return null;
+    }
+
+    hits++;
+    return entry.value;
+  }
+
+  /**
+   * Cache the value for the key for the given time, evicting the least recently used entry if the cache is full.
+   * @param ttlMillis the time to live of the entry in milliseconds
+   */
+  public synchronized void put(K key, V value, long ttlMillis) {
+    entries.put(key, new Entry<>(value, clock.getAsLong() + ttlMillis));
+  }
+
+  /**
+   * Remove the value cached for the key.
+   */
+  public synchronized void remove(K key) {
+    entries.remove(key);
+  }
+
+  /**
+   * Remove the entries whose values match the predicate.
+   * @return the number of removed entries
+   */
+  public synchronized int removeIf(Predicate<? super V> predicate) {
+    int removed = 0;
+
+    for (Iterator<Entry<V>> it = entries.values().iterator(); it.hasNext(); ) {
+      if (predicate.test(it.next().value)) {
+        it.remove();
+        removed++;
+      }
+    }
+
+    return removed;
+  }
+
+  /**
+   * Remove all entries from the cache.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Return the number of cached entries, including expired entries which have not been removed yet.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Return the maximum number of cached entries.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Return a snapshot of the cache counters.
+   */
+  public synchronized CacheStats getStats() {
+    return new CacheStats(hits, misses, evictions, expirations, entries.size());
+  }
+
+  private static class Entry<V> {
+    private final V value;
+    private final long expiresAt;
+
+    Entry(V value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
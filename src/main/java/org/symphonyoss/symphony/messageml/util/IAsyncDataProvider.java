@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import java.net.URI;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Used during asynchronous message parsing to provide external data without blocking the calling thread.
+ *
+ * The returned stages complete exceptionally with {@link org.symphonyoss.symphony.messageml.exceptions.InvalidInputException}
+ * on invalid input (e.g. an unknown user or an unsupported URI protocol) and with
+ * {@link org.symphonyoss.symphony.messageml.exceptions.ProcessingException} on backend errors.
+ */
+public interface IAsyncDataProvider {
+  /**
+   * Retrieve user information object based on user email
+   * @param emailAddress Email of the user whose information to retrieve
+   * @return User presentation object
+   */
+  CompletionStage<IUserPresentation> getUserPresentation(String emailAddress);
+
+  /**
+   * Retrieve user information object based on UID
+   * @param uid UID of the user whose information to retrieve
+   * @return User presentation object
+   */
+  CompletionStage<IUserPresentation> getUserPresentation(Long uid);
+
+  /**
+   * Check an URI against a whitelist of supported protocols.
+   * @param uri the URI to check
+   * @return a stage completing normally if the URI is supported
+   */
+  CompletionStage<Void> validateURI(URI uri);
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * An optional extension of {@link IDataProvider} which resolves a number of users in a single request.
+ *
+ * When the data provider implements this interface, the parsers collect all user mentions of a message and resolve
+ * them with one call per lookup type before validating the mentions. Users missing from the returned maps are looked
+ * up again individually, so errors for unknown users are reported by the single-user methods as before.
+ */
+public interface IBatchDataProvider extends IDataProvider {
+  /**
+   * Retrieve user information objects based on UIDs
+   * @param uids UIDs of the users whose information to retrieve
+   * @return User presentation objects keyed by UID; users which could not be found are omitted
+   */
+  Map<Long, IUserPresentation> getUserPresentationsByUid(Collection<Long> uids);
+
+  /**
+   * Retrieve user information objects based on user emails
+   * @param emailAddresses Emails of the users whose information to retrieve
+   * @return User presentation objects keyed by the requested email; users which could not be found are omitted
+   */
+  Map<String, IUserPresentation> getUserPresentationsByEmail(Collection<String> emailAddresses);
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml.util;
+
+import java.util.Map;
+
+/**
+ * Receives timings and counters of the processing of messages, e.g. to export them to a metrics registry. All
+ * methods do nothing by default, so implementations only override the events they are interested in.
+ *
+ * Events are reported synchronously on the thread doing the work, which may be a thread completing an
+ * asynchronous lookup or a thread rendering a cached result. Implementations must be thread-safe and fast.
+ */
+public interface IMetricsListener {
+
+  /**
+   * A listener ignoring all events.
+   */
+  IMetricsListener NONE = new IMetricsListener() {};
+
+  /**
+   * The stages of parsing a message and of rendering its output formats.
+   */
+  enum Phase {
+    /** Reading the EntityJSON supplied with a MessageML message. */
+    ENTITY_JSON,
+    /** Expanding the Freemarker template of a MessageML message. */
+    TEMPLATE,
+    /** Parsing the XML of a MessageML message and building its document tree, which happen in a single pass. */
+    XML_PARSING,
+    /** Validating the elements which depend on data resolved in bulk, including lookups made on the parsing thread. */
+    VALIDATION,
+    /** Parsing a Markdown message. */
+    MARKDOWN_PARSING,
+    /** Building the document tree of a parsed Markdown message. */
+    TREE_BUILDING,
+    /** Rendering the message in PresentationML. */
+    PRESENTATIONML,
+    /** Rendering the EntityJSON of the message. */
+    ENTITY_JSON_RENDERING,
+    /** Rendering the message in Markdown with its legacy JSON entities. */
+    MARKDOWN,
+    /** Extracting the plain text of the message. */
+    TEXT
+  }
+
+  /**
+   * The lookups of a data provider.
+   */
+  enum Call {
+    USER_BY_UID,
+    USER_BY_EMAIL,
+    USERS_BY_UID,
+    USERS_BY_EMAIL,
+    VALIDATE_URI
+  }
+
+  /**
+   * Report the duration of a phase of the processing of a message.
+   */
+  default void onPhase(Phase phase, long nanos) {
+  }
+
+  /**
+   * Report the size of a message to be parsed.
+   * @param messageLength the number of characters of the message
+   * @param dataLength the number of characters of the EntityJSON, or 0 if there is none or the message is in Markdown
+   */
+  default void onInput(int messageLength, int dataLength) {
+  }
+
+  /**
+   * Report the size of a rendered output format.
+   * @param phase the phase which rendered the output
+   * @param length the number of characters of the output
+   */
+  default void onOutput(Phase phase, int length) {
+  }
+
+  /**
+   * Report the number of elements of a parsed message, by MessageML tag. Text is not counted.
+   */
+  default void onElements(Map<String, Integer> countsByTag) {
+  }
+
+  /**
+   * Report a lookup of the data provider.
+   * @param call the kind of lookup
+   * @param nanos the time until the lookup completed
+   * @param success false if the lookup failed
+   */
+  default void onDataProviderCall(Call call, long nanos, boolean success) {
+  }
+
+}
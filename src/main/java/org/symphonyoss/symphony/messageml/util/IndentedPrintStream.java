@@ -18,6 +18,7 @@ package org.symphonyoss.symphony.messageml.util;
 
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
 import java.util.Collection;
 
 /**
@@ -41,6 +42,11 @@ public class IndentedPrintStream extends PrintStream {
     super(outputStream instanceof CountedOutputStream ? outputStream : new CountedOutputStream(outputStream));
   }
 
+  public IndentedPrintStream(OutputStream outputStream, String encoding) throws UnsupportedEncodingException {
+    super(outputStream instanceof CountedOutputStream ? outputStream : new CountedOutputStream(outputStream), false,
+        encoding);
+  }
+
   public void setPrintOffsets(boolean printOffsets) {
     this.printOffsets = printOffsets;
   }
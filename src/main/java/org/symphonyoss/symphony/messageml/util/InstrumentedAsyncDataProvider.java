@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml.util;
+
+import org.symphonyoss.symphony.messageml.util.IMetricsListener.Call;
+
+import java.net.URI;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * An {@link IAsyncDataProvider} decorator reporting the number and the latency of lookups to an
+ * {@link IMetricsListener}. The latency of a lookup is the time until its stage completes, and is reported on the
+ * thread completing it.
+ */
+public class InstrumentedAsyncDataProvider implements IAsyncDataProvider {
+  private final IAsyncDataProvider dataProvider;
+  private final IMetricsListener listener;
+
+  public InstrumentedAsyncDataProvider(IAsyncDataProvider dataProvider, IMetricsListener listener) {
+    this.dataProvider = dataProvider;
+    this.listener = listener;
+  }
+
+  /**
+   * Instrument a data provider, unless the listener ignores all events.
+   */
+  public static IAsyncDataProvider wrap(IAsyncDataProvider dataProvider, IMetricsListener listener) {
+    if (dataProvider == null || listener == IMetricsListener.NONE) {
+      return dataProvider;
+    }
+    return new InstrumentedAsyncDataProvider(dataProvider, listener);
+  }
+
+  @Override
+  public CompletionStage<IUserPresentation> getUserPresentation(String emailAddress) {
+    return report(Call.USER_BY_EMAIL, System.nanoTime(), dataProvider.getUserPresentation(emailAddress));
+  }
+
+  @Override
+  public CompletionStage<IUserPresentation> getUserPresentation(Long uid) {
+    return report(Call.USER_BY_UID, System.nanoTime(), dataProvider.getUserPresentation(uid));
+  }
+
+  @Override
+  public CompletionStage<Void> validateURI(URI uri) {
+    return report(Call.VALIDATE_URI, System.nanoTime(), dataProvider.validateURI(uri));
+  }
+
+  private <T> CompletionStage<T> report(Call call, long start, CompletionStage<T> stage) {
+    return stage.whenComplete((result, error) ->
+        listener.onDataProviderCall(call, System.nanoTime() - start, error == null));
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml.util;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener.Call;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * An {@link IDataProvider} decorator reporting the number and the latency of lookups to an
+ * {@link IMetricsListener}. Use {@link #wrap(IDataProvider, IMetricsListener)} to keep the bulk lookups of an
+ * {@link IBatchDataProvider}.
+ */
+public class InstrumentedDataProvider implements IDataProvider {
+  protected final IDataProvider dataProvider;
+  protected final IMetricsListener listener;
+
+  public InstrumentedDataProvider(IDataProvider dataProvider, IMetricsListener listener) {
+    this.dataProvider = dataProvider;
+    this.listener = listener;
+  }
+
+  /**
+   * Instrument a data provider, implementing {@link IBatchDataProvider} if it does. The data provider is returned
+   * as is if the listener ignores all events.
+   */
+  public static IDataProvider wrap(IDataProvider dataProvider, IMetricsListener listener) {
+    if (dataProvider == null || listener == IMetricsListener.NONE) {
+      return dataProvider;
+    } else if (dataProvider instanceof IBatchDataProvider) {
+      return new Batch((IBatchDataProvider) dataProvider, listener);
+    } else {
+      return new InstrumentedDataProvider(dataProvider, listener);
+    }
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+    long start = System.nanoTime();
+    boolean success = false;
+
+    try {
+      IUserPresentation user = dataProvider.getUserPresentation(emailAddress);
+      success = true;
+      return user;
+    } finally {
+      listener.onDataProviderCall(Call.USER_BY_EMAIL, System.nanoTime() - start, success);
+    }
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+    long start = System.nanoTime();
+    boolean success = false;
+
+    try {
+      IUserPresentation user = dataProvider.getUserPresentation(uid);
+      success = true;
+      return user;
+    } finally {
+      listener.onDataProviderCall(Call.USER_BY_UID, System.nanoTime() - start, success);
+    }
+  }
+
+  @Override
+  public void validateURI(URI uri) throws InvalidInputException, ProcessingException {
+    long start = System.nanoTime();
+    boolean success = false;
+
+    try {
+      dataProvider.validateURI(uri);
+      success = true;
+    } finally {
+      listener.onDataProviderCall(Call.VALIDATE_URI, System.nanoTime() - start, success);
+    }
+  }
+
+  /**
+   * Instruments the bulk lookups of an {@link IBatchDataProvider} as well.
+   */
+  static class Batch extends InstrumentedDataProvider implements IBatchDataProvider {
+
+    Batch(IBatchDataProvider dataProvider, IMetricsListener listener) {
+      super(dataProvider, listener);
+    }
+
+    @Override
+    public Map<Long, IUserPresentation> getUserPresentationsByUid(Collection<Long> uids) {
+      long start = System.nanoTime();
+      boolean success = false;
+
+      try {
+        Map<Long, IUserPresentation> users = ((IBatchDataProvider) dataProvider).getUserPresentationsByUid(uids);
+        success = true;
+        return users;
+      } finally {
+        listener.onDataProviderCall(Call.USERS_BY_UID, System.nanoTime() - start, success);
+      }
+    }
+
+    @Override
+    public Map<String, IUserPresentation> getUserPresentationsByEmail(Collection<String> emailAddresses) {
+      long start = System.nanoTime();
+      boolean success = false;
+
+      try {
+        Map<String, IUserPresentation> users =
+            ((IBatchDataProvider) dataProvider).getUserPresentationsByEmail(emailAddresses);
+        success = true;
+        return users;
+      } finally {
+        listener.onDataProviderCall(Call.USERS_BY_EMAIL, System.nanoTime() - start, success);
+      }
+    }
+  }
+}
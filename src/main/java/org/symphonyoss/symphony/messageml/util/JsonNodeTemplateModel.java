@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import freemarker.template.AdapterTemplateModel;
+import freemarker.template.SimpleNumber;
+import freemarker.template.SimpleScalar;
+import freemarker.template.TemplateBooleanModel;
+import freemarker.template.TemplateCollectionModel;
+import freemarker.template.TemplateHashModelEx;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelIterator;
+import freemarker.template.TemplateSequenceModel;
+
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * Exposes Jackson {@link JsonNode} trees to Freemarker templates without converting them to Java collections.
+ *
+ * Objects are presented as hashes and arrays as sequences; their members are wrapped only when a template reads
+ * them. Textual, numeric and boolean nodes become scalars, numbers and booleans respectively, while JSON nulls and
+ * missing fields are undefined.
+ */
+public class JsonNodeTemplateModel {
+
+  private JsonNodeTemplateModel() {
+  }
+
+  /**
+   * Wrap the JSON node into the matching Freemarker template model, or return null for JSON nulls and missing nodes.
+   */
+  public static TemplateModel wrap(JsonNode node) {
+    if (node == null || node.isNull() || node.isMissingNode()) {
+      return null;
+    } else if (node.isObject()) {
+      return new ObjectModel(node);
+    } else if (node.isArray()) {
+      return new ArrayModel(node);
+    } else if (node.isNumber()) {
+      return new SimpleNumber(node.numberValue());
+    } else if (node.isBoolean()) {
+      return node.booleanValue() ? TemplateBooleanModel.TRUE : TemplateBooleanModel.FALSE;
+    } else {
+      return new SimpleScalar(node.asText());
+    }
+  }
+
+  /**
+   * A JSON object presented as a Freemarker hash.
+   */
+  private static class ObjectModel implements TemplateHashModelEx, AdapterTemplateModel {
+    private final JsonNode node;
+
+    ObjectModel(JsonNode node) {
+      this.node = node;
+    }
+
+    @Override
+    public TemplateModel get(String key) {
+      return wrap(node.get(key));
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return node.size() == 0;
+    }
+
+    @Override
+    public int size() {
+      return node.size();
+    }
+
+    @Override
+    public TemplateCollectionModel keys() {
+      return () -> new NodeIterator<>(node.fieldNames(), SimpleScalar::new);
+    }
+
+    @Override
+    public TemplateCollectionModel values() {
+      return () -> new NodeIterator<>(node.elements(), JsonNodeTemplateModel::wrap);
+    }
+
+    @Override
+    public Object getAdaptedObject(Class hint) {
+      return node;
+    }
+  }
+
+  /**
+   * A JSON array presented as a Freemarker sequence.
+   */
+  private static class ArrayModel implements TemplateSequenceModel, TemplateCollectionModel, AdapterTemplateModel {
+    private final JsonNode node;
+
+    ArrayModel(JsonNode node) {
+      this.node = node;
+    }
+
+    @Override
+    public TemplateModel get(int index) {
+      return wrap(node.get(index));
+    }
+
+    @Override
+    public int size() {
+      return node.size();
+    }
+
+    @Override
+    public TemplateModelIterator iterator() {
+      return new NodeIterator<>(node.elements(), JsonNodeTemplateModel::wrap);
+    }
+
+    @Override
+    public Object getAdaptedObject(Class hint) {
+      return node;
+    }
+  }
+
+  /**
+   * Iterates over object keys or values and array elements, wrapping each as it is read.
+   */
+  private static class NodeIterator<T> implements TemplateModelIterator {
+    private final Iterator<T> iterator;
+    private final Function<T, TemplateModel> wrapper;
+
+    NodeIterator(Iterator<T> iterator, Function<T, TemplateModel> wrapper) {
+      this.iterator = iterator;
+      this.wrapper = wrapper;
+    }
+
+    @Override
+    public TemplateModel next() {
+      return wrapper.apply(iterator.next());
+    }
+
+    @Override
+    public boolean hasNext() {
+      return iterator.hasNext();
+    }
+  }
+}
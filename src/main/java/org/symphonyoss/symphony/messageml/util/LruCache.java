@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe cache holding at most a fixed number of entries, evicting the least recently used entry when full.
+ */
+public class LruCache<K, V> {
+  private final int maxSize;
+  private final Map<K, V> entries;
+
+  public LruCache(final int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("The cache size must be positive");
+    }
+
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Return the value cached for the key, or null if there is none.
+   */
+  public synchronized V get(K key) {
+    return entries.get(key);
+  }
+
+  /**
+   * Cache the value for the key, evicting the least recently used entry if the cache is full.
+   */
+  public synchronized void put(K key, V value) {
+    entries.put(key, value);
+  }
+
+  /**
+   * Remove the value cached for the key.
+   */
+  public synchronized void remove(K key) {
+    entries.remove(key);
+  }
+
+  /**
+   * Remove all entries from the cache.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Return the number of cached entries.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Return the maximum number of cached entries.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+}
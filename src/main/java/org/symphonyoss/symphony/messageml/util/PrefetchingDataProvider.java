@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A per-message {@link IDataProvider} which answers user lookups from users resolved in bulk beforehand by an
+ * {@link IBatchDataProvider}. Lookups of users which were not prefetched, as well as URI validation, are passed on
+ * to the underlying provider.
+ */
+public class PrefetchingDataProvider implements IDataProvider {
+  private final IBatchDataProvider dataProvider;
+  private final Map<Long, IUserPresentation> usersByUid = new HashMap<>();
+  private final Map<String, IUserPresentation> usersByEmail = new HashMap<>();
+
+  public PrefetchingDataProvider(IBatchDataProvider dataProvider) {
+    this.dataProvider = dataProvider;
+  }
+
+  /**
+   * Resolve the given users with one bulk request per lookup type.
+   * @param uids UIDs of the users to resolve
+   * @param emailAddresses emails of the users to resolve
+   */
+  public void prefetch(Collection<Long> uids, Collection<String> emailAddresses) {
+    if (!uids.isEmpty()) {
+      usersByUid.putAll(dataProvider.getUserPresentationsByUid(uids));
+    }
+
+    if (!emailAddresses.isEmpty()) {
+      usersByEmail.putAll(dataProvider.getUserPresentationsByEmail(emailAddresses));
+    }
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+    IUserPresentation user = usersByEmail.get(emailAddress);
+    return (user != null) ? user : dataProvider.getUserPresentation(emailAddress);
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+    IUserPresentation user = usersByUid.get(uid);
+    return (user != null) ? user : dataProvider.getUserPresentation(uid);
+  }
+
+  @Override
+  public void validateURI(URI uri) throws InvalidInputException, ProcessingException {
+    dataProvider.validateURI(uri);
+  }
+}
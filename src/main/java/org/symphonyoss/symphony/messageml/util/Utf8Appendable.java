@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An {@link Appendable} which encodes characters in UTF-8 into a reusable byte buffer, writing the buffer to an
+ * {@link OutputStream} whenever it fills up and on {@link #flush()}. Unpaired surrogates are encoded as '?'.
+ *
+ * Instances are not thread-safe.
+ */
+public class Utf8Appendable implements Appendable {
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+  private final OutputStream out;
+  private final byte[] buffer;
+  private int count;
+  private char highSurrogate;
+
+  public Utf8Appendable(OutputStream out) {
+    this(out, DEFAULT_BUFFER_SIZE);
+  }
+
+  public Utf8Appendable(OutputStream out, int bufferSize) {
+    if (bufferSize < 4) {
+      throw new IllegalArgumentException("The buffer must hold at least one character");
+    }
+
+    this.out = out;
+    this.buffer = new byte[bufferSize];
+  }
+
+  @Override
+  public Appendable append(CharSequence csq) throws IOException {
+    CharSequence s = (csq != null) ? csq : "null";
+    return append(s, 0, s.length());
+  }
+
+  @Override
+  public Appendable append(CharSequence csq, int start, int end) throws IOException {
+    CharSequence s = (csq != null) ? csq : "null";
+
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+
+      if (c < 0x80 && highSurrogate == 0) {
+        if (count == buffer.length) {
+          flushBuffer();
+        }
+        buffer[count++] = (byte) c;
+      } else {
+        append(c);
+      }
+    }
+
+    return this;
+  }
+
+  @Override
+  public Appendable append(char c) throws IOException {
+    if (buffer.length - count < 4) {
+      flushBuffer();
+    }
+
+    if (highSurrogate != 0) {
+      char high = highSurrogate;
+      highSurrogate = 0;
+
+      if (Character.isLowSurrogate(c)) {
+        int codePoint = Character.toCodePoint(high, c);
+        buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+        buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+        return this;
+      }
+
+      buffer[count++] = '?';
+      return append(c);
+    }
+
+    if (c < 0x80) {
+      buffer[count++] = (byte) c;
+    } else if (c < 0x800) {
+      buffer[count++] = (byte) (0xC0 | (c >> 6));
+      buffer[count++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      buffer[count++] = '?';
+    } else {
+      buffer[count++] = (byte) (0xE0 | (c >> 12));
+      buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      buffer[count++] = (byte) (0x80 | (c & 0x3F));
+    }
+
+    return this;
+  }
+
+  /**
+   * Write the buffered bytes to the output stream and flush it. A pending high surrogate is kept until the next
+   * character.
+   */
+  public void flush() throws IOException {
+    flushBuffer();
+    out.flush();
+  }
+
+  private void flushBuffer() throws IOException {
+    if (count > 0) {
+      out.write(buffer, 0, count);
+      count = 0;
+    }
+  }
+}
@@ -7,6 +7,7 @@
 package org.symphonyoss.symphony.messageml.util;
 
 import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Stack;
@@ -27,6 +28,15 @@ public class XmlPrintStream extends IndentedPrintStream {
     super(outputStream);
   }
 
+  /**
+   * Constructor.
+   * @param outputStream An OutputStream to which the formatted output will be sent.
+   * @param encoding The name of the character encoding of the output.
+   */
+  public XmlPrintStream(OutputStream outputStream, String encoding) throws UnsupportedEncodingException {
+    super(outputStream, encoding);
+  }
+
   private void startElement(String name, String... attributes) {
     println("<" + name);
     indent();
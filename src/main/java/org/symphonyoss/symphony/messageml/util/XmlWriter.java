@@ -0,0 +1,346 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A lightweight, non-synchronized emitter of compact XML (no indentation or line breaks) to an {@link Appendable},
+ * such as a {@link StringBuilder} or a {@link Utf8Appendable}. Reserved XML characters are escaped while the text is
+ * written, without intermediate copies.
+ *
+ * As with {@link java.io.PrintStream}, errors of the underlying Appendable do not interrupt the output; they are
+ * reported by {@link #checkError()} and {@link #getError()}.
+ *
+ * In text-only mode the writer emits the text content of the document, as read by an XML parser, instead of the
+ * markup: tags and attributes are omitted and text is written without escaping.
+ *
+ * Instances are not thread-safe and are meant to be used by a single thread for a single document.
+ */
+public class XmlWriter {
+  private final Appendable out;
+  private final boolean textOnly;
+  private String[] elementStack = new String[16];
+  private int depth;
+  private boolean removeNl = true;
+  private int elementCount;
+  private int length;
+  private IOException error;
+
+  /**
+   * Constructor.
+   * @param out An Appendable to which the XML will be sent.
+   */
+  public XmlWriter(Appendable out) {
+    this(out, false);
+  }
+
+  /**
+   * Constructor.
+   * @param out An Appendable to which the output will be sent.
+   * @param textOnly Whether to write only the text content of the document.
+   */
+  public XmlWriter(Appendable out, boolean textOnly) {
+    this.out = out;
+    this.textOnly = textOnly;
+  }
+
+  /**
+   * Open an XML element with the given name, and attributes. A call to closeElement() will output
+   * the appropriate XML closing tag. This class remembers the tag names.
+   * @param name Name of the XML element to open.
+   * @param attributes A map of name value pairs which will be used to add attributes to
+   * the element.
+   */
+  public void openElement(String name, Map<String, String> attributes) {
+    push(name);
+    startElement(name, attributes);
+    printMarkup(">");
+  }
+
+  /**
+   * Open an XML element with the given name, and attributes. A call to closeElement() will output
+   * the appropriate XML closing tag. This class remembers the tag names.
+   *
+   * The String parameters are taken to be alternatively names and values. Any odd value
+   * at the end of the list is added as a valueless attribute.
+   * @param name Name of the element.
+   * @param attributes Attributes in name value pairs.
+   */
+  public void openElement(String name, String... attributes) {
+    push(name);
+    startElement(name, attributes);
+    printMarkup(">");
+  }
+
+  /**
+   * Close an element previously created with openElement().
+   */
+  public void closeElement() {
+    printMarkup("</");
+    printMarkup(elementStack[--depth]);
+    printMarkup(">");
+    elementStack[depth] = null;
+  }
+
+  /**
+   * Output a complete empty element.
+   * @param name Name of element.
+   */
+  public void printElement(String name) {
+    elementCount++;
+    printMarkup("<");
+    printMarkup(name);
+    printMarkup("/>");
+  }
+
+  /**
+   * Output an element with the given content (value). The opening and closing tags are
+   * output in a single operation.
+   * @param name Name of the element.
+   * @param value Contents of the element, or null for an empty element.
+   * @param attributes Alternate names and values of attributes for the element.
+   */
+  public void printElement(String name, String value, String... attributes) {
+    startElement(name, attributes);
+    endElement(name, value);
+  }
+
+  /**
+   * Output a complete element with the given content and attributes.
+   * @param name Name of element.
+   * @param value Content of element, or null for an empty element.
+   * @param attributes A map of name value pairs which will be used to add attributes to
+   * the element.
+   */
+  public void printElement(String name, String value, Map<String, String> attributes) {
+    startElement(name, attributes);
+    endElement(name, value);
+  }
+
+  /**
+   * Output text content, translating reserved XML characters to XML entities.
+   * @param text Text to output.
+   */
+  public void printText(String text) {
+    printText(text, false);
+  }
+
+  /**
+   * Output text content, translating reserved XML characters to XML entities and optionally replacing
+   * runs of newline characters with a single space.
+   * @param text Text to output.
+   * @param removeNewLines Whether to replace newline characters.
+   */
+  public void printText(String text, boolean removeNewLines) {
+    int length = text.length();
+    int start = 0;
+
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      String replacement;
+
+      if (c == '\n') {
+        if (!removeNewLines) {
+          continue;
+        }
+        replacement = (i > 0 && text.charAt(i - 1) == '\n') ? "" : " ";
+      } else if (textOnly) {
+        continue;
+      } else {
+        replacement = escape(c);
+
+        if (replacement == null) {
+          continue;
+        }
+      }
+
+      print(text, start, i);
+      print(replacement);
+      start = i + 1;
+    }
+
+    print(text, start, length);
+  }
+
+  /**
+   * Output a string as is, without escaping.
+   * @param s String to output.
+   */
+  public void print(String s) {
+    try {
+      out.append(s);
+      length += s.length();
+    } catch (IOException e) {
+      setError(e);
+    }
+  }
+
+  /**
+   * Return true if an error occurred writing to the underlying Appendable.
+   */
+  public boolean checkError() {
+    return error != null;
+  }
+
+  /**
+   * Return the first error which occurred writing to the underlying Appendable, or null.
+   */
+  public IOException getError() {
+    return error;
+  }
+
+  /**
+   * Return the number of elements written so far.
+   */
+  public int getElementCount() {
+    return elementCount;
+  }
+
+  /**
+   * Return the number of characters written so far.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  public boolean isTextOnly() {
+    return textOnly;
+  }
+
+  public boolean isRemoveNl() {
+    return removeNl;
+  }
+
+  public void setRemoveNl(boolean removeNl) {
+    this.removeNl = removeNl;
+  }
+
+  private void startElement(String name, String... attributes) {
+    elementCount++;
+
+    if (textOnly) {
+      return;
+    }
+
+    print('<');
+    print(name);
+
+    int i = 0;
+
+    while (i < attributes.length) {
+      if (i < attributes.length - 1) {
+        printAttribute(attributes[i++], attributes[i++]);
+      } else {
+        print(' ');
+        print(attributes[i++]);
+      }
+    }
+  }
+
+  private void startElement(String name, Map<String, String> attributes) {
+    elementCount++;
+
+    if (textOnly) {
+      return;
+    }
+
+    print('<');
+    print(name);
+
+    for (Entry<String, String> entry : attributes.entrySet()) {
+      printAttribute(entry.getKey(), entry.getValue());
+    }
+  }
+
+  private void endElement(String name, String value) {
+    if (value != null) {
+      printMarkup(">");
+      printText(value);
+      printMarkup("</");
+      printMarkup(name);
+      printMarkup(">");
+    } else {
+      printMarkup("/>");
+    }
+  }
+
+  private void printAttribute(String name, String value) {
+    print(' ');
+    print(name);
+    print("=\"");
+    printText(value);
+    print('"');
+  }
+
+  private void printMarkup(String s) {
+    if (!textOnly) {
+      print(s);
+    }
+  }
+
+  private static String escape(char c) {
+    switch (c) {
+      case '<':
+        return "&lt;";
+      case '>':
+        return "&gt;";
+      case '&':
+        return "&amp;";
+      case '"':
+        return "&quot;";
+      default:
+        return null;
+    }
+  }
+
+  private void push(String name) {
+    if (depth == elementStack.length) {
+      elementStack = Arrays.copyOf(elementStack, depth * 2);
+    }
+    elementStack[depth++] = name;
+  }
+
+  private void print(char c) {
+    try {
+      out.append(c);
+      length++;
+    } catch (IOException e) {
+      setError(e);
+    }
+  }
+
+  private void print(String s, int start, int end) {
+    if (start < end) {
+      try {
+        out.append(s, start, end);
+        length += end - start;
+      } catch (IOException e) {
+        setError(e);
+      }
+    }
+  }
+
+  private void setError(IOException e) {
+    if (error == null) {
+      error = e;
+    }
+  }
+}
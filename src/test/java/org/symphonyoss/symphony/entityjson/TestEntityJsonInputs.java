@@ -0,0 +1,136 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.entityjson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.symphonyoss.symphony.entityjson.EntityJsonSchemaResolver.Source;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Test the byte array, stream and JSON node entry points, validating against the test schema directory.
+ */
+public class TestEntityJsonInputs
+{
+  private static final String ENTITY_JSON = "{\"obj\": {\"type\": \"org.example.thing\", \"version\": \"1.0\", "
+      + "\"id\": [{\"type\": \"org.example.id\", \"value\": \"42\"}]}}";
+  private static final String OBJECT = "{\"type\": \"org.example.thing\", \"version\": \"1.2\"}";
+  
+  private EntityJsonParser getParser() throws URISyntaxException
+  {
+    return new EntityJsonParserBuilder()
+        .withSchemaSources(Source.DIRECTORY)
+        .withSchemaDirectory(TestEntityJsonSchemaResolver.getTestSchemaDirectory())
+        .build();
+  }
+  
+  @Test
+  public void testBytes() throws Exception
+  {
+    EntityJson entityJson = getParser().parseEntityJson("Unit Test", ENTITY_JSON.getBytes(StandardCharsets.UTF_8));
+    
+    assertEquals("org.example.thing", entityJson.iterator().next().getType());
+    assertEquals(2, getParser().parseStructuredObject("Unit Test", OBJECT.getBytes(StandardCharsets.UTF_16)).getMinorVersion());
+  }
+  
+  @Test
+  public void testStream() throws Exception
+  {
+    CloseTrackingStream in = new CloseTrackingStream(ENTITY_JSON.getBytes(StandardCharsets.UTF_8));
+    
+    getParser().parseEntityJson("Unit Test", in);
+    assertTrue(in.closed_);
+    
+    assertEquals("1.2", getParser().parseStructuredObject("Unit Test",
+        (InputStream)new ByteArrayInputStream(OBJECT.getBytes(StandardCharsets.UTF_8))).getVersion());
+  }
+  
+  @Test
+  public void testJsonNode() throws Exception
+  {
+    JsonNode node = new ObjectMapper().readTree(ENTITY_JSON);
+    
+    EntityJson entityJson = getParser().parseEntityJson("Unit Test", node);
+    
+    assertEquals("org.example.id:42", entityJson.iterator().next().getIdList().get(0).toString());
+    assertEquals("1.0", getParser().parseStructuredObject("Unit Test", node.get("obj")).getVersion());
+  }
+  
+  @Test(expected = InvalidInstanceException.class)
+  public void testJsonNodeNotObject() throws Exception
+  {
+    getParser().parseEntityJson("Unit Test", new ObjectMapper().readTree("[1, 2]"));
+  }
+  
+  @Test(expected = InvalidInstanceException.class)
+  public void testBytesNotObject() throws Exception
+  {
+    getParser().parseStructuredObject("Unit Test", "\"text\"".getBytes(StandardCharsets.UTF_8));
+  }
+  
+  @Test(expected = InvalidInstanceException.class)
+  public void testMalformedBytes() throws Exception
+  {
+    getParser().parseEntityJson("Unit Test", "{\"obj\": ".getBytes(StandardCharsets.UTF_8));
+  }
+  
+  @Test(expected = InvalidInstanceException.class)
+  public void testEmptyStream() throws Exception
+  {
+    getParser().parseEntityJson("Unit Test", (InputStream)new ByteArrayInputStream(new byte[0]));
+  }
+  
+  @Test(expected = SchemaValidationException.class)
+  public void testInvalidInstance() throws Exception
+  {
+    getParser().parseStructuredObject("Unit Test", "{\"type\": \"org.example.thing\", \"version\": \"1\"}".getBytes(StandardCharsets.UTF_8));
+  }
+  
+  private static class CloseTrackingStream extends ByteArrayInputStream
+  {
+    private boolean closed_;
+    
+    CloseTrackingStream(byte[] buf)
+    {
+      super(buf);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      closed_ = true;
+      super.close();
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.entityjson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/*
+ * Test caching of compiled schemas, schemas are read from local files so that no network access
+ * is required.
+ */
+public class TestEntityJsonSchemaCache
+{
+  private static final String NUMBER_SCHEMA = "{\"type\": \"object\", \"properties\": {\"value\": {\"type\": \"number\"}}}";
+  private static final String STRING_SCHEMA = "{\"type\": \"object\", \"properties\": {\"value\": {\"type\": \"string\"}}}";
+  
+  @Rule
+  public TemporaryFolder folder_ = new TemporaryFolder();
+  
+  private final ObjectMapper mapper_ = new ObjectMapper();
+  
+  @Test
+  public void testHitsAndMisses() throws Exception
+  {
+    EntityJsonParser parser = new EntityJsonParserBuilder().build();
+    URL              schemaUrl = writeSchema("number.json", NUMBER_SCHEMA);
+    
+    for(int i=0 ; i<3 ; i++)
+      parser.validate(schemaUrl, "Unit Test", new StringReader("{\"value\": 1}"));
+    
+    EntityJsonSchemaCache cache = parser.getSchemaCache();
+    
+    assertEquals(EntityJsonSchemaCache.DEFAULT_MAX_SIZE, cache.getMaxSize());
+    assertEquals(1, cache.getSize());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(2, cache.getHitCount());
+  }
+  
+  @Test
+  public void testCachedSchemaIsShared() throws Exception
+  {
+    EntityJsonParser parser = new EntityJsonParserBuilder().build();
+    URL              schemaUrl = writeSchema("number.json", NUMBER_SCHEMA);
+    
+    IEntityJsonSchemaContext first = parser.validate(schemaUrl, "Unit Test", new StringReader("{\"value\": 1}"));
+    IEntityJsonSchemaContext second = parser.validate(schemaUrl, "Unit Test", instance("{\"value\": 2}"));
+    
+    assertSame(first.getSchemaJsonNode(), second.getSchemaJsonNode());
+    assertEquals(schemaUrl, second.getSchemaSource());
+  }
+  
+  @Test
+  public void testInvalidInstanceWithCachedSchema() throws Exception
+  {
+    EntityJsonParser parser = new EntityJsonParserBuilder().build();
+    URL              schemaUrl = writeSchema("number.json", NUMBER_SCHEMA);
+    
+    parser.validate(schemaUrl, "Unit Test", instance("{\"value\": 1}"));
+    
+    try
+    {
+      parser.validate(schemaUrl, "Unit Test", instance("{\"value\": \"one\"}"));
+      fail("Expected SchemaValidationException");
+    }
+    catch(SchemaValidationException e)
+    {
+      assertEquals(1, parser.getSchemaCache().getHitCount());
+    }
+  }
+  
+  @Test
+  public void testInvalidate() throws Exception
+  {
+    EntityJsonParser parser = new EntityJsonParserBuilder().build();
+    URL              schemaUrl = writeSchema("value.json", NUMBER_SCHEMA);
+    
+    parser.validate(schemaUrl, "Unit Test", instance("{\"value\": 1}"));
+    writeSchema("value.json", STRING_SCHEMA);
+    
+    // The cached schema is still in use
+    parser.validate(schemaUrl, "Unit Test", instance("{\"value\": 1}"));
+    
+    assertEquals(1, parser.getSchemaCache().invalidate(schemaUrl));
+    assertEquals(0, parser.getSchemaCache().getSize());
+    
+    parser.validate(schemaUrl, "Unit Test", instance("{\"value\": \"one\"}"));
+    
+    try
+    {
+      parser.validate(schemaUrl, "Unit Test", instance("{\"value\": 1}"));
+      fail("Expected SchemaValidationException");
+    }
+    catch(SchemaValidationException e)
+    {
+      // expected
+    }
+  }
+  
+  @Test
+  public void testVersions() throws Exception
+  {
+    EntityJsonParser      parser = new EntityJsonParserBuilder().build();
+    EntityJsonSchemaCache cache = parser.getSchemaCache();
+    URL                   schemaUrl = writeSchema("number.json", NUMBER_SCHEMA);
+    
+    parser.validate(schemaUrl, "1.0", "Unit Test", instance("{\"value\": 1}"));
+    parser.validate(schemaUrl, "1.1", "Unit Test", instance("{\"value\": 1}"));
+    parser.validate(schemaUrl, "1.0", "Unit Test", instance("{\"value\": 1}"));
+    
+    assertEquals(2, cache.getSize());
+    assertEquals(1, cache.getHitCount());
+    
+    assertTrue(cache.invalidate(schemaUrl, "1.0"));
+    assertFalse(cache.invalidate(schemaUrl, "1.0"));
+    assertEquals(1, cache.getSize());
+    
+    cache.invalidateAll();
+    assertEquals(0, cache.getSize());
+  }
+  
+  @Test
+  public void testEviction() throws Exception
+  {
+    EntityJsonParser      parser = new EntityJsonParserBuilder().withSchemaCacheSize(1).build();
+    EntityJsonSchemaCache cache = parser.getSchemaCache();
+    URL                   numberUrl = writeSchema("number.json", NUMBER_SCHEMA);
+    URL                   stringUrl = writeSchema("string.json", STRING_SCHEMA);
+    
+    parser.validate(numberUrl, "Unit Test", instance("{\"value\": 1}"));
+    parser.validate(stringUrl, "Unit Test", instance("{\"value\": \"one\"}"));
+    parser.validate(numberUrl, "Unit Test", instance("{\"value\": 1}"));
+    
+    assertEquals(1, cache.getSize());
+    assertEquals(2, cache.getEvictionCount());
+    assertEquals(3, cache.getMissCount());
+  }
+  
+  @Test
+  public void testCacheDisabled() throws Exception
+  {
+    EntityJsonParser parser = new EntityJsonParserBuilder().withSchemaCacheSize(0).build();
+    URL              schemaUrl = writeSchema("number.json", NUMBER_SCHEMA);
+    
+    assertNull(parser.getSchemaCache());
+    
+    parser.validate(schemaUrl, "Unit Test", instance("{\"value\": 1}"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeCacheSize()
+  {
+    new EntityJsonParserBuilder().withSchemaCacheSize(-1);
+  }
+  
+  private URL writeSchema(String name, String schema) throws IOException
+  {
+    File file = new File(folder_.getRoot(), name);
+    
+    Files.write(file.toPath(), schema.getBytes(StandardCharsets.UTF_8));
+    
+    return file.toURI().toURL();
+  }
+  
+  private ObjectNode instance(String json) throws IOException
+  {
+    return (ObjectNode)mapper_.readTree(json);
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.entityjson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.symphonyoss.symphony.entityjson.EntityJsonSchemaResolver.Source;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Test the persistent schema cache against a local HTTP server.
+ */
+public class TestEntityJsonSchemaDiskCache
+{
+  private static final String NUMBER_SCHEMA = "{\"type\": \"object\", \"properties\": {\"value\": {\"type\": \"number\"}}}";
+  private static final String STRING_SCHEMA = "{\"type\": \"object\", \"properties\": {\"value\": {\"type\": \"string\"}}}";
+  
+  @Rule
+  public TemporaryFolder folder_ = new TemporaryFolder();
+  
+  private final AtomicInteger requestCount_ = new AtomicInteger();
+  private final AtomicLong    clock_ = new AtomicLong(1000000);
+  
+  private HttpServer          server_;
+  private volatile String     content_ = NUMBER_SCHEMA;
+  private volatile String     etag_ = "\"v1\"";
+  private volatile String     ifNoneMatch_;
+  
+  @Before
+  public void setUp() throws IOException
+  {
+    server_ = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server_.createContext("/schemas/number.json", this::handle);
+    server_.start();
+  }
+  
+  @After
+  public void tearDown()
+  {
+    server_.stop(0);
+  }
+  
+  private void handle(HttpExchange exchange) throws IOException
+  {
+    requestCount_.incrementAndGet();
+    ifNoneMatch_ = exchange.getRequestHeaders().getFirst("If-None-Match");
+    
+    if(etag_.equals(ifNoneMatch_))
+    {
+      exchange.sendResponseHeaders(304, -1);
+    }
+    else
+    {
+      byte[] body = content_.getBytes(StandardCharsets.UTF_8);
+      
+      exchange.getResponseHeaders().add("ETag", etag_);
+      exchange.getResponseHeaders().add("Last-Modified", "Tue, 01 Aug 2017 10:00:00 GMT");
+      exchange.sendResponseHeaders(200, body.length);
+      
+      try(OutputStream out = exchange.getResponseBody())
+      {
+        out.write(body);
+      }
+    }
+    exchange.close();
+  }
+  
+  private URI getUri(String path) throws Exception
+  {
+    return new URI("http://localhost:" + server_.getAddress().getPort() + path);
+  }
+  
+  private EntityJsonSchemaDiskCache getCache()
+  {
+    return new EntityJsonSchemaDiskCache(folder_.getRoot(), 1, TimeUnit.HOURS, Runnable::run, clock_::get);
+  }
+  
+  @Test
+  public void testFetchAndStore() throws Exception
+  {
+    URI uri = getUri("/schemas/number.json");
+    
+    assertEquals(NUMBER_SCHEMA, read(getCache().open(uri)));
+    assertEquals(1, requestCount_.get());
+    
+    File file = new File(folder_.getRoot(), EntityJsonSchemaResolver.getPath(uri));
+    
+    assertEquals("localhost_" + server_.getAddress().getPort(), file.getParentFile().getParentFile().getName());
+    assertTrue(file.isFile());
+    
+    Properties metadata = EntityJsonSchemaDiskCache.readMetadata(file);
+    
+    assertEquals(uri.toString(), metadata.getProperty(EntityJsonSchemaDiskCache.URL));
+    assertEquals("\"v1\"", metadata.getProperty(EntityJsonSchemaDiskCache.ETAG));
+    assertEquals("Tue, 01 Aug 2017 10:00:00 GMT", metadata.getProperty(EntityJsonSchemaDiskCache.LAST_MODIFIED));
+    assertEquals("1000000", metadata.getProperty(EntityJsonSchemaDiskCache.FETCH_TIME));
+  }
+  
+  @Test
+  public void testServedFromDisk() throws Exception
+  {
+    URI uri = getUri("/schemas/number.json");
+    
+    getCache().open(uri).close();
+    
+    // A new instance, as after a restart, does not download the schema again
+    assertEquals(NUMBER_SCHEMA, read(getCache().open(uri)));
+    assertEquals(NUMBER_SCHEMA, read(getCache().open(uri)));
+    assertEquals(1, requestCount_.get());
+  }
+  
+  @Test
+  public void testRevalidateNotModified() throws Exception
+  {
+    URI uri = getUri("/schemas/number.json");
+    EntityJsonSchemaDiskCache cache = getCache();
+    
+    cache.open(uri).close();
+    clock_.addAndGet(TimeUnit.HOURS.toMillis(1));
+    
+    assertEquals(NUMBER_SCHEMA, read(cache.open(uri)));
+    assertEquals(2, requestCount_.get());
+    assertEquals("\"v1\"", ifNoneMatch_);
+    
+    // Revalidated, so no longer stale
+    cache.open(uri).close();
+    assertEquals(2, requestCount_.get());
+  }
+  
+  @Test
+  public void testRevalidateModified() throws Exception
+  {
+    URI uri = getUri("/schemas/number.json");
+    EntityJsonSchemaDiskCache cache = getCache();
+    
+    cache.open(uri).close();
+    content_ = STRING_SCHEMA;
+    etag_ = "\"v2\"";
+    clock_.addAndGet(TimeUnit.HOURS.toMillis(2));
+    
+    // The stale copy is served while it is revalidated
+    assertEquals(NUMBER_SCHEMA, read(cache.open(uri)));
+    assertEquals(STRING_SCHEMA, read(cache.open(uri)));
+    assertEquals(2, requestCount_.get());
+  }
+  
+  @Test
+  public void testRevalidateFailure() throws Exception
+  {
+    URI uri = getUri("/schemas/number.json");
+    EntityJsonSchemaDiskCache cache = getCache();
+    
+    cache.open(uri).close();
+    server_.stop(0);
+    clock_.addAndGet(TimeUnit.HOURS.toMillis(2));
+    
+    assertEquals(NUMBER_SCHEMA, read(cache.open(uri)));
+    assertEquals(NUMBER_SCHEMA, read(cache.open(uri)));
+  }
+  
+  @Test(expected = FileNotFoundException.class)
+  public void testNotFound() throws Exception
+  {
+    getCache().open(getUri("/schemas/missing.json"));
+  }
+  
+  @Test
+  public void testParser() throws Exception
+  {
+    URL schemaUrl = getUri("/schemas/number.json").toURL();
+    
+    for(int i=0 ; i<2 ; i++)
+    {
+      EntityJsonParser parser = new EntityJsonParserBuilder()
+          .withSchemaSources(Source.NETWORK)
+          .withSchemaDiskCache(getCache())
+          .build();
+      
+      parser.validate(schemaUrl, "Unit Test", new StringReader("{\"value\": 1}"));
+    }
+    
+    assertEquals(1, requestCount_.get());
+    assertNull(new EntityJsonParserBuilder().build().getSchemaResolver().getDiskCache());
+  }
+  
+  private String read(InputStream in) throws IOException
+  {
+    try
+    {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[]                buf = new byte[1024];
+      int                   n;
+      
+      while((n = in.read(buf)) != -1)
+        out.write(buf, 0, n);
+      
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.entityjson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.symphonyoss.symphony.entityjson.EntityJsonSchemaResolver.Source;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/*
+ * Test resolution of schemas from classpath resources and a local directory, none of these tests
+ * require network access. The test directory holds stand-ins for the published schemas.
+ */
+public class TestEntityJsonSchemaResolver
+{
+  @Rule
+  public TemporaryFolder folder_ = new TemporaryFolder();
+  
+  private EntityJsonParser getOfflineParser() throws URISyntaxException
+  {
+    return new EntityJsonParserBuilder()
+        .withSchemaSources(Source.CLASSPATH, Source.DIRECTORY)
+        .withSchemaDirectory(getTestSchemaDirectory())
+        .build();
+  }
+  
+  /* package */ static File getTestSchemaDirectory() throws URISyntaxException
+  {
+    return new File(TestEntityJsonSchemaResolver.class.getResource("/schemas").toURI());
+  }
+  
+  @Test
+  public void testPath() throws Exception
+  {
+    assertEquals("symphonyosf.github.io/symphony-object/schema/entity-json-v0_1.json",
+        EntityJsonSchemaResolver.getPath(EntityJsonParser.ENTITY_JSON_SCHEMA_URL.toURI()));
+    assertEquals("example.com/a/c.json", EntityJsonSchemaResolver.getPath(new URI("http://EXAMPLE.com/a/b/../c.json#/definitions")));
+    assertNull(EntityJsonSchemaResolver.getPath(new URI("file:/tmp/schema.json")));
+  }
+  
+  @Test(expected = FileNotFoundException.class)
+  public void testPathOutsideRepository() throws Exception
+  {
+    EntityJsonSchemaResolver.getPath(new URI("https://example.com/%2e%2e/%2e%2e/secret.json"));
+  }
+  
+  @Test
+  public void testClasspath() throws Exception
+  {
+    EntityJsonParser parser = new EntityJsonParserBuilder().withSchemaSources(Source.CLASSPATH).build();
+    
+    parser.validate(new URL("https://example.com/schemas/string.json"), "Unit Test", new StringReader("{\"value\": \"A\"}"));
+  }
+  
+  @Test
+  public void testNothingBundled() throws Exception
+  {
+    // Copies served in place of the published schemas could differ from them
+    EntityJsonParser parser = new EntityJsonParserBuilder().withSchemaSources(Source.CLASSPATH).build();
+    
+    for(URL url : new URL[] {EntityJsonParser.JSON_SCHEMA_SCHEMA_URL, EntityJsonParser.ENTITY_JSON_SCHEMA_URL, EntityJsonParser.STRUCTURED_OBJECT_SCHEMA_URL})
+    {
+      try
+      {
+        parser.validate(url, "Unit Test", new StringReader("{}"));
+        fail("Expected NoSchemaException for " + url);
+      }
+      catch(NoSchemaException e)
+      {
+        // expected
+      }
+    }
+  }
+  
+  @Test
+  public void testLocalJsonSchema() throws Exception
+  {
+    getOfflineParser().validate(EntityJsonParser.JSON_SCHEMA_SCHEMA_URL, EntityJsonParser.JSON_SCHEMA_SCHEMA_URL);
+  }
+  
+  @Test
+  public void testLocalEntityJsonSchema() throws Exception
+  {
+    getOfflineParser().validate(EntityJsonParser.JSON_SCHEMA_SCHEMA_URL, EntityJsonParser.ENTITY_JSON_SCHEMA_URL);
+    getOfflineParser().validate(EntityJsonParser.JSON_SCHEMA_SCHEMA_URL, EntityJsonParser.STRUCTURED_OBJECT_SCHEMA_URL);
+  }
+  
+  @Test
+  public void testOfflineEntityJson() throws Exception
+  {
+    EntityJsonParser parser = getOfflineParser();
+    
+    for(String name : new String[] {"single_jira_ticket.json", "expanded_single_jira_ticket.json", "several_financial_securities.json"})
+    {
+      try(Reader in = getPayload(name))
+      {
+        parser.parseEntityJson(name, in);
+      }
+    }
+  }
+  
+  @Test
+  public void testOfflineInvalidEntityJson() throws Exception
+  {
+    try
+    {
+      getOfflineParser().parseEntityJson("Unit Test", new StringReader("{\"obj\": {\"type\": \"org.example\", \"version\": \"one\"}}"));
+      fail("Expected SchemaValidationException");
+    }
+    catch(SchemaValidationException e)
+    {
+      // expected
+    }
+  }
+  
+  @Test
+  public void testDirectory() throws Exception
+  {
+    File dir = folder_.getRoot();
+    
+    writeFile(new File(dir, "example.com/schemas/number.json"), "{\"type\": \"object\", \"properties\": {\"value\": {\"type\": \"number\"}}}");
+    
+    EntityJsonParser parser = new EntityJsonParserBuilder()
+        .withSchemaSources(Source.DIRECTORY)
+        .withSchemaDirectory(dir)
+        .build();
+    
+    parser.validate(new URL("https://example.com/schemas/number.json"), "Unit Test", new StringReader("{\"value\": 1}"));
+  }
+  
+  @Test
+  public void testOrder() throws Exception
+  {
+    File   dir = folder_.getRoot();
+    URL    schemaUrl = new URL("https://example.com/schemas/string.json");
+    String instance = "{\"value\": \"A\"}";
+    
+    // A local copy of the classpath schema which accepts no properties
+    writeFile(new File(dir, EntityJsonSchemaResolver.getPath(schemaUrl.toURI())), "{\"type\": \"object\", \"maxProperties\": 0}");
+    
+    new EntityJsonParserBuilder()
+        .withSchemaSources(Source.CLASSPATH, Source.DIRECTORY)
+        .withSchemaDirectory(dir)
+        .build()
+        .validate(schemaUrl, "Unit Test", new StringReader(instance));
+    
+    try
+    {
+      new EntityJsonParserBuilder()
+          .withSchemaSources(Source.DIRECTORY, Source.CLASSPATH)
+          .withSchemaDirectory(dir)
+          .build()
+          .validate(schemaUrl, "Unit Test", new StringReader(instance));
+      fail("Expected SchemaValidationException");
+    }
+    catch(SchemaValidationException e)
+    {
+      // expected
+    }
+  }
+  
+  @Test(expected = NoSchemaException.class)
+  public void testNotFound() throws Exception
+  {
+    new EntityJsonParserBuilder()
+        .withSchemaSources(Source.CLASSPATH, Source.DIRECTORY)
+        .withSchemaDirectory(folder_.getRoot())
+        .build()
+        .validate(EntityJsonParser.BOND_RFQ_SCHEMA_URL, "Unit Test", new StringReader("{}"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoSources()
+  {
+    new EntityJsonParserBuilder().withSchemaSources();
+  }
+  
+  private void writeFile(File file, String content) throws IOException
+  {
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+  
+  private Reader getPayload(String filename) throws IOException
+  {
+    return new InputStreamReader(
+        getClass().getClassLoader().getResourceAsStream("payloads/" + filename), StandardCharsets.UTF_8
+        );
+  }
+}
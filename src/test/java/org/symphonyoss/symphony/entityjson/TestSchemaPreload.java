@@ -0,0 +1,247 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.entityjson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.entityjson.EntityJsonSchemaResolver.Source;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Test preloading of schemas and the schemas they reference, served by a local HTTP server.
+ */
+public class TestSchemaPreload
+{
+  private final Map<String, String> schemas_ = new HashMap<>();
+  private final AtomicInteger       requestCount_ = new AtomicInteger();
+  private final AtomicInteger       orderCount_ = new AtomicInteger();
+  
+  private volatile long             delayMillis_;
+  
+  private HttpServer server_;
+  
+  @Before
+  public void setUp() throws IOException
+  {
+    server_ = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server_.createContext("/", this::handle);
+    server_.start();
+    
+    // Relative references in a schema compiled from its JSON are resolved against its id
+    String base = "http://localhost:" + server_.getAddress().getPort() + "/schemas/";
+    
+    // order.json -> party.json -> address.json, order.json -> "#/definitions/side" (internal)
+    schemas_.put("/schemas/order.json", "{\"id\": \"" + base + "order.json#\", \"type\": \"object\", \"properties\": {"
+        + "\"buyer\": {\"$ref\": \"party.json#\"}, \"seller\": {\"$ref\": \"party.json\"}, \"side\": {\"$ref\": \"#/definitions/side\"}},"
+        + "\"definitions\": {\"side\": {\"enum\": [\"BUY\", \"SELL\"]}}}");
+    schemas_.put("/schemas/party.json", "{\"$schema\": \"http://json-schema.org/draft-04/schema#\", \"type\": \"object\", \"properties\": {"
+        + "\"name\": {\"type\": \"string\"}, \"address\": {\"$ref\": \"common/address.json\"}}}");
+    schemas_.put("/schemas/common/address.json", "{\"type\": \"object\", \"properties\": {\"city\": {\"type\": \"string\"}}}");
+    schemas_.put("/schemas/broken.json", "{\"id\": \"" + base + "broken.json#\", \"type\": \"object\", \"properties\": {\"part\": {\"$ref\": \"missing.json\"}}}");
+  }
+  
+  @After
+  public void tearDown()
+  {
+    server_.stop(0);
+  }
+  
+  private void handle(HttpExchange exchange) throws IOException
+  {
+    requestCount_.incrementAndGet();
+    
+    if(exchange.getRequestURI().getPath().equals("/schemas/order.json"))
+    {
+      orderCount_.incrementAndGet();
+      
+      try
+      {
+        Thread.sleep(delayMillis_);
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    
+    String schema = schemas_.get(exchange.getRequestURI().getPath());
+    
+    if(schema == null)
+    {
+      exchange.sendResponseHeaders(404, -1);
+    }
+    else
+    {
+      byte[] body = schema.getBytes(StandardCharsets.UTF_8);
+      
+      exchange.sendResponseHeaders(200, body.length);
+      
+      try(OutputStream out = exchange.getResponseBody())
+      {
+        out.write(body);
+      }
+    }
+    exchange.close();
+  }
+  
+  private URL getUrl(String path) throws IOException
+  {
+    return new URL("http://localhost:" + server_.getAddress().getPort() + path);
+  }
+  
+  private EntityJsonParser getParser()
+  {
+    return new EntityJsonParserBuilder().withUnrestrictedSchemaLoad(true).withSchemaSources(Source.NETWORK).build();
+  }
+  
+  @Test
+  public void testPreload() throws Exception
+  {
+    EntityJsonParser    parser = getParser();
+    URL                 orderUrl = getUrl("/schemas/order.json");
+    SchemaPreloadReport report = parser.preload(Collections.singletonList(orderUrl));
+    
+    assertTrue(report.toString(), report.isSuccess());
+    assertEquals(new LinkedHashSet<>(Arrays.asList(orderUrl, getUrl("/schemas/party.json"), getUrl("/schemas/common/address.json"))),
+        report.getLoaded());
+    assertEquals(3, requestCount_.get());
+    assertEquals(1, parser.getSchemaCache().getSize());
+    
+    // Validation does not load any schema
+    parser.validate(orderUrl, "Unit Test", new StringReader("{\"buyer\": {\"name\": \"A\", \"address\": {\"city\": \"London\"}}, \"side\": \"BUY\"}"));
+    
+    try
+    {
+      parser.validate(orderUrl, "Unit Test", new StringReader("{\"seller\": {\"address\": {\"city\": 1}}}"));
+      fail("Expected SchemaValidationException");
+    }
+    catch(SchemaValidationException e)
+    {
+      // expected
+    }
+    
+    assertEquals(3, requestCount_.get());
+    assertEquals(2, parser.getSchemaCache().getHitCount());
+    
+    // A preloaded schema has no version and is used for any version
+    parser.validate(orderUrl, "1.0", "Unit Test", (ObjectNode) new ObjectMapper().readTree("{\"side\": \"SELL\"}"));
+    
+    assertEquals(3, requestCount_.get());
+    assertEquals(3, parser.getSchemaCache().getHitCount());
+    assertEquals(0, parser.getSchemaCache().getMissCount());
+    assertEquals(1, parser.getSchemaCache().getSize());
+  }
+  
+  @Test
+  public void testConcurrentPreload() throws Exception
+  {
+    EntityJsonParser parser = getParser();
+    URL              orderUrl = getUrl("/schemas/order.json");
+    ExecutorService  executor = Executors.newFixedThreadPool(2);
+    
+    delayMillis_ = 500;
+    
+    try
+    {
+      // The second preload waits for the document being read by the first rather than fetching it again
+      Future<SchemaPreloadReport> first = executor.submit(() -> parser.preload(Collections.singletonList(orderUrl)));
+      Thread.sleep(100);
+      Future<SchemaPreloadReport> second = executor.submit(() -> parser.preload(Collections.singletonList(orderUrl)));
+      
+      assertTrue(first.get().toString(), first.get().isSuccess());
+      assertTrue(second.get().toString(), second.get().isSuccess());
+      assertEquals(1, orderCount_.get());
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testFailures() throws Exception
+  {
+    URL                 brokenUrl = getUrl("/schemas/broken.json");
+    URL                 missingUrl = getUrl("/schemas/missing.json");
+    URL                 unknownUrl = getUrl("/schemas/unknown.json");
+    SchemaPreloadReport report = getParser().preload(Arrays.asList(brokenUrl, unknownUrl));
+    
+    assertFalse(report.isSuccess());
+    assertEquals(Collections.singleton(brokenUrl), report.getLoaded());
+    assertEquals(new LinkedHashSet<>(Arrays.asList(unknownUrl, missingUrl)), report.getFailed().keySet());
+    assertTrue(report.getFailed().get(missingUrl) instanceof NoSchemaException);
+    assertTrue(report.getFailed().get(unknownUrl) instanceof NoSchemaException);
+  }
+  
+  @Test
+  public void testRestrictedHost() throws Exception
+  {
+    // Referenced schemas are subject to the host restriction, requested schemas are not
+    EntityJsonParser    parser = new EntityJsonParserBuilder().withSchemaSources(Source.NETWORK).build();
+    SchemaPreloadReport report = parser.preload(Collections.singletonList(getUrl("/schemas/party.json")));
+    
+    assertEquals(Collections.singleton(getUrl("/schemas/party.json")), report.getLoaded());
+    assertTrue(report.getFailed().get(getUrl("/schemas/common/address.json")) instanceof InvalidSchemaException);
+  }
+  
+  @Test
+  public void testDirectory() throws Exception
+  {
+    EntityJsonParser    parser = new EntityJsonParserBuilder()
+        .withSchemaSources(Source.DIRECTORY)
+        .withSchemaDirectory(TestEntityJsonSchemaResolver.getTestSchemaDirectory())
+        .build();
+    SchemaPreloadReport report = parser.preload(Collections.singletonList(EntityJsonParser.ENTITY_JSON_SCHEMA_URL));
+    
+    assertTrue(report.toString(), report.isSuccess());
+    assertEquals(new LinkedHashSet<>(Arrays.asList(EntityJsonParser.ENTITY_JSON_SCHEMA_URL, EntityJsonParser.STRUCTURED_OBJECT_SCHEMA_URL)),
+        report.getLoaded());
+  }
+}
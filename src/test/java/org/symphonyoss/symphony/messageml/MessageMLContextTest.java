@@ -34,9 +34,11 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.symphonyoss.symphony.messageml.elements.Bold;
 import org.symphonyoss.symphony.messageml.elements.BulletList;
 import org.symphonyoss.symphony.messageml.elements.CashTag;
 import org.symphonyoss.symphony.messageml.elements.Element;
+import org.symphonyoss.symphony.messageml.elements.FormatEnum;
 import org.symphonyoss.symphony.messageml.elements.HashTag;
 import org.symphonyoss.symphony.messageml.elements.Link;
 import org.symphonyoss.symphony.messageml.elements.Mention;
@@ -44,6 +46,7 @@ import org.symphonyoss.symphony.messageml.elements.MessageML;
 import org.symphonyoss.symphony.messageml.elements.TextNode;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener;
 import org.symphonyoss.symphony.messageml.util.UserPresentation;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
@@ -52,6 +55,7 @@ import org.xml.sax.InputSource;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.URI;
 import java.util.List;
@@ -189,6 +193,36 @@ public class MessageMLContextTest {
         "<div data-format=\"PresentationML\" data-version=\"2.0\">Hello world!</div>", context.getPresentationML());
   }
 
+  @Test
+  public void testParseFreemarkerCachedTemplate() throws Exception {
+    String message = "<messageML>${data['obj123'].value}</messageML>";
+
+    context.parseMessageML(message, "{\"obj123\":{\"value\":\"Hello world!\"}}", MessageML.MESSAGEML_VERSION);
+    assertEquals("First message", "Hello world!", context.getMessageML().asText());
+
+    context.parseMessageML(message, "{\"obj123\":{\"value\":\"Goodbye world!\"}}", MessageML.MESSAGEML_VERSION);
+    assertEquals("Second message", "Goodbye world!", context.getMessageML().asText());
+  }
+
+  @Test
+  public void testParseWithoutFreemarkerDirectives() throws Exception {
+    String message = "<messageML>Price: $5 #1 &lt;b&gt; {x}</messageML>";
+
+    context.parseMessageML(message, null, MessageML.MESSAGEML_VERSION);
+    assertEquals("Message text", "Price: $5 #1 <b> {x}", context.getMessageML().asText());
+  }
+
+  @Test
+  public void testHasTemplateDirectives() {
+    assertTrue("Interpolation", MessageMLParser.hasTemplateDirectives("<messageML>${a}</messageML>"));
+    assertTrue("Numerical interpolation", MessageMLParser.hasTemplateDirectives("<messageML>#{a}</messageML>"));
+    assertTrue("Directive", MessageMLParser.hasTemplateDirectives("<messageML><#if a>b</#if></messageML>"));
+    assertTrue("Closing directive", MessageMLParser.hasTemplateDirectives("<messageML>b</#if></messageML>"));
+    assertTrue("Macro call", MessageMLParser.hasTemplateDirectives("<messageML><@m/></messageML>"));
+    assertFalse("Plain message", MessageMLParser.hasTemplateDirectives("<messageML>$ # { < / @</messageML>"));
+    assertFalse("Trailing character", MessageMLParser.hasTemplateDirectives("$"));
+  }
+
   @Test
   public void testParseFreemarkerResolvingAClass() throws Exception {
     String message =
@@ -546,6 +580,30 @@ public class MessageMLContextTest {
     context.parseMessageML(message, entityJson, MessageML.MESSAGEML_VERSION);
   }
 
+  @Test
+  public void testFailOnDuplicateNestedEntity() throws Exception {
+    String message = "<messageML><div class=\"entity\" data-entity-id=\"outer\">"
+        + "<div class=\"entity\" data-entity-id=\"inner\">Nested</div></div></messageML>";
+    String entityJson = "{\"outer\": {\"type\": \"org.example\", \"inner\": {\"type\": \"org.example.inner\"}}, "
+        + "\"other\": {\"inner\": {\"type\": \"org.example.inner\"}}}";
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Duplicate \"data-entity-id\"=\"inner\" in entityJSON");
+    context.parseMessageML(message, entityJson, MessageML.MESSAGEML_VERSION);
+  }
+
+  @Test
+  public void testRepeatedIdOfNonEntityElement() throws Exception {
+    String message = "<messageML><hash tag=\"tag\" data-entity-id=\"obj\"/></messageML>";
+    String entityJson = "{\"first\": {\"obj\": {\"type\": \"org.example\"}}, "
+        + "\"second\": {\"obj\": {\"type\": \"org.example\"}}}";
+
+    // Only entity elements reject ids which occur more than once in the EntityJSON
+    context.parseMessageML(message, entityJson, MessageML.MESSAGEML_VERSION);
+    assertEquals("PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">"
+        + "<span class=\"entity\" data-entity-id=\"obj\">#tag</span></div>", context.getPresentationML());
+  }
+
   @Test
   public void testFailOnNoTemplateData() throws Exception {
     String message = getPayload("payloads/single_jira_ticket.messageml");
@@ -753,6 +811,22 @@ public class MessageMLContextTest {
 
   }
 
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testDeprecatedBuildAll() throws Exception {
+    Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(new InputSource(new StringReader("<messageML>Hello <b class=\"x\">world</b></messageML>")));
+    MessageML messageML = new MessageML(FormatEnum.MESSAGEML, MessageML.MESSAGEML_VERSION);
+    MessageMLParser parser = new MessageMLParser(dataProvider, ParserLimits.NONE, IMetricsListener.NONE, null);
+
+    messageML.buildAll(parser, document.getDocumentElement());
+
+    assertEquals("Children", 2, messageML.getChildren().size());
+    assertEquals("Bold", Bold.class, messageML.getChild(1).getClass());
+    assertEquals("Bold class", "x", messageML.getChild(1).getAttribute(Element.CLASS_ATTR));
+    assertEquals("Text", "world", ((TextNode) messageML.getChild(1).getChild(0)).getText());
+  }
+
   private String getPayload(String filename) throws IOException {
     ClassLoader classLoader = getClass().getClassLoader();
     try(Scanner scanner = new Scanner(classLoader.getResourceAsStream(filename)))
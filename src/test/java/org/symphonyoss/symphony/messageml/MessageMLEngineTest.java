@@ -0,0 +1,300 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.TestAsyncDataProvider;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+public class MessageMLEngineTest {
+
+  private MessageMLEngine engine;
+
+  @Before
+  public void setUp() {
+    TestDataProvider dataProvider = new TestDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    engine = new MessageMLEngine(dataProvider);
+  }
+
+  @Test
+  public void testParseMessageML() throws Exception {
+    MessageMLResult result = engine.parseMessageML("<messageML>Hello <mention uid=\"1\"/>!</messageML>", null,
+        MessageML.MESSAGEML_VERSION);
+
+    assertEquals("PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">"
+        + "Hello <span class=\"entity\" data-entity-id=\"mention1\">@Bot User01</span>!</div>", result.getPresentationML());
+    assertEquals("Markdown", "Hello @Bot User01!", result.getMarkdown());
+    assertEquals("Text", "Hello @Bot User01!", result.getText());
+    assertEquals("EntityJSON", "1", result.getEntityJson().path("mention1").path("id").path(0).path("value").asText());
+  }
+
+  @Test
+  public void testResultsAreIndependent() throws Exception {
+    MessageMLResult first = engine.parseMessageML("<messageML>First <hash tag=\"one\"/></messageML>", null, null);
+    MessageMLResult second = engine.parseMessageML("<messageML>Second</messageML>", null, null);
+
+    assertNotSame("MessageML", first.getMessageML(), second.getMessageML());
+    assertEquals("First text", "First #one", first.getText());
+    assertEquals("First entities", 1, first.getEntityJson().size());
+    assertEquals("Second entities", 0, second.getEntityJson().size());
+  }
+
+  @Test
+  public void testConcurrentParse() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<String>> futures = new ArrayList<>();
+
+    try {
+      for (int i = 0; i < 200; i++) {
+        final int n = i;
+        futures.add(executor.submit(new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            return engine.parseMessageML("<messageML><b>" + n + "</b> <cash tag=\"T" + n + "\"/></messageML>", null, null)
+                .getPresentationML();
+          }
+        }));
+      }
+
+      for (int i = 0; i < futures.size(); i++) {
+        assertEquals("PresentationML #" + i, "<div data-format=\"PresentationML\" data-version=\"2.0\"><b>" + i
+            + "</b> <span class=\"entity\" data-entity-id=\"keyword1\">$T" + i + "</span></div>", futures.get(i).get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testParseMessageMLAsync() throws Exception {
+    TestAsyncDataProvider dataProvider = new TestAsyncDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    MessageMLEngine asyncEngine = new MessageMLEngine(dataProvider);
+
+    CompletableFuture<MessageMLResult> future = asyncEngine.parseMessageMLAsync("<messageML>Hello <mention uid=\"1\"/>, "
+        + "<mention email=\"bot.user1@localhost.com\"/> and <a href=\"https://localhost\">link</a>!</messageML>", null,
+        MessageML.MESSAGEML_VERSION);
+
+    assertFalse("Completed before lookups", future.isDone());
+    assertEquals("Lookups issued at once", 3, dataProvider.getPendingLookups());
+
+    dataProvider.completeLookups();
+
+    assertTrue("Completed after lookups", future.isDone());
+    MessageMLResult result = future.get();
+    assertEquals("PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">Hello "
+        + "<span class=\"entity\" data-entity-id=\"mention1\">@Bot User01</span>, "
+        + "<span class=\"entity\" data-entity-id=\"mention2\">@Bot User01</span> and "
+        + "<a href=\"https://localhost\">link</a>!</div>", result.getPresentationML());
+    assertEquals("EntityJSON", "1", result.getEntityJson().path("mention2").path("id").path(0).path("value").asText());
+  }
+
+  @Test
+  public void testParseMessageMLAsyncLookupFailure() throws Exception {
+    TestAsyncDataProvider dataProvider = new TestAsyncDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    MessageMLEngine asyncEngine = new MessageMLEngine(dataProvider);
+
+    CompletableFuture<MessageMLResult> future = asyncEngine.parseMessageMLAsync("<messageML><mention uid=\"1\"/> "
+        + "<a href=\"ftp://localhost\">link</a></messageML>", null, MessageML.MESSAGEML_VERSION);
+    dataProvider.completeLookups();
+
+    try {
+      future.get();
+      fail("Should have thrown an exception on unsupported URI protocol");
+    } catch (ExecutionException e) {
+      assertEquals("Exception class", InvalidInputException.class, e.getCause().getClass());
+      assertEquals("Exception message", "URI scheme \"ftp\" is not supported by the pod.", e.getCause().getMessage());
+    }
+  }
+
+  @Test
+  public void testParseMessageMLAsyncInvalidInput() throws Exception {
+    TestAsyncDataProvider dataProvider = new TestAsyncDataProvider();
+    CompletableFuture<MessageMLResult> future = new MessageMLEngine(dataProvider).parseMessageMLAsync(
+        "<messageML><invalid/></messageML>", null, MessageML.MESSAGEML_VERSION);
+
+    assertTrue("Completed", future.isCompletedExceptionally());
+    assertEquals("Lookups", 0, dataProvider.getPendingLookups());
+
+    try {
+      future.get();
+      fail("Should have thrown an exception on invalid element");
+    } catch (ExecutionException e) {
+      assertEquals("Exception class", InvalidInputException.class, e.getCause().getClass());
+      assertEquals("Exception message", "Invalid MessageML content at element \"invalid\"", e.getCause().getMessage());
+    }
+  }
+
+  @Test
+  public void testParseMessageMLAsyncWithBlockingProvider() throws Exception {
+    CompletableFuture<MessageMLResult> future = engine.parseMessageMLAsync("<messageML>Hello <mention uid=\"1\"/>!"
+        + "</messageML>", null, MessageML.MESSAGEML_VERSION);
+
+    assertTrue("Completed", future.isDone());
+    assertEquals("Markdown", "Hello @Bot User01!", future.get().getMarkdown());
+  }
+
+  @Test
+  public void testWritePresentationMLToStream() throws Exception {
+    MessageMLResult result = engine.parseMessageML("<messageML>Za\u017c\u00f3\u0142\u0107 <b>&amp; \u2603</b> "
+        + "<mention uid=\"1\"/></messageML>", null, MessageML.MESSAGEML_VERSION);
+    String expected = "<div data-format=\"PresentationML\" data-version=\"2.0\">Za\u017c\u00f3\u0142\u0107 "
+        + "<b>&amp; \u2603</b> <span class=\"entity\" data-entity-id=\"mention1\">@Bot User01</span></div>";
+
+    ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+    result.writePresentationML(streamed);
+    assertEquals("Streamed PresentationML", expected, new String(streamed.toByteArray(), StandardCharsets.UTF_8));
+
+    assertEquals("PresentationML", expected, result.getPresentationML());
+
+    ByteArrayOutputStream cached = new ByteArrayOutputStream();
+    result.writePresentationML(cached);
+    assertEquals("Streamed cached PresentationML", expected, new String(cached.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testWritePresentationMLToAppendable() throws Exception {
+    MessageMLResult result = engine.parseMessageML("<messageML>Caf\u00e9 <i>\u00fcber</i></messageML>", null,
+        MessageML.MESSAGEML_VERSION);
+    StringBuilder out = new StringBuilder("prefix:");
+
+    result.writePresentationML(out);
+
+    assertEquals("PresentationML", "prefix:<div data-format=\"PresentationML\" data-version=\"2.0\">Caf\u00e9 "
+        + "<i>\u00fcber</i></div>", out.toString());
+  }
+
+  @Test
+  public void testOutputsAreMemoized() throws Exception {
+    MessageMLResult result = engine.parseMessageML("<messageML>Hello <mention uid=\"1\"/> <hash tag=\"tag\"/>"
+        + "</messageML>", "{\"data\": {\"value\": 1}}", MessageML.MESSAGEML_VERSION);
+
+    assertSame("PresentationML", result.getPresentationML(), result.getPresentationML());
+    assertSame("EntityJSON", result.getEntityJson(), result.getEntityJson());
+    assertSame("Markdown", result.getMarkdown(), result.getMarkdown());
+    assertSame("Entities", result.getEntities(), result.getEntities());
+    assertSame("Text", result.getText(), result.getText());
+
+    assertEquals("EntityJSON data", 1, result.getEntityJson().path("data").path("value").asInt());
+    assertEquals("EntityJSON entities", 3, result.getEntityJson().size());
+    assertEquals("Legacy hashtags", 1, result.getEntities().path("hashtags").size());
+  }
+
+  @Test
+  public void testConcurrentLazyOutputs() throws Exception {
+    final MessageMLResult result = engine.parseMessageML("<messageML><cash tag=\"T\"/> <hash tag=\"h\"/>"
+        + "</messageML>", null, MessageML.MESSAGEML_VERSION);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<Object>> futures = new ArrayList<>();
+
+    try {
+      for (int i = 0; i < 16; i++) {
+        futures.add(executor.submit(new Callable<Object>() {
+          @Override
+          public Object call() throws Exception {
+            return result.getEntityJson();
+          }
+        }));
+      }
+
+      for (Future<Object> future : futures) {
+        assertSame("EntityJSON", result.getEntityJson(), future.get());
+      }
+      assertEquals("Entities", 2, result.getEntityJson().size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testGetText() throws Exception {
+    MessageMLResult result = engine.parseMessageML("<messageML>a &amp; b &lt;c&gt;\n<b> bold</b><hr/><mention email=\"other@localhost.com\" "
+        + "strict=\"false\"/>, <mention uid=\"1\"/><pre>x\ny</pre>\n<br/> </messageML>", null,
+        MessageML.MESSAGEML_VERSION);
+    org.w3c.dom.Element document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(new InputSource(new StringReader(result.getPresentationML()))).getDocumentElement();
+
+    assertEquals("Text", document.getTextContent(), result.getText());
+    assertEquals("Text, preserve whitespace", getText(document, true), result.getText(true));
+    assertEquals("Text, trim whitespace", getText(document, false), result.getText(false));
+    assertEquals("Text, trim whitespace", "a & b <c> bold other@localhost.com , @Bot User01 x\ny",
+        result.getText(false));
+  }
+
+  /**
+   * Extract the text of a message the way getText(boolean) did from a DOM document.
+   */
+  private static String getText(org.w3c.dom.Element document, boolean preserveWhitespace) {
+    StringBuilder sb = new StringBuilder();
+    NodeList nodes = document.getChildNodes();
+
+    for (int i = 0; i < nodes.getLength(); i++) {
+      String text = preserveWhitespace ? nodes.item(i).getTextContent() : nodes.item(i).getTextContent().trim();
+
+      if (i > 0 && !text.isEmpty()) {
+        sb.append(" ");
+      }
+      sb.append(text);
+    }
+
+    return sb.toString();
+  }
+
+  @Test
+  public void testWriteText() throws Exception {
+    MessageMLResult result = engine.parseMessageML("<messageML><p>Hello</p> <hash tag=\"world\"/></messageML>", null,
+        MessageML.MESSAGEML_VERSION);
+    StringBuilder text = new StringBuilder();
+    StringBuilder trimmed = new StringBuilder();
+
+    result.writeText(text);
+    result.writeText(trimmed, false);
+
+    assertEquals("Text", "Hello #world", text.toString());
+    assertEquals("Text, trim whitespace", "Hello #world", trimmed.toString());
+    assertEquals("Cached text", text.toString(), result.getText());
+  }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.CacheStats;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener.Phase;
+import org.symphonyoss.symphony.messageml.util.TestBatchDataProvider;
+
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class MessageMLResultCacheTest {
+  private static final String MENTION = "<messageML>Hello <mention uid=\"1\"/></messageML>";
+  private static final String LINK = "<messageML><a href=\"https://symphony.com\"/></messageML>";
+  private static final String TEXT = "<messageML>Hello world</messageML>";
+  private static final String RICH = "<messageML>Hello <mention uid=\"1\"/> <hash tag=\"tag\"/> <cash tag=\"AAPL\"/> "
+      + "<emoji shortcode=\"smile\"/> <a href=\"https://symphony.com\">link</a> <b>bold</b>"
+      + "<div class=\"entity\" data-entity-id=\"obj\">object</div><ul><li>item</li></ul></messageML>";
+
+  private TestBatchDataProvider dataProvider;
+  private MessageMLEngine engine;
+  private MessageMLResultCache cache;
+  private long now;
+
+  @Before
+  public void setUp() {
+    dataProvider = new TestBatchDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    engine = new MessageMLEngine(dataProvider);
+    cache = new MessageMLResultCache(2, 60, TimeUnit.SECONDS, () -> now);
+  }
+
+  @Test
+  public void testResultIsCached() throws Exception {
+    MessageMLResult result = cache.parseMessageML(engine, MENTION, null, null);
+
+    assertEquals("Cached result", result.getPresentationML(),
+        cache.parseMessageML(engine, MENTION, null, null).getPresentationML());
+    assertEquals("Lookups", 1, dataProvider.getBatchLookups());
+    assertEquals("PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">Hello "
+        + "<span class=\"entity\" data-entity-id=\"mention1\">@Bot User01</span></div>", result.getPresentationML());
+
+    CacheStats stats = cache.getStats();
+    assertEquals("Hits", 1, stats.getHits());
+    assertEquals("Misses", 1, stats.getMisses());
+    assertEquals("Hit rate", 0.5, stats.getHitRate(), 0);
+  }
+
+  @Test
+  public void testKeyCoversAllInputs() throws Exception {
+    cache.parseMessageML(engine, TEXT, null, null);
+    cache.parseMessageML(engine, TEXT, "{}", null);
+    cache.parseMessageML(engine, TEXT, null, "2.0");
+
+    assertEquals("Misses", 3, cache.getStats().getMisses());
+  }
+
+  @Test
+  public void testKeyCoversEngine() throws Exception {
+    MessageMLEngine strict = new MessageMLEngine(dataProvider, new ParserLimits().withMaxElements(1));
+    cache.parseMessageML(engine, MENTION, null, null);
+
+    try {
+      cache.parseMessageML(strict, MENTION, null, null);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("Misses", 2, cache.getStats().getMisses());
+    }
+  }
+
+  @Test
+  public void testCallersGetCopies() throws Exception {
+    MessageMLResult first = cache.parseMessageML(engine, TEXT, "{}", null);
+    first.getMessageML().getChildren().clear();
+    first.getEntityJson().put("changed", true);
+
+    MessageMLResult second = cache.parseMessageML(engine, TEXT, "{}", null);
+    assertNotSame("Copy", first, second);
+    assertEquals("Document tree", 1, second.getMessageML().getChildren().size());
+    assertEquals("EntityJSON", "{}", second.getEntityJson().toString());
+    assertEquals("Hits", 1, cache.getStats().getHits());
+  }
+
+  @Test
+  public void testCallersShareRenderedOutput() throws Exception {
+    Map<Phase, Integer> renders = new EnumMap<>(Phase.class);
+    IMetricsListener listener = new IMetricsListener() {
+      @Override
+      public void onPhase(Phase phase, long nanos) {
+        renders.merge(phase, 1, Integer::sum);
+      }
+    };
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits(), listener);
+
+    for (int i = 0; i < 3; i++) {
+      MessageMLResult result = cache.parseMessageML(engine, MENTION, null, null);
+      result.getPresentationML();
+      result.getEntityJson();
+      result.getMarkdown();
+      result.getEntities();
+      result.getText();
+    }
+
+    assertEquals("Hits", 2, cache.getStats().getHits());
+
+    for (Phase phase : new Phase[] {Phase.PRESENTATIONML, Phase.ENTITY_JSON_RENDERING, Phase.MARKDOWN, Phase.TEXT}) {
+      assertEquals(phase.name(), Integer.valueOf(1), renders.get(phase));
+    }
+  }
+
+  @Test
+  public void testCopyRendersLikeOriginal() throws Exception {
+    MessageMLResult result = engine.parseMessageML(RICH, "{\"obj\": {\"a\": 1}}", null);
+    MessageMLResult copy = result.copy();
+
+    assertEquals("PresentationML", result.getPresentationML(), copy.getPresentationML());
+    assertEquals("EntityJSON", result.getEntityJson(), copy.getEntityJson());
+    assertEquals("Markdown", result.getMarkdown(), copy.getMarkdown());
+    assertEquals("Legacy entities", result.getEntities(), copy.getEntities());
+    assertEquals("Text", result.getText(), copy.getText());
+    assertNotSame("Document tree", result.getMessageML(), copy.getMessageML());
+    assertNotSame("EntityJSON", result.getEntityJson(), copy.getEntityJson());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTtlMustBePositive() {
+    new MessageMLResultCache(10, 0, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testFailuresAreNotCached() throws Exception {
+    for (int i = 0; i < 2; i++) {
+      try {
+        cache.parseMessageML(engine, "<messageML><invalid/></messageML>", null, null);
+        fail("Should have thrown an exception");
+      } catch (InvalidInputException e) {
+        assertEquals("Exception message", "Invalid MessageML content at element \"invalid\"", e.getMessage());
+      }
+    }
+
+    assertEquals("Size", 0, cache.size());
+    assertEquals("Misses", 2, cache.getStats().getMisses());
+  }
+
+  @Test
+  public void testResultExpires() throws Exception {
+    cache.parseMessageML(engine, TEXT, null, null);
+
+    now += TimeUnit.SECONDS.toMillis(59);
+    cache.parseMessageML(engine, TEXT, null, null);
+    assertEquals("Live result", 1, cache.getStats().getHits());
+
+    now += TimeUnit.SECONDS.toMillis(1);
+    cache.parseMessageML(engine, TEXT, null, null);
+    assertEquals("Expired result", 2, cache.getStats().getMisses());
+    assertEquals("Expirations", 1, cache.getStats().getExpirations());
+  }
+
+  @Test
+  public void testSizeIsBounded() throws Exception {
+    cache.parseMessageML(engine, TEXT, null, null);
+    cache.parseMessageML(engine, MENTION, null, null);
+    cache.parseMessageML(engine, LINK, null, null);
+
+    assertEquals("Size", 2, cache.size());
+    assertEquals("Evictions", 1, cache.getStats().getEvictions());
+
+    cache.parseMessageML(engine, TEXT, null, null);
+    assertEquals("Evicted result", 4, cache.getStats().getMisses());
+  }
+
+  @Test
+  public void testInvalidateUser() throws Exception {
+    cache.parseMessageML(engine, MENTION, null, null);
+    cache.parseMessageML(engine, TEXT, null, null);
+
+    assertEquals("Other user", 0, cache.invalidateUser(2L, "other@localhost.com"));
+    assertEquals("UID", 1, cache.invalidateUser(1L, null));
+
+    cache.parseMessageML(engine, MENTION, null, null);
+    cache.parseMessageML(engine, TEXT, null, null);
+    assertEquals("Independent result", 1, cache.getStats().getHits());
+    assertEquals("Lookups", 2, dataProvider.getBatchLookups());
+  }
+
+  @Test
+  public void testInvalidateUserByEmail() throws Exception {
+    String message = "<messageML><mention email=\"bot.user1@localhost.com\"/></messageML>";
+    cache.parseMessageML(engine, message, null, null);
+
+    assertEquals("Resolved UID", 1, cache.invalidateUser(1L, null));
+
+    cache.parseMessageML(engine, message, null, null);
+    assertEquals("Email", 1, cache.invalidateUser(null, "bot.user1@localhost.com"));
+  }
+
+  @Test
+  public void testInvalidateUri() throws Exception {
+    cache.parseMessageML(engine, LINK, null, null);
+
+    assertEquals("Other URI", 0, cache.invalidateUri(URI.create("https://example.com")));
+    cache.parseMessageML(engine, LINK, null, null);
+    assertEquals("Cached result", 1, cache.getStats().getHits());
+
+    assertEquals("Link URI", 1, cache.invalidateUri(URI.create("https://symphony.com")));
+    cache.parseMessageML(engine, LINK, null, null);
+    assertEquals("Invalidated result", 2, cache.getStats().getMisses());
+  }
+
+  @Test
+  public void testInvalidateAll() throws Exception {
+    cache.parseMessageML(engine, TEXT, null, null);
+    cache.parseMessageML(engine, LINK, null, null);
+    cache.invalidateAll();
+
+    assertEquals("Size", 0, cache.size());
+  }
+
+  @Test
+  public void testContextsShareCache() throws Exception {
+    MessageMLContext first = new MessageMLContext(engine, cache);
+    MessageMLContext second = new MessageMLContext(engine, cache);
+
+    first.parseMessageML(MENTION, null, null);
+    second.parseMessageML(MENTION, null, null);
+
+    assertSame("Cache", cache, first.getCache());
+    assertNotSame("Own result", first.getResult(), second.getResult());
+    assertEquals("Text", "Hello @Bot User01", second.getText());
+    assertEquals("Lookups", 1, dataProvider.getBatchLookups());
+  }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+
+public class MessageMLTemplateTest {
+
+  @Rule
+  public final ExpectedException expectedException = ExpectedException.none();
+
+  private MessageMLEngine engine;
+
+  @Before
+  public void setUp() {
+    TestDataProvider dataProvider = new TestDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    engine = new MessageMLEngine(dataProvider);
+  }
+
+  @Test
+  public void testRender() throws Exception {
+    String message = "<messageML>Hello ${data.name}<#list data.uids as uid> <mention uid=\"${uid}\"/></#list>"
+        + "</messageML>";
+    MessageMLTemplate template = engine.compileTemplate(message, null);
+
+    assertTrue("Template directives", template.hasTemplateDirectives());
+    assertEquals("Message", message, template.getMessage());
+
+    MessageMLResult first = template.render("{\"name\":\"world\",\"uids\":[]}");
+    MessageMLResult second = template.render("{\"name\":\"bot\",\"uids\":[1]}");
+
+    assertEquals("First", "Hello world", first.getText());
+    assertEquals("Second", "<div data-format=\"PresentationML\" data-version=\"2.0\">Hello bot "
+        + "<span class=\"entity\" data-entity-id=\"mention1\">@Bot User01</span></div>", second.getPresentationML());
+    assertEquals("EntityJSON", "bot", second.getEntityJson().path("name").asText());
+  }
+
+  @Test
+  public void testRenderMatchesParse() throws Exception {
+    String message = "<messageML><#if data.urgent>Urgent: </#if><span class=\"entity\" data-entity-id=\"tag\">"
+        + "tag</span></messageML>";
+    String entityJson = "{\"urgent\":true,\"tag\":{\"type\":\"org.symphonyoss.fin.security\","
+        + "\"id\":[{\"type\":\"org.symphonyoss.fin.security.id.ticker\",\"value\":\"AAPL\"}]}}";
+
+    MessageMLResult rendered = engine.compileTemplate(message, "2.0").render(entityJson);
+    MessageMLResult parsed = engine.parseMessageML(message, entityJson, "2.0");
+
+    assertEquals("PresentationML", parsed.getPresentationML(), rendered.getPresentationML());
+    assertEquals("EntityJSON", parsed.getEntityJson(), rendered.getEntityJson());
+  }
+
+  @Test
+  public void testStaticMessage() throws Exception {
+    MessageMLTemplate template = engine.compileTemplate("<messageML>Hello <b>world</b></messageML>", null);
+
+    assertFalse("Template directives", template.hasTemplateDirectives());
+    assertEquals("Text", "Hello world", template.render(null).getText());
+  }
+
+  @Test
+  public void testInvalidTemplate() throws Exception {
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Error parsing Freemarker template: invalid input at line 1, column 19");
+    engine.compileTemplate("<messageML>${data.</messageML>", null);
+  }
+
+  @Test
+  public void testEmptyTemplate() throws Exception {
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Error parsing message: the message cannot be null or empty");
+    engine.compileTemplate(" ", null);
+  }
+
+  @Test
+  public void testRenderInvalidData() throws Exception {
+    MessageMLTemplate template = engine.compileTemplate("<messageML>${data.missing}</messageML>", null);
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Error parsing Freemarker template: invalid input at line 1, column 14");
+    template.render("{}");
+  }
+
+  @Test
+  public void testRenderLimits() throws Exception {
+    MessageMLEngine limited = new MessageMLEngine(engine.getDataProvider(),
+        new ParserLimits().withMaxExpandedSize(50));
+    MessageMLTemplate template = limited.compileTemplate("<messageML>${data.text}</messageML>", null);
+    template.render("{\"text\":\"short\"}");
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Expanded message exceeds the maximum size of 50 bytes");
+    template.render("{\"text\":\"a text which does not fit within the limit\"}");
+  }
+
+}
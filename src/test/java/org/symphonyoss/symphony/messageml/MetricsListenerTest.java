@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.util.IBatchDataProvider;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener.Call;
+import org.symphonyoss.symphony.messageml.util.IMetricsListener.Phase;
+import org.symphonyoss.symphony.messageml.util.InstrumentedDataProvider;
+import org.symphonyoss.symphony.messageml.util.TestAsyncDataProvider;
+import org.symphonyoss.symphony.messageml.util.TestBatchDataProvider;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class MetricsListenerTest {
+  private RecordingListener listener;
+  private TestDataProvider dataProvider;
+
+  @Before
+  public void setUp() {
+    listener = new RecordingListener();
+    dataProvider = new TestDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+  }
+
+  @Test
+  public void testParseMessageML() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, ParserLimits.NONE, listener);
+    String message = "<messageML>${data.greeting} <b>bold</b> <mention uid=\"1\"/> <a href=\"https://symphony.com\"/>"
+        + "<br/><br/></messageML>";
+    String entityJson = "{\"greeting\":\"Hello\"}";
+    MessageMLResult result = engine.parseMessageML(message, entityJson, null);
+
+    assertEquals("Input", message.length() + "/" + entityJson.length(), listener.input);
+    assertEquals("Parsing phases", 3, listener.phases.size());
+    assertTrue("EntityJSON", listener.phases.containsKey(Phase.ENTITY_JSON));
+    assertTrue("Template", listener.phases.containsKey(Phase.TEMPLATE));
+    assertTrue("XML", listener.phases.containsKey(Phase.XML_PARSING));
+
+    Map<String, Integer> elements = new HashMap<>();
+    elements.put("messageML", 1);
+    elements.put("b", 1);
+    elements.put("mention", 1);
+    elements.put("a", 1);
+    elements.put("br", 2);
+    assertEquals("Elements", elements, listener.elements);
+
+    assertEquals("Data provider calls", "[USER_BY_UID:true, VALIDATE_URI:true]", listener.calls.toString());
+
+    String presentationML = result.getPresentationML();
+    result.getPresentationML();
+    assertEquals("PresentationML rendered once", 1, (int) listener.phases.get(Phase.PRESENTATIONML));
+    assertEquals("PresentationML size", presentationML.length(), (int) listener.outputs.get(Phase.PRESENTATIONML));
+
+    result.getMarkdown();
+    result.getText();
+    result.getEntityJson();
+    assertEquals("Markdown size", result.getMarkdown().length(), (int) listener.outputs.get(Phase.MARKDOWN));
+    assertEquals("Text size", result.getText().length(), (int) listener.outputs.get(Phase.TEXT));
+    assertTrue("EntityJSON rendering", listener.phases.containsKey(Phase.ENTITY_JSON_RENDERING));
+  }
+
+  @Test
+  public void testStreamedOutput() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, ParserLimits.NONE, listener);
+    MessageMLResult result = engine.parseMessageML("<messageML>Hello <b>world</b></messageML>", null, null);
+
+    StringBuilder presentationML = new StringBuilder();
+    result.writePresentationML(presentationML);
+    assertEquals("PresentationML size", presentationML.length(), (int) listener.outputs.get(Phase.PRESENTATIONML));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    listener.outputs.clear();
+    result.writePresentationML(bytes);
+    assertEquals("PresentationML stream size", presentationML.length(),
+        (int) listener.outputs.get(Phase.PRESENTATIONML));
+
+    StringBuilder text = new StringBuilder();
+    result.writeText(text);
+    assertEquals("Text size", text.length(), (int) listener.outputs.get(Phase.TEXT));
+
+    text.setLength(0);
+    listener.outputs.clear();
+    result.writeText(text, false);
+    assertEquals("Text nodes size", text.length(), (int) listener.outputs.get(Phase.TEXT));
+  }
+
+  @Test
+  public void testStaticMessage() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, ParserLimits.NONE, listener);
+    engine.parseMessageML("<messageML>Hello</messageML>", null, null);
+
+    assertEquals("Input", "28/0", listener.input);
+    assertEquals("Phases", "{XML_PARSING=1}", listener.phases.toString());
+    assertTrue("Data provider calls", listener.calls.isEmpty());
+  }
+
+  @Test
+  public void testFailedLookup() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, ParserLimits.NONE, listener);
+    engine.parseMessageML("<messageML><mention uid=\"2\" strict=\"false\"/></messageML>", null, null);
+
+    assertEquals("Data provider calls", "[USER_BY_UID:false]", listener.calls.toString());
+  }
+
+  @Test
+  public void testBatchDataProvider() throws Exception {
+    TestBatchDataProvider batchDataProvider = new TestBatchDataProvider();
+    batchDataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    MessageMLEngine engine = new MessageMLEngine(batchDataProvider, ParserLimits.NONE, listener);
+
+    engine.parseMessageML("<messageML><mention uid=\"1\"/></messageML>", null, null);
+
+    assertEquals("Batch lookups", 1, batchDataProvider.getBatchLookups());
+    assertEquals("Data provider calls", "[USERS_BY_UID:true]", listener.calls.toString());
+    assertTrue("Validation", listener.phases.containsKey(Phase.VALIDATION));
+  }
+
+  @Test
+  public void testAsyncDataProvider() throws Exception {
+    TestAsyncDataProvider asyncDataProvider = new TestAsyncDataProvider();
+    asyncDataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    MessageMLEngine engine = new MessageMLEngine(asyncDataProvider, ParserLimits.NONE, listener);
+
+    CompletableFuture<MessageMLResult> result =
+        engine.parseMessageMLAsync("<messageML><mention uid=\"1\"/></messageML>", null, null);
+    assertTrue("Pending calls", listener.calls.isEmpty());
+
+    asyncDataProvider.completeLookups();
+
+    assertEquals("Text", "@Bot User01", result.get().getText());
+    assertEquals("Data provider calls", "[USER_BY_UID:true]", listener.calls.toString());
+    assertTrue("Validation", listener.phases.containsKey(Phase.VALIDATION));
+  }
+
+  @Test
+  public void testParseMarkdown() throws Exception {
+    MessageMLContext context = new MessageMLContext(dataProvider, listener);
+    context.parseMarkdown("Hello **world** [link](https://symphony.com)", null, null);
+
+    assertEquals("Input", "44/0", listener.input);
+    assertTrue("Markdown parsing", listener.phases.containsKey(Phase.MARKDOWN_PARSING));
+    assertTrue("Tree building", listener.phases.containsKey(Phase.TREE_BUILDING));
+    assertEquals("Elements", "{a=1, b=1, messageML=1}", listener.elements.toString());
+    assertEquals("Data provider calls", "[VALIDATE_URI:true]", listener.calls.toString());
+  }
+
+  @Test
+  public void testWrap() {
+    assertSame("Not instrumented", dataProvider, InstrumentedDataProvider.wrap(dataProvider, IMetricsListener.NONE));
+
+    IDataProvider instrumented = InstrumentedDataProvider.wrap(new TestBatchDataProvider(), listener);
+    assertTrue("Batch provider", instrumented instanceof IBatchDataProvider);
+    assertFalse("Single provider", InstrumentedDataProvider.wrap(dataProvider, listener) instanceof IBatchDataProvider);
+  }
+
+  private static class RecordingListener implements IMetricsListener {
+    private final Map<Phase, Integer> phases = new EnumMap<>(Phase.class);
+    private final Map<Phase, Integer> outputs = new EnumMap<>(Phase.class);
+    private final List<String> calls = new ArrayList<>();
+    private Map<String, Integer> elements;
+    private String input;
+
+    @Override
+    public synchronized void onPhase(Phase phase, long nanos) {
+      assertTrue("Duration", nanos >= 0);
+      phases.merge(phase, 1, Integer::sum);
+    }
+
+    @Override
+    public synchronized void onInput(int messageLength, int dataLength) {
+      input = messageLength + "/" + dataLength;
+    }
+
+    @Override
+    public synchronized void onOutput(Phase phase, int length) {
+      outputs.put(phase, length);
+    }
+
+    @Override
+    public synchronized void onElements(Map<String, Integer> countsByTag) {
+      elements = countsByTag;
+    }
+
+    @Override
+    public synchronized void onDataProviderCall(Call call, long nanos, boolean success) {
+      calls.add(call + ":" + success);
+    }
+  }
+
+}
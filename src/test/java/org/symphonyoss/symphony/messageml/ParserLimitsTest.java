@@ -0,0 +1,242 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.TestBatchDataProvider;
+
+public class ParserLimitsTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Rule
+  public final ExpectedException expectedException = ExpectedException.none();
+
+  private TestBatchDataProvider dataProvider;
+
+  @Before
+  public void setUp() {
+    dataProvider = new TestBatchDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+  }
+
+  @Test
+  public void testNoLimits() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider);
+    MessageMLResult result = engine.parseMessageML("<messageML><p><b>Hello</b> <mention uid=\"1\"/> "
+        + "<a href=\"https://symphony.com\"/></p></messageML>", null, null);
+
+    assertEquals("Limits", ParserLimits.NONE, engine.getLimits());
+    assertEquals("Text", "Hello @Bot User01 https://symphony.com", result.getText());
+  }
+
+  @Test
+  public void testWithinLimits() throws Exception {
+    ParserLimits limits = new ParserLimits()
+        .withMaxInputSize(100)
+        .withMaxDepth(3)
+        .withMaxElements(5)
+        .withMaxMentions(1)
+        .withMaxLinks(1);
+    String message = "<messageML><p><b>Hello</b> <mention uid=\"1\"/> <a href=\"https://symphony.com\"/></p></messageML>";
+    MessageMLResult result = new MessageMLEngine(dataProvider, limits).parseMessageML(message, null, null);
+
+    assertEquals("Input size", 100, limits.getMaxInputSize());
+    assertEquals("Unchanged limit", Integer.MAX_VALUE, limits.getMaxExpandedSize());
+    assertEquals("Text", "Hello @Bot User01 https://symphony.com", result.getText());
+  }
+
+  @Test
+  public void testMaxInputSize() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxInputSize(33));
+    engine.parseMessageML("<messageML>0123456789</messageML>", null, null);
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Message exceeds the maximum size of 33 bytes");
+    engine.parseMessageML("<messageML>\u00e9123456789</messageML>", null, null);
+  }
+
+  @Test
+  public void testMaxInputSizeSurrogatePairs() throws Exception {
+    ParserLimits limits = new ParserLimits().withMaxInputSize(8);
+    limits.checkInputSize("\ud83d\ude00\ud83d\ude00");
+
+    try {
+      limits.checkInputSize("\ud83d\ude00\ud83d\ude00a");
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("Message", "Message exceeds the maximum size of 8 bytes", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testMaxEntityJsonSize() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxEntityJsonSize(16));
+    engine.parseMessageML("<messageML>${data.a}</messageML>", "{\"a\":\"value\"}", null);
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("EntityJSON exceeds the maximum size of 16 bytes");
+    engine.parseMessageML("<messageML>${data.a}</messageML>", "{\"a\":\"long value\"}", null);
+  }
+
+  @Test
+  public void testMaxExpandedSize() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxExpandedSize(100));
+    String message = "<messageML><#list 1..data.count as i>x</#list></messageML>";
+    MessageMLResult result = engine.parseMessageML(message, "{\"count\":10}", null);
+    assertEquals("Text", "xxxxxxxxxx", result.getText());
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Expanded message exceeds the maximum size of 100 bytes");
+    engine.parseMessageML(message, "{\"count\":1000000000}", null);
+  }
+
+  @Test
+  public void testMaxDepth() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxDepth(3));
+    engine.parseMessageML("<messageML><p><b>Hello</b></p><p>world</p></messageML>", null, null);
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Message exceeds the maximum nesting depth of 3");
+    engine.parseMessageML("<messageML><p><b><i>Hello</i></b></p></messageML>", null, null);
+  }
+
+  @Test
+  public void testMaxElements() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxElements(3));
+    engine.parseMessageML("<messageML><p>Hello</p><br/></messageML>", null, null);
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Message exceeds the maximum number of elements (3)");
+    // the limit is reached before the invalid content is read
+    engine.parseMessageML("<messageML><p>Hello</p><br/><hr/><invalid/></messageML>", null, null);
+  }
+
+  @Test
+  public void testMaxMentions() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxMentions(1));
+    engine.parseMessageML("<messageML><mention uid=\"1\"/></messageML>", null, null);
+    assertEquals("Batch lookups", 1, dataProvider.getBatchLookups());
+
+    try {
+      engine.parseMessageML("<messageML><mention uid=\"1\"/> <mention uid=\"1\"/></messageML>", null, null);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("Message", "Message exceeds the maximum number of mentions (1)", e.getMessage());
+    }
+
+    assertEquals("Batch lookups", 1, dataProvider.getBatchLookups());
+  }
+
+  @Test
+  public void testMaxMentionsEntities() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxMentions(0));
+    String message = "<div data-format=\"PresentationML\" data-version=\"2.0\"><span class=\"entity\" data-entity-id=\"mention1\">@Bot User01</span>"
+        + "</div>";
+    String entityJson = "{\"mention1\":{\"type\":\"com.symphony.user.mention\","
+        + "\"id\":[{\"type\":\"com.symphony.user.userId\",\"value\":\"1\"}]}}";
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Message exceeds the maximum number of mentions (0)");
+    engine.parseMessageML(message, entityJson, null);
+  }
+
+  @Test
+  public void testMaxLinks() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxLinks(1));
+    engine.parseMessageML("<messageML><a href=\"https://symphony.com\"/></messageML>", null, null);
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Message exceeds the maximum number of links (1)");
+    engine.parseMessageML("<messageML><a href=\"https://symphony.com\"/><a href=\"https://symphony.com\"/>"
+        + "</messageML>", null, null);
+  }
+
+  @Test
+  public void testMarkdownMaxInputSize() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxInputSize(5));
+    engine.parseMarkdown("Hello", null, null);
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Message exceeds the maximum size of 5 bytes");
+    engine.parseMarkdown("Hello!", null, null);
+  }
+
+  @Test
+  public void testMarkdownMaxDepth() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxDepth(5));
+    engine.parseMarkdown("- _Hello_", null, null);
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Message exceeds the maximum nesting depth of 5");
+    engine.parseMarkdown("- **_Hello_**", null, null);
+  }
+
+  @Test
+  public void testMarkdownMaxElements() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxElements(3));
+    engine.parseMarkdown("_Hello_ world", null, null);
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Message exceeds the maximum number of elements (3)");
+    engine.parseMarkdown("_Hello_ **world**", null, null);
+  }
+
+  @Test
+  public void testMarkdownMaxMentions() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxMentions(0));
+    JsonNode entities = MAPPER.readTree("{\"userMentions\": [{"
+        + "\"id\": 1, \"screenName\": \"bot.user1\", \"prettyName\": \"Bot User01\", \"text\": \"@Bot User01\","
+        + "\"indexStart\": 6, \"indexEnd\": 17, \"userType\": \"lc\", \"type\": \"USER_FOLLOW\"}]}");
+
+    try {
+      engine.parseMarkdown("Hello @Bot User01!", entities, null);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("Message", "Message exceeds the maximum number of mentions (0)", e.getMessage());
+    }
+
+    assertEquals("Batch lookups", 0, dataProvider.getBatchLookups());
+  }
+
+  @Test
+  public void testMarkdownMaxLinks() throws Exception {
+    MessageMLEngine engine = new MessageMLEngine(dataProvider, new ParserLimits().withMaxLinks(0));
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Message exceeds the maximum number of links (0)");
+    engine.parseMarkdown("[Symphony](https://symphony.com)", null, null);
+  }
+
+  @Test
+  public void testInvalidLimit() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("The limit must be positive: 0");
+    new ParserLimits().withMaxDepth(0);
+  }
+
+}
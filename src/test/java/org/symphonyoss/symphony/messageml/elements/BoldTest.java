@@ -6,7 +6,9 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.Test;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 
+import java.io.ByteArrayOutputStream;
 import java.util.Collections;
 
 public class BoldTest extends ElementTest {
@@ -46,6 +48,19 @@ public class BoldTest extends ElementTest {
     assertEquals("Attribute", "color:green", bold.getAttribute("style"));
   }
 
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testDeprecatedPresentationML() throws Exception {
+    context.parseMessageML("<messageML>Hello <b>world</b></messageML>", null, MessageML.MESSAGEML_VERSION);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    XmlPrintStream out = new XmlPrintStream(bytes);
+    context.getMessageML().asPresentationML(out);
+    out.flush();
+
+    assertEquals("PresentationML", context.getPresentationML(), bytes.toString("UTF-8"));
+  }
+
   @Test
   public void testBoldByMarkdown() throws Exception {
     String input = "**Hello world!**";
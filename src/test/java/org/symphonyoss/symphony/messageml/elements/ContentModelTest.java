@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.elements;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class ContentModelTest {
+
+  @Test
+  public void testPermits() {
+    Element parent = new Paragraph(null);
+    ContentModel model = ContentModel.of(Bold.class, TextNode.class);
+
+    assertTrue("Bold", model.permits(new Bold(parent)));
+    assertTrue("Text", model.permits(new TextNode(parent, "text")));
+    assertFalse("Italic", model.permits(new Italic(parent)));
+    assertFalse("Empty model", ContentModel.of().permits(new Bold(parent)));
+  }
+
+  @Test
+  public void testExactTypes() {
+    Element parent = new Paragraph(null);
+
+    assertFalse("Subclass", ContentModel.of(Element.class).permits(new Bold(parent)));
+    assertFalse("Superclass", ContentModel.of(Entity.class).permits(new HashTag(parent, 1)));
+  }
+
+  @Test
+  public void testTypes() {
+    ContentModel model = ContentModel.of(Arrays.asList(TableRow.class, TableHeader.class));
+
+    assertEquals("Declaration order", Arrays.asList(TableRow.class, TableHeader.class), model.getTypes());
+  }
+
+  @Test
+  public void testPhrasingContent() {
+    Element parent = new Paragraph(null);
+
+    assertTrue("Mention", Element.PHRASING_CONTENT.permits(new Mention(parent, 1, null)));
+    assertFalse("Paragraph", Element.PHRASING_CONTENT.permits(new Paragraph(parent)));
+  }
+
+}
@@ -17,7 +17,10 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -105,6 +108,32 @@ public class ElementTest {
     context.parseMessageML(invalidElement, null, MessageML.MESSAGEML_VERSION);
   }
 
+  @Test
+  public void testMessageMLComment() throws Exception {
+    String invalidElement = "<messageML>Hello <!-- comment -->world!</messageML>";
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Invalid element \"#comment\"");
+    context.parseMessageML(invalidElement, null, MessageML.MESSAGEML_VERSION);
+  }
+
+  @Test
+  public void testMessageMLCData() throws Exception {
+    String invalidElement = "<messageML><![CDATA[Hello world!]]></messageML>";
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Invalid element \"#cdata-section\"");
+    context.parseMessageML(invalidElement, null, MessageML.MESSAGEML_VERSION);
+  }
+
+  @Test
+  public void testMessageMLCommentOutsideRoot() throws Exception {
+    String input = "<!-- comment --><messageML>Hello &amp; <b style=\"color:red\" class=\"label\">world</b>!</messageML>";
+    context.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+
+    assertEquals("Text nodes", 3, context.getMessageML().getChildren().size());
+    assertEquals("PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">Hello &amp; "
+        + "<b class=\"label\" style=\"color:red\">world</b>!</div>", context.getPresentationML());
+  }
+
   @Test
   public void testMessageMLNoVersion() throws Exception {
     String input = "<messageML>Hello world!</messageML>";
@@ -176,6 +205,21 @@ public class ElementTest {
     context.parseMessageML(input, entityJson, MessageML.MESSAGEML_VERSION);
   }
 
+  @Test
+  public void testManyEntityReferences() throws Exception {
+    StringBuilder input = new StringBuilder("<messageML>");
+    ObjectNode entityJson = new ObjectNode(JsonNodeFactory.instance);
+
+    for (int i = 0; i < 500; i++) {
+      input.append("<span class=\"entity\" data-entity-id=\"obj").append(i).append("\">").append(i).append("</span>");
+      entityJson.putObject("obj" + i).put("key", "value" + i);
+    }
+    input.append("</messageML>");
+
+    context.parseMessageML(input.toString(), MAPPER.writeValueAsString(entityJson), MessageML.MESSAGEML_VERSION);
+    assertEquals("Element children", 500, context.getMessageML().getChildren().size());
+  }
+
   @Test
   public void testPresentationMLEntity() throws Exception {
     String input = "<messageML>Hello <span class=\"entity\" data-entity-id=\"obj123\">world</span>!</messageML>";
@@ -290,4 +334,38 @@ public class ElementTest {
     }
   }
 
+  @Test
+  public void testHasClass() {
+    assertTrue("Single class", Element.hasClass("entity", "entity"));
+    assertTrue("Last class", Element.hasClass("a b\tentity", "entity"));
+    assertTrue("Surrounded by whitespace", Element.hasClass("  entity\n", "entity"));
+    assertFalse("Prefix", Element.hasClass("entityx", "entity"));
+    assertFalse("Suffix", Element.hasClass("xentity entit", "entity"));
+    assertFalse("Case", Element.hasClass("Entity", "entity"));
+    assertFalse("Empty", Element.hasClass("", "entity"));
+    assertFalse("Null", Element.hasClass(null, "entity"));
+  }
+
+  @Test
+  public void testRemoveClass() {
+    assertNull("Only class", Element.removeClass("card", "card"));
+    assertNull("Blank", Element.removeClass(" \t", "card"));
+    assertEquals("Unchanged", "a b", Element.removeClass("a b", "card"));
+    assertEquals("Case insensitive", "a b", Element.removeClass("a CARD b", "card"));
+    assertEquals("Whitespace normalized", "a b", Element.removeClass(" a\t card  b ", "card"));
+    assertEquals("Repeated class", "a", Element.removeClass("card a card", "card"));
+  }
+
+  @Test
+  public void testPresentationMLEntityWithExtraClasses() throws Exception {
+    String input = "<div data-format=\"PresentationML\" data-version=\"2.0\">"
+        + "<span class=\"highlight entity\" data-entity-id=\"keyword1\">$ibm</span></div>";
+    String entityJson = "{\"keyword1\": {\"type\": \"org.symphonyoss.fin.security\", \"version\": \"1.0\", "
+        + "\"id\": [{\"type\": \"org.symphonyoss.fin.security.id.ticker\", \"value\": \"ibm\"}]}}";
+
+    context.parseMessageML(input, entityJson, MessageML.MESSAGEML_VERSION);
+
+    assertEquals("Element class", CashTag.class, context.getMessageML().getChild(0).getClass());
+  }
+
 }
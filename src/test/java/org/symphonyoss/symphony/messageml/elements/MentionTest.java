@@ -2,6 +2,7 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -14,6 +15,7 @@ import org.symphonyoss.symphony.messageml.MessageMLContext;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
 import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+import org.symphonyoss.symphony.messageml.util.TestBatchDataProvider;
 import org.symphonyoss.symphony.messageml.util.UserPresentation;
 
 import java.util.Collections;
@@ -185,6 +187,14 @@ public class MentionTest extends ElementTest {
     context.parseMessageML(invalidAttr, null, MessageML.MESSAGEML_VERSION);
   }
 
+  @Test
+  public void testMentionWithoutUser() throws Exception {
+    String input = "<messageML>Hello <mention/>!</messageML>";
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Error processing user mention. No id or email provided");
+    context.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+  }
+
   @Test
   public void testHardMentionInvalidEmail() throws Exception {
     UserPresentation user = new UserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
@@ -302,6 +312,63 @@ public class MentionTest extends ElementTest {
     assertEquals("Generated EntityJSON", expectedEntityJSON, entityJson);
   }
 
+  @Test
+  public void testMentionsResolvedInBulk() throws Exception {
+    TestBatchDataProvider batchDataProvider = new TestBatchDataProvider();
+    batchDataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    MessageMLContext batchContext = new MessageMLContext(batchDataProvider);
+
+    String input = "<messageML><mention uid=\"1\"/>, <mention uid=\"1\"/> and "
+        + "<mention email=\"bot.user1@localhost.com\"/></messageML>";
+    batchContext.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+
+    assertEquals("PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">"
+        + "<span class=\"entity\" data-entity-id=\"mention1\">@Bot User01</span>, "
+        + "<span class=\"entity\" data-entity-id=\"mention2\">@Bot User01</span> and "
+        + "<span class=\"entity\" data-entity-id=\"mention3\">@Bot User01</span></div>",
+        batchContext.getPresentationML());
+    assertEquals("Batch lookups", 2, batchDataProvider.getBatchLookups());
+    assertEquals("Single lookups", 0, batchDataProvider.getSingleLookups());
+  }
+
+  @Test
+  public void testMentionBulkMissFallsBackToSingleLookup() throws Exception {
+    TestBatchDataProvider batchDataProvider = new TestBatchDataProvider();
+    batchDataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    MessageMLContext batchContext = new MessageMLContext(batchDataProvider);
+
+    try {
+      batchContext.parseMessageML("<messageML><mention uid=\"1\"/> <mention uid=\"2\"/></messageML>", null,
+          MessageML.MESSAGEML_VERSION);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("Exception message", "Failed to lookup user \"2\"", e.getMessage());
+    }
+
+    assertEquals("Batch lookups", 1, batchDataProvider.getBatchLookups());
+    assertEquals("Single lookups", 1, batchDataProvider.getSingleLookups());
+  }
+
+  @Test
+  public void testMentionByMarkdownResolvedInBulk() throws Exception {
+    TestBatchDataProvider batchDataProvider = new TestBatchDataProvider();
+    batchDataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    MessageMLContext batchContext = new MessageMLContext(batchDataProvider);
+
+    String markdown = "Hello @Bot User01!";
+    JsonNode entities = MAPPER.readTree("{\"userMentions\": [{"
+        + "\"id\": 1, \"screenName\": \"bot.user1\", \"prettyName\": \"Bot User01\", \"text\": \"@Bot User01\","
+        + "\"indexStart\": 6, \"indexEnd\": 17, \"userType\": \"lc\", \"type\": \"USER_FOLLOW\"}]}");
+
+    batchContext.parseMarkdown(markdown, entities, null);
+
+    assertEquals("PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">Hello "
+        + "<span class=\"entity\" data-entity-id=\"mention1\">@Bot User01</span>!</div>",
+        batchContext.getPresentationML());
+    assertEquals("Batch lookups", 1, batchDataProvider.getBatchLookups());
+    assertEquals("Single lookups", 0, batchDataProvider.getSingleLookups());
+  }
+
   @Test
   public void testMentionByMarkdownInvalidUser() throws Exception {
     IDataProvider mockDataProvider = mock(IDataProvider.class);
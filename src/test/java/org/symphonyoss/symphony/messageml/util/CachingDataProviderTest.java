@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class CachingDataProviderTest {
+  private TestBatchDataProvider dataProvider;
+  private CachingDataProvider.Batch cachingDataProvider;
+  private long now;
+
+  @Before
+  public void setUp() {
+    dataProvider = new TestBatchDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    cachingDataProvider = new CachingDataProvider.Batch(dataProvider, 2, 60, 10, TimeUnit.SECONDS, () -> now);
+  }
+
+  @Test
+  public void testUserByUidIsCached() throws Exception {
+    IUserPresentation user = cachingDataProvider.getUserPresentation(1L);
+    assertSame("Cached user", user, cachingDataProvider.getUserPresentation(1L));
+
+    assertEquals("Lookups", 1, dataProvider.getSingleLookups());
+    assertEquals("Hits", 1, cachingDataProvider.getUidStats().getHits());
+    assertEquals("Misses", 1, cachingDataProvider.getUidStats().getMisses());
+  }
+
+  @Test
+  public void testUserByEmailIsCached() throws Exception {
+    cachingDataProvider.getUserPresentation("bot.user1@localhost.com");
+    cachingDataProvider.getUserPresentation("bot.user1@localhost.com");
+
+    assertEquals("Lookups", 1, dataProvider.getSingleLookups());
+    assertEquals("Hits", 1, cachingDataProvider.getEmailStats().getHits());
+    assertEquals("UID cache", 0, cachingDataProvider.getUidStats().getSize());
+  }
+
+  @Test
+  public void testUnknownUserIsCached() throws Exception {
+    for (int i = 0; i < 2; i++) {
+      try {
+        cachingDataProvider.getUserPresentation(2L);
+        fail("Should have thrown an exception");
+      } catch (InvalidInputException e) {
+        assertEquals("Exception message", "Failed to lookup user \"2\"", e.getMessage());
+      }
+    }
+    assertEquals("Lookups", 1, dataProvider.getSingleLookups());
+
+    now += TimeUnit.SECONDS.toMillis(10);
+    try {
+      cachingDataProvider.getUserPresentation(2L);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("Lookups after negative TTL", 2, dataProvider.getSingleLookups());
+    }
+  }
+
+  @Test
+  public void testExpiry() throws Exception {
+    cachingDataProvider.getUserPresentation(1L);
+    now += TimeUnit.SECONDS.toMillis(59);
+    cachingDataProvider.getUserPresentation(1L);
+    assertEquals("Lookups before TTL", 1, dataProvider.getSingleLookups());
+
+    now += TimeUnit.SECONDS.toMillis(1);
+    cachingDataProvider.getUserPresentation(1L);
+    assertEquals("Lookups after TTL", 2, dataProvider.getSingleLookups());
+    assertEquals("Expirations", 1, cachingDataProvider.getUidStats().getExpirations());
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    cachingDataProvider.getUserPresentation(1L);
+    cachingDataProvider.getUserPresentation("bot.user1@localhost.com");
+    for (long uid = 2; uid <= 3; uid++) {
+      try {
+        cachingDataProvider.getUserPresentation(uid);
+      } catch (InvalidInputException e) {
+        // Cached as well
+      }
+    }
+
+    CacheStats stats = cachingDataProvider.getUidStats();
+    assertEquals("Size", 2, stats.getSize());
+    assertEquals("Evictions", 1, stats.getEvictions());
+  }
+
+  @Test
+  public void testBulkLookup() throws Exception {
+    cachingDataProvider.getUserPresentation(1L);
+
+    Map<Long, IUserPresentation> users = cachingDataProvider.getUserPresentationsByUid(Arrays.asList(1L, 2L));
+    assertEquals("Users", 1, users.size());
+    assertEquals("User", 1L, users.get(1L).getId());
+    assertEquals("Batch lookups", 1, dataProvider.getBatchLookups());
+
+    cachingDataProvider.getUserPresentationsByUid(Arrays.asList(1L));
+    assertEquals("Batch lookups for cached users", 1, dataProvider.getBatchLookups());
+  }
+
+  @Test
+  public void testUriValidationIsCached() throws Exception {
+    IDataProvider uriProvider = mock(IDataProvider.class);
+    URI invalid = new URI("ftp://localhost");
+    doThrow(new InvalidInputException("Unsupported")).when(uriProvider).validateURI(invalid);
+    CachingDataProvider cachingUriProvider = new CachingDataProvider(uriProvider);
+
+    URI valid = new URI("https://localhost");
+    cachingUriProvider.validateURI(valid);
+    cachingUriProvider.validateURI(valid);
+    verify(uriProvider, times(1)).validateURI(valid);
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        cachingUriProvider.validateURI(invalid);
+        fail("Should have thrown an exception");
+      } catch (InvalidInputException e) {
+        assertEquals("Exception message", "Unsupported", e.getMessage());
+      }
+    }
+    verify(uriProvider, times(1)).validateURI(invalid);
+    assertEquals("Hits", 2, cachingUriProvider.getUriStats().getHits());
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    cachingDataProvider.getUserPresentation(1L);
+    cachingDataProvider.invalidateUser(1L, null);
+    cachingDataProvider.getUserPresentation(1L);
+    assertEquals("Lookups", 2, dataProvider.getSingleLookups());
+
+    cachingDataProvider.invalidateAll();
+    assertEquals("Size", 0, cachingDataProvider.getUidStats().getSize());
+  }
+
+  @Test
+  public void testCachedFailureIsRethrownPerCaller() throws Exception {
+    InvalidInputException first = null;
+    for (int i = 0; i < 2; i++) {
+      try {
+        cachingDataProvider.getUserPresentation(2L);
+        fail("Should have thrown an exception");
+      } catch (InvalidInputException e) {
+        assertNotSame("New exception per caller", first, e);
+        first = e;
+      }
+    }
+  }
+
+  @Test
+  public void testWrapAdvertisesBatchingOfDelegate() throws Exception {
+    assertTrue("Batch delegate", CachingDataProvider.wrap(dataProvider) instanceof IBatchDataProvider);
+    assertFalse("Single delegate", CachingDataProvider.wrap(mock(IDataProvider.class)) instanceof IBatchDataProvider);
+    assertFalse("Constructor", new CachingDataProvider(dataProvider) instanceof IBatchDataProvider);
+  }
+}
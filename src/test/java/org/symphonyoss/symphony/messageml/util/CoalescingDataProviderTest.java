@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class CoalescingDataProviderTest {
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(8);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrentLookupsAreCoalesced() throws Exception {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    TestBatchDataProvider dataProvider = new TestBatchDataProvider() {
+      @Override
+      public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+        entered.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.getUserPresentation(uid);
+      }
+    };
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    final CoalescingDataProvider coalescingDataProvider = new CoalescingDataProvider(dataProvider);
+
+    List<Future<IUserPresentation>> futures = new ArrayList<>();
+    futures.add(executor.submit(() -> coalescingDataProvider.getUserPresentation(1L)));
+    entered.await();
+    for (int i = 0; i < 7; i++) {
+      futures.add(executor.submit(() -> coalescingDataProvider.getUserPresentation(1L)));
+    }
+    Thread.sleep(200);
+    release.countDown();
+
+    IUserPresentation user = futures.get(0).get();
+    for (Future<IUserPresentation> future : futures) {
+      assertSame("Shared result", user, future.get());
+    }
+    assertEquals("Lookups", 1, dataProvider.getSingleLookups());
+    assertEquals("Lookups in flight", 0, coalescingDataProvider.getLookupsInFlight());
+  }
+
+  @Test
+  public void testErrorsAreShared() throws Exception {
+    TestBatchDataProvider dataProvider = new TestBatchDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    CoalescingDataProvider coalescingDataProvider = new CoalescingDataProvider(dataProvider);
+
+    try {
+      coalescingDataProvider.getUserPresentation(2L);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("Exception message", "Failed to lookup user \"2\"", e.getMessage());
+    }
+
+    assertEquals("Lookups in flight", 0, coalescingDataProvider.getLookupsInFlight());
+  }
+
+  @Test
+  public void testMicroBatching() throws Exception {
+    TestBatchDataProvider dataProvider = new TestBatchDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    final CoalescingDataProvider coalescingDataProvider =
+        new CoalescingDataProvider(dataProvider, 500, TimeUnit.MILLISECONDS, 100);
+
+    Future<IUserPresentation> first = executor.submit(() -> coalescingDataProvider.getUserPresentation(1L));
+    Future<IUserPresentation> second = executor.submit(() -> coalescingDataProvider.getUserPresentation(1L));
+    Future<IUserPresentation> third = executor.submit(() -> coalescingDataProvider.getUserPresentation(2L));
+
+    assertEquals("First", 1L, first.get().getId());
+    assertEquals("Second", 1L, second.get().getId());
+    try {
+      third.get();
+      fail("Should have thrown an exception");
+    } catch (Exception e) {
+      assertEquals("Exception", InvalidInputException.class, e.getCause().getClass());
+    }
+
+    assertEquals("Batch lookups", 1, dataProvider.getBatchLookups());
+    assertEquals("Single lookups for missing users", 1, dataProvider.getSingleLookups());
+  }
+
+  @Test
+  public void testMaxBatchSize() throws Exception {
+    TestBatchDataProvider dataProvider = new TestBatchDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    CoalescingDataProvider coalescingDataProvider =
+        new CoalescingDataProvider(dataProvider, 1, TimeUnit.HOURS, 1);
+
+    assertEquals("User", 1L, coalescingDataProvider.getUserPresentation(1L).getId());
+    assertEquals("Batch lookups", 1, dataProvider.getBatchLookups());
+  }
+
+  @Test
+  public void testBulkLookup() throws Exception {
+    TestBatchDataProvider dataProvider = new TestBatchDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    CoalescingDataProvider coalescingDataProvider = new CoalescingDataProvider(dataProvider);
+
+    Map<String, IUserPresentation> users =
+        coalescingDataProvider.getUserPresentationsByEmail(Arrays.asList("bot.user1@localhost.com", "unknown"));
+
+    assertEquals("Users", 1, users.size());
+    assertEquals("Batch lookups", 1, dataProvider.getBatchLookups());
+  }
+
+  @Test
+  public void testFullBatchWakesFirstCaller() throws Exception {
+    TestBatchDataProvider dataProvider = new TestBatchDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    final CoalescingDataProvider coalescingDataProvider =
+        new CoalescingDataProvider(dataProvider, 1, TimeUnit.HOURS, 2);
+
+    Future<IUserPresentation> first = executor.submit(() -> coalescingDataProvider.getUserPresentation(1L));
+    Future<IUserPresentation> second = executor.submit(() -> coalescingDataProvider.getUserPresentation(2L));
+
+    // The batch window is an hour: the first caller only returns in time if the second lookup wakes it up
+    assertEquals("First", 1L, first.get(10, TimeUnit.SECONDS).getId());
+    try {
+      second.get(10, TimeUnit.SECONDS);
+      fail("Should have thrown an exception");
+    } catch (ExecutionException e) {
+      assertEquals("Exception", InvalidInputException.class, e.getCause().getClass());
+    }
+    assertEquals("Batch lookups", 1, dataProvider.getBatchLookups());
+  }
+
+  @Test
+  public void testBulkLookupFailureIsShared() throws Exception {
+    TestBatchDataProvider dataProvider = new TestBatchDataProvider() {
+      @Override
+      public Map<Long, IUserPresentation> getUserPresentationsByUid(Collection<Long> uids) {
+        throw new IllegalStateException("Service unavailable");
+      }
+    };
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    final CoalescingDataProvider coalescingDataProvider =
+        new CoalescingDataProvider(dataProvider, 1, TimeUnit.HOURS, 2);
+
+    Future<IUserPresentation> first = executor.submit(() -> coalescingDataProvider.getUserPresentation(1L));
+    Future<IUserPresentation> second = executor.submit(() -> coalescingDataProvider.getUserPresentation(2L));
+
+    for (Future<IUserPresentation> future : Arrays.asList(first, second)) {
+      try {
+        future.get(10, TimeUnit.SECONDS);
+        fail("Should have thrown an exception");
+      } catch (ExecutionException e) {
+        assertEquals("Exception message", "Service unavailable", e.getCause().getMessage());
+      }
+    }
+    assertEquals("Single lookups", 0, dataProvider.getSingleLookups());
+    assertEquals("Lookups in flight", 0, coalescingDataProvider.getLookupsInFlight());
+  }
+}
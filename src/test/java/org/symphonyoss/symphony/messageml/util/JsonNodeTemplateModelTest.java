@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Collections;
+
+public class JsonNodeTemplateModelTest {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Configuration FREEMARKER = new Configuration(Configuration.getVersion());
+
+  private String process(String template, String json) throws Exception {
+    JsonNode node = MAPPER.readTree(json);
+    StringWriter sw = new StringWriter();
+    new Template("test", template, FREEMARKER).process(
+        Collections.singletonMap("data", JsonNodeTemplateModel.wrap(node)), sw);
+    return sw.toString();
+  }
+
+  @Test
+  public void testScalars() throws Exception {
+    String json = "{\"text\":\"Hello\",\"int\":42,\"dec\":1.5,\"flag\":true,\"nil\":null}";
+
+    assertEquals("Text", "Hello", process("${data.text}", json));
+    assertEquals("Number arithmetic", "43", process("${data.int + 1}", json));
+    assertEquals("Decimal", "3", process("${data.dec * 2}", json));
+    assertEquals("Boolean", "yes", process("<#if data.flag>yes</#if>", json));
+    assertEquals("Null", "default", process("${data.nil!'default'}", json));
+    assertEquals("Missing", "default", process("${data.missing!'default'}", json));
+  }
+
+  @Test
+  public void testContainers() throws Exception {
+    String json = "{\"rows\":[{\"name\":\"a\",\"value\":1},{\"name\":\"b\",\"value\":2}],\"obj\":{\"x\":1,\"y\":2}}";
+
+    assertEquals("List", "a=1;b=2;", process("<#list data.rows as row>${row.name}=${row.value};</#list>", json));
+    assertEquals("Index", "b", process("${data.rows[1].name}", json));
+    assertEquals("Sequence size", "2", process("${data.rows?size}", json));
+    assertEquals("Keys", "x,y", process("<#list data.obj?keys as k>${k}<#sep>,</#list>", json));
+    assertEquals("Values", "1,2", process("<#list data.obj?values as v>${v}<#sep>,</#list>", json));
+    assertEquals("Hash size", "2", process("${data.obj?size}", json));
+    assertEquals("Bracket access", "1", process("${data['obj']['x']}", json));
+  }
+
+  @Test
+  public void testWrapNull() {
+    assertNull("Null", JsonNodeTemplateModel.wrap(null));
+    assertNull("Missing", JsonNodeTemplateModel.wrap(MAPPER.createObjectNode().path("missing")));
+  }
+}
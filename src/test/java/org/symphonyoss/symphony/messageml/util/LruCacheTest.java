@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class LruCacheTest {
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    LruCache<String, Integer> cache = new LruCache<>(2);
+    cache.put("a", 1);
+    cache.put("b", 2);
+    assertEquals("Access a", Integer.valueOf(1), cache.get("a"));
+
+    cache.put("c", 3);
+    assertEquals("Size", 2, cache.size());
+    assertNull("Evicted b", cache.get("b"));
+    assertEquals("Kept a", Integer.valueOf(1), cache.get("a"));
+    assertEquals("Kept c", Integer.valueOf(3), cache.get("c"));
+  }
+
+  @Test
+  public void testRemoveAndClear() {
+    LruCache<String, Integer> cache = new LruCache<>(4);
+    cache.put("a", 1);
+    cache.put("b", 2);
+
+    cache.remove("a");
+    assertNull("Removed a", cache.get("a"));
+    assertEquals("Size", 1, cache.size());
+
+    cache.clear();
+    assertEquals("Size", 0, cache.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() {
+    new LruCache<String, Integer>(0);
+  }
+}
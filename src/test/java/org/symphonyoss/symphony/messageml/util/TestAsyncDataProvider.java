@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * An implementation of IAsyncDataProvider for test purposes. Lookups are answered by a {@link TestDataProvider}
+ * but complete only when {@link #completeLookups()} is called.
+ */
+public class TestAsyncDataProvider implements IAsyncDataProvider {
+  private final TestDataProvider dataProvider = new TestDataProvider();
+  private final List<Runnable> lookups = new ArrayList<>();
+
+  @Override
+  public synchronized CompletionStage<IUserPresentation> getUserPresentation(String emailAddress) {
+    return lookup(() -> dataProvider.getUserPresentation(emailAddress));
+  }
+
+  @Override
+  public synchronized CompletionStage<IUserPresentation> getUserPresentation(Long uid) {
+    return lookup(() -> dataProvider.getUserPresentation(uid));
+  }
+
+  @Override
+  public synchronized CompletionStage<Void> validateURI(URI uri) {
+    return lookup(() -> {
+      dataProvider.validateURI(uri);
+      return null;
+    });
+  }
+
+  /**
+   * Complete all lookups issued so far.
+   */
+  public void completeLookups() {
+    List<Runnable> issued;
+
+    synchronized (this) {
+      issued = new ArrayList<>(lookups);
+      lookups.clear();
+    }
+
+    for (Runnable lookup : issued) {
+      lookup.run();
+    }
+  }
+
+  public synchronized int getPendingLookups() {
+    return lookups.size();
+  }
+
+  public void setUserPresentation(long id, String screenName, String prettyName, String email) {
+    dataProvider.setUserPresentation(id, screenName, prettyName, email);
+  }
+
+  private <T> CompletionStage<T> lookup(Lookup<T> lookup) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+
+    lookups.add(() -> {
+      try {
+        result.complete(lookup.get());
+      } catch (InvalidInputException e) {
+        result.completeExceptionally(e);
+      }
+    });
+
+    return result;
+  }
+
+  private interface Lookup<T> {
+    T get() throws InvalidInputException;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An implementation of IBatchDataProvider for test purposes, counting the lookups made.
+ */
+public class TestBatchDataProvider extends TestDataProvider implements IBatchDataProvider {
+  private int batchLookups;
+  private int singleLookups;
+
+  @Override
+  public Map<Long, IUserPresentation> getUserPresentationsByUid(Collection<Long> uids) {
+    batchLookups++;
+    Map<Long, IUserPresentation> users = new HashMap<>();
+
+    for (Long uid : uids) {
+      try {
+        users.put(uid, super.getUserPresentation(uid));
+      } catch (InvalidInputException e) {
+        // Unknown users are omitted
+      }
+    }
+
+    return users;
+  }
+
+  @Override
+  public Map<String, IUserPresentation> getUserPresentationsByEmail(Collection<String> emailAddresses) {
+    batchLookups++;
+    Map<String, IUserPresentation> users = new HashMap<>();
+
+    for (String email : emailAddresses) {
+      try {
+        users.put(email, super.getUserPresentation(email));
+      } catch (InvalidInputException e) {
+        // Unknown users are omitted
+      }
+    }
+
+    return users;
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(String email) throws InvalidInputException {
+    singleLookups++;
+    return super.getUserPresentation(email);
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+    singleLookups++;
+    return super.getUserPresentation(uid);
+  }
+
+  public int getBatchLookups() {
+    return batchLookups;
+  }
+
+  public int getSingleLookups() {
+    return singleLookups;
+  }
+}
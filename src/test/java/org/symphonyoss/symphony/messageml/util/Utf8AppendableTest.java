@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class Utf8AppendableTest {
+
+  @Test
+  public void testEncoding() throws Exception {
+    String text = "ASCII, Za\u017c\u00f3\u0142\u0107, \u2603, \ud83d\ude00 and \u00e9";
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8Appendable appendable = new Utf8Appendable(out);
+
+    appendable.append(text);
+    appendable.flush();
+
+    assertArrayEquals("Bytes", text.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+  }
+
+  @Test
+  public void testSmallBuffer() throws Exception {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      text.append("x\u00e9\u2603\ud83d\ude00");
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8Appendable appendable = new Utf8Appendable(out, 5);
+
+    appendable.append(text, 0, text.length());
+    appendable.flush();
+
+    assertEquals("Text", text.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testSurrogatePairAcrossCalls() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8Appendable appendable = new Utf8Appendable(out);
+
+    appendable.append('\ud83d');
+    appendable.append("\ude00!");
+    appendable.flush();
+
+    assertEquals("Text", "\ud83d\ude00!", new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testUnpairedSurrogates() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8Appendable appendable = new Utf8Appendable(out);
+
+    appendable.append("a\ude00b\ud83dc");
+    appendable.flush();
+
+    assertEquals("Text", "a?b?c", new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBufferSize() {
+    new Utf8Appendable(new ByteArrayOutputStream(), 3);
+  }
+
+}
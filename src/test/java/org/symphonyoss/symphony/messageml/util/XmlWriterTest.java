@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class XmlWriterTest {
+
+  private StringBuilder output;
+  private XmlWriter writer;
+
+  @Before
+  public void setUp() {
+    output = new StringBuilder();
+    writer = new XmlWriter(output);
+  }
+
+  @Test
+  public void testNestedElements() {
+    Map<String, String> attributes = new LinkedHashMap<>();
+    attributes.put("class", "a \"b\"");
+    attributes.put("style", "x<y");
+
+    writer.openElement("div", attributes);
+    writer.openElement("span", "class", "entity", "data-entity-id", "id&1");
+    writer.printText("text");
+    writer.closeElement();
+    writer.closeElement();
+
+    assertEquals("Output", "<div class=\"a &quot;b&quot;\" style=\"x&lt;y\"><span class=\"entity\" "
+        + "data-entity-id=\"id&amp;1\">text</span></div>", output.toString());
+    assertFalse("Error", writer.checkError());
+  }
+
+  @Test
+  public void testDeepNesting() {
+    for (int i = 0; i < 40; i++) {
+      writer.openElement("b" + i);
+    }
+    for (int i = 0; i < 40; i++) {
+      writer.closeElement();
+    }
+
+    assertTrue("Opening tags", output.toString().startsWith("<b0><b1>"));
+    assertTrue("Closing tags", output.toString().endsWith("</b1></b0>"));
+  }
+
+  @Test
+  public void testPrintElement() {
+    writer.printElement("hr");
+    writer.printElement("audio", null, "src", "chime.mp3", "autoplay");
+    writer.printElement("img", null, Collections.singletonMap("src", "a.png?x=1&y=2"));
+    writer.printElement("span", "<@user>", "class", "entity");
+
+    assertEquals("Output", "<hr/><audio src=\"chime.mp3\" autoplay/><img src=\"a.png?x=1&amp;y=2\"/>"
+        + "<span class=\"entity\">&lt;@user&gt;</span>", output.toString());
+  }
+
+  @Test
+  public void testPrintText() {
+    writer.printText("a < b && c > \"d\"\n\ne");
+
+    assertEquals("Output", "a &lt; b &amp;&amp; c &gt; &quot;d&quot;\n\ne", output.toString());
+  }
+
+  @Test
+  public void testPrintTextRemoveNewLines() {
+    writer.printText("\na\n\n\nb &\nc\n", true);
+
+    assertEquals("Output", " a b &amp; c ", output.toString());
+    assertEquals("Matches XmlPrintStream", XmlPrintStream.removeNewLines("\na\n\n\nb &\nc\n").replace("&", "&amp;"),
+        output.toString());
+  }
+
+  @Test
+  public void testPrintRaw() {
+    writer.print("<b>&amp;</b>");
+
+    assertEquals("Output", "<b>&amp;</b>", output.toString());
+  }
+
+  @Test
+  public void testError() {
+    IOException error = new IOException("Closed");
+    XmlWriter failing = new XmlWriter(new Appendable() {
+      @Override
+      public Appendable append(CharSequence csq) throws IOException {
+        throw error;
+      }
+
+      @Override
+      public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        throw error;
+      }
+
+      @Override
+      public Appendable append(char c) throws IOException {
+        throw error;
+      }
+    });
+
+    failing.printElement("br");
+    failing.printText("text");
+
+    assertTrue("Error", failing.checkError());
+    assertSame("Exception", error, failing.getError());
+  }
+
+  @Test
+  public void testTextOnly() {
+    XmlWriter text = new XmlWriter(output, true);
+
+    text.openElement("div", Collections.singletonMap("class", "a"));
+    text.printText("a < b &\n\nc", true);
+    text.printElement("span", "\"@user\"", "class", "entity");
+    text.printElement("br");
+    text.closeElement();
+
+    assertEquals("Output", "a < b & c\"@user\"", output.toString());
+    assertEquals("Elements", 3, text.getElementCount());
+    assertTrue("Text only", text.isTextOnly());
+  }
+
+}